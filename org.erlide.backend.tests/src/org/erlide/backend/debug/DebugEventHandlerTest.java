@@ -0,0 +1,74 @@
+package org.erlide.backend.debug;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.erlide.backend.debug.events.DebuggerEvent;
+import org.erlide.backend.debug.events.NewStatusEvent;
+import org.erlide.backend.debug.events.UnknownEvent;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.google.common.collect.Lists;
+
+public class DebugEventHandlerTest {
+
+    private static final OtpErlangPid P1 = new OtpErlangPid("a@b", 1, 0, 0);
+    private static final OtpErlangPid P2 = new OtpErlangPid("a@b", 2, 0, 0);
+
+    private static NewStatusEvent status(final OtpErlangPid pid, final String status) {
+        return new NewStatusEvent(new OtpErlangObject[] {
+                new OtpErlangAtom("new_status"), pid, new OtpErlangAtom(status) });
+    }
+
+    private static List<DebuggerEvent> coalesce(final DebuggerEvent... events) {
+        return DebugEventHandler.coalesce(Lists.newArrayList(events));
+    }
+
+    @Test
+    public void runningIsKeptBeforeBreak() {
+        final DebuggerEvent running = status(P1, "running");
+        final DebuggerEvent brk = status(P1, "break");
+        final List<DebuggerEvent> result = coalesce(running, brk);
+        assertEquals(2, result.size());
+        assertSame(running, result.get(0));
+        assertSame(brk, result.get(1));
+    }
+
+    @Test
+    public void repeatedIdleKeepsTheLast() {
+        final DebuggerEvent idle1 = status(P1, "idle");
+        final DebuggerEvent waiting2 = status(P2, "waiting");
+        final DebuggerEvent idle2 = status(P1, "idle");
+        final DebuggerEvent idle3 = status(P1, "idle");
+        final List<DebuggerEvent> result = coalesce(idle1, waiting2, idle2, idle3);
+        assertEquals(2, result.size());
+        assertSame(waiting2, result.get(0));
+        assertSame(idle3, result.get(1));
+    }
+
+    @Test
+    public void idleBeforeRunningIsDropped() {
+        final DebuggerEvent running = status(P1, "running");
+        final List<DebuggerEvent> result = coalesce(status(P1, "idle"), running);
+        assertEquals(1, result.size());
+        assertSame(running, result.get(0));
+    }
+
+    @Test
+    public void otherEventsEndARun() {
+        final DebuggerEvent idle1 = status(P1, "idle");
+        final DebuggerEvent other = new UnknownEvent(new OtpErlangAtom("x"));
+        final DebuggerEvent idle2 = status(P1, "idle");
+        final DebuggerEvent waiting = status(P1, "waiting");
+        final List<DebuggerEvent> result = coalesce(idle1, other, idle2, waiting);
+        assertEquals(3, result.size());
+        assertSame(idle1, result.get(0));
+        assertSame(other, result.get(1));
+        assertSame(waiting, result.get(2));
+    }
+}
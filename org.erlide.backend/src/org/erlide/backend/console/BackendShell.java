@@ -21,6 +21,7 @@ import org.erlide.runtime.shell.BackendShellListener;
 import org.erlide.runtime.shell.IBackendShell;
 import org.erlide.runtime.shell.IoRequest;
 import org.erlide.runtime.shell.IoRequest.IoRequestKind;
+import org.erlide.runtime.shell.IoRequestBuffer;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.erlang.OtpErlang;
 
@@ -41,7 +42,7 @@ public class BackendShell implements IBackendShell {
         this.backend = backend;
         fId = id;
         this.server = server;
-        requests = new ArrayList<IoRequest>(1000);
+        requests = new IoRequestBuffer(MAX_REQUESTS);
         listeners = new ArrayList<BackendShellListener>();
 
         final ErlangEventHandler handler = new ConsoleEventHandler(backend.getName(),
@@ -79,11 +80,9 @@ public class BackendShell implements IBackendShell {
     }
 
     private static final int MAX_REQUESTS = 5000;
-    private static final int DELTA_REQUESTS = 500;
 
-    private final List<IoRequest> requests;
+    private final IoRequestBuffer requests;
     private final List<BackendShellListener> listeners;
-    private int length = 0;
 
     @Override
     public void input(final String s0) {
@@ -91,28 +90,19 @@ public class BackendShell implements IBackendShell {
         if (!s.endsWith("\n")) {
             s += "\n";
         }
-        final IoRequest request = new IoRequest(s, IoRequestKind.INPUT);
-        request.setStart(length);
-        final int prevLength = length;
-        addRequest(request);
-        notifyListeners(makeEvent(prevLength, request));
+        addRequest(new IoRequest(s, IoRequestKind.INPUT));
     }
 
-    private void addRequest(final IoRequest req) {
-        final int reqLength = req.getLength();
-        length += reqLength;
-        synchronized (requests) {
-            requests.add(req);
-        }
+    private void addRequest(final IoRequest request) {
+        final int offset = requests.add(request);
+        notifyListeners(new BackendShellEvent(offset, 0, request.getMessage()));
     }
 
     @Override
     public void add(final OtpErlangObject msg) {
         deleteOldItems();
-        final int prevLength = length;
-        final IoRequest request = addRequestFromTuple(msg);
-        if (request != null) {
-            notifyListeners(makeEvent(prevLength, request));
+        if (msg instanceof OtpErlangTuple) {
+            addRequest(new IoRequest((OtpErlangTuple) msg));
         }
     }
 
@@ -121,88 +111,44 @@ public class BackendShell implements IBackendShell {
         if (IoRequest.RE_PROMPT.matcher(text).matches()) {
             return;
         }
-        final IoRequest request = new IoRequest(text, kind);
-        request.setStart(length);
-        final int prevLength = length;
-        addRequest(request);
-        notifyListeners(makeEvent(prevLength, request));
-    }
-
-    private BackendShellEvent makeEvent(final int prevLength, final IoRequest request) {
-        return new BackendShellEvent(prevLength, 0, request.getMessage());
-    }
-
-    private IoRequest addRequestFromTuple(final OtpErlangObject msg) {
-        if (!(msg instanceof OtpErlangTuple)) {
-            return null;
-        }
-        final IoRequest request = new IoRequest((OtpErlangTuple) msg);
-        request.setStart(length);
-        addRequest(request);
-        return request;
+        addRequest(new IoRequest(text, kind));
     }
 
     private void deleteOldItems() {
         // TODO use a configuration for this
-        final int prevLength = length;
-        synchronized (requests) {
-            if (requests.size() > MAX_REQUESTS) {
-                requests.subList(0, DELTA_REQUESTS).clear();
-                final IoRequest first = requests.get(0);
-                final int start = first.getStart();
-                length = 0;
-                for (final IoRequest request : requests) {
-                    request.setStart(request.getStart() - start);
-                    length += request.getLength();
-                }
-            }
-        }
-        if (length != prevLength) {
-            notifyListeners(new BackendShellEvent(0, length - prevLength, ""));
+        final int removed = requests.trim();
+        if (removed > 0) {
+            notifyListeners(new BackendShellEvent(0, removed, ""));
         }
     }
 
     @Override
     public IoRequest findAtPos(final int thePos) {
-        synchronized (requests) {
-            for (final IoRequest req : requests) {
-                if (req.getStart() <= thePos && req.getStart() + req.getLength() > thePos) {
-                    return req;
-                }
-            }
-            return null;
-        }
+        return requests.findAtPos(thePos);
     }
 
     @Override
     public List<IoRequest> getAllFrom(final OtpErlangPid sender) {
-        final List<IoRequest> result = new ArrayList<IoRequest>();
-        synchronized (requests) {
-            for (final IoRequest element : requests) {
-                if (element.getSender().equals(sender)) {
-                    result.add(element);
-                }
-            }
-        }
-        return result;
+        return requests.getAllFrom(sender);
     }
 
     @Override
     public void add(final List<OtpErlangObject> msgs) {
-        final int prevLength = length;
-        final StringBuffer text = new StringBuffer();
-        synchronized (requests) {
-            deleteOldItems();
-            for (final OtpErlangObject element : msgs) {
-                final IoRequest request = addRequestFromTuple(element);
-                if (request != null) {
-                    requests.add(request);
-                    text.append(request.getMessage());
+        deleteOldItems();
+        final StringBuilder text = new StringBuilder();
+        int offset = -1;
+        for (final OtpErlangObject element : msgs) {
+            if (element instanceof OtpErlangTuple) {
+                final IoRequest request = new IoRequest((OtpErlangTuple) element);
+                final int start = requests.add(request);
+                if (offset < 0) {
+                    offset = start;
                 }
+                text.append(request.getMessage());
             }
         }
-        if (!requests.isEmpty()) {
-            notifyListeners(new BackendShellEvent(prevLength, 0, text.toString()));
+        if (offset >= 0) {
+            notifyListeners(new BackendShellEvent(offset, 0, text.toString()));
         }
     }
 
@@ -222,11 +168,8 @@ public class BackendShell implements IBackendShell {
     }
 
     private void sendEarlierRequests(final BackendShellListener listener) {
-        int alength = 0;
-        for (final IoRequest request : requests) {
-            listener.changed(makeEvent(alength, request));
-            alength += request.getLength();
-        }
+        // all at once, it can be a lot
+        listener.changed(new BackendShellEvent(0, 0, requests.getText()));
     }
 
     @Override
@@ -248,30 +191,17 @@ public class BackendShell implements IBackendShell {
 
     @Override
     public int getTextLength() {
-        return length;
+        return requests.getLength();
     }
 
     @Override
     public String getText() {
-        final StringBuffer result = new StringBuffer();
-        synchronized (requests) {
-            for (final IoRequest request : requests) {
-                result.append(request.getMessage());
-            }
-        }
-        return result.toString();
+        return requests.getText();
     }
 
     @Override
     public String[] getLastMessages(final int nMessages) {
-        final List<String> result = Lists.newArrayListWithCapacity(nMessages);
-        synchronized (requests) {
-            final int size = requests.size();
-            final int n = Math.min(nMessages, size);
-            for (int i = size - n; i < size; ++i) {
-                result.add(requests.get(i).getMessage());
-            }
-        }
+        final List<String> result = requests.getLastMessages(nMessages);
         return result.toArray(new String[nMessages]);
     }
 
@@ -1,14 +1,20 @@
 package org.erlide.backend.debug;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
-import org.eclipse.debug.core.DebugException;
 import org.erlide.backend.debug.events.DebuggerEvent;
 import org.erlide.backend.debug.events.DebuggerEventFactory;
+import org.erlide.backend.debug.events.NewStatusEvent;
 import org.erlide.backend.debug.model.ErlangDebugTarget;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 class DebugEventHandler {
 
@@ -19,17 +25,50 @@ class DebugEventHandler {
     }
 
     public void handleMessages(final Collection<OtpErlangObject> messages) {
+        final List<DebuggerEvent> events = Lists.newArrayListWithCapacity(messages
+                .size());
         for (final OtpErlangObject message : messages) {
             try {
-                handleMessage(message);
+                events.add(DebuggerEventFactory.parse(message));
+            } catch (final Exception e) {
+                ErlLogger.info(e);
+            }
+        }
+        for (final DebuggerEvent event : coalesce(events)) {
+            try {
+                event.execute(debugTarget);
             } catch (final Exception e) {
                 ErlLogger.info(e);
             }
         }
     }
 
-    private void handleMessage(final OtpErlangObject message) throws DebugException {
-        final DebuggerEvent event = DebuggerEventFactory.parse(message);
-        event.execute(debugTarget);
+    /**
+     * Processes change status several times in a row, e.g. when they are
+     * stepped or when many of them hit breakpoints at once. Within such a run
+     * of status changes, a status that only sets the status of a process (like
+     * idle or waiting) is dropped if a newer one for the same process follows.
+     * Running, break and exit fire the resume and suspend events, they are
+     * always kept.
+     */
+    static List<DebuggerEvent> coalesce(final List<DebuggerEvent> events) {
+        final List<DebuggerEvent> result = Lists.newArrayListWithCapacity(events
+                .size());
+        // processes that get a newer status in the current run
+        final Set<OtpErlangPid> changed = Sets.newHashSet();
+        for (int i = events.size() - 1; i >= 0; i--) {
+            final DebuggerEvent event = events.get(i);
+            if (event instanceof NewStatusEvent) {
+                final NewStatusEvent status = (NewStatusEvent) event;
+                if (!changed.add(status.getPid()) && !status.firesEvent()) {
+                    continue;
+                }
+            } else {
+                changed.clear();
+            }
+            result.add(event);
+        }
+        Collections.reverse(result);
+        return result;
     }
 }
@@ -1,6 +1,8 @@
 package org.erlide.backend.debug;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.eclipse.core.resources.IProject;
 import org.erlide.backend.api.IBackend;
@@ -8,74 +10,95 @@ import org.erlide.backend.api.IBackendListener;
 import org.erlide.backend.debug.model.ErlangDebugTarget;
 import org.erlide.util.ErlLogger;
 
+import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangExit;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * This daemon is almost a copy of ErlangEventPublisher, but accepts generic
  * messages because the debugger can't be convinced to send erlide_jrpc events.
  * The handler is also hardcoded.
+ *
+ * The receiving thread waits for messages and takes all of them that are
+ * queued at once; they are handled in order on a separate thread, so that
+ * receiving doesn't wait for the debug model.
  */
 public class DebuggerEventDaemon implements IBackendListener {
 
+    private static final OtpErlangAtom STOP = new OtpErlangAtom("$erlide_debug_stop");
+
     private IBackend backend;
     volatile boolean stopped = false;
     private final DebugEventHandler handler;
     private OtpMbox mbox;
+    private ExecutorService executor;
 
     final static boolean DEBUG = Boolean.parseBoolean(System
             .getProperty("erlide.event.daemon"));
 
     private final class HandlerJob implements Runnable {
         private final IBackend myBackend;
+        private final OtpMbox myMbox;
+        private final ExecutorService myExecutor;
 
-        public HandlerJob(final IBackend backend) {
+        public HandlerJob(final IBackend backend, final OtpMbox mbox,
+                final ExecutorService executor) {
             myBackend = backend;
+            myMbox = mbox;
+            myExecutor = executor;
         }
 
         @Override
         public void run() {
-            OtpErlangObject msg = null;
-            final List<OtpErlangObject> messages = Lists.newArrayList();
-            do {
-                try {
-                    msg = mbox.receive(200);
-                    if (msg != null) {
-                        messages.add(msg);
-                        // if there are more queued events, retrieve not
-                        // more than 10 of them
-                        int count = 0;
-                        do {
-                            msg = mbox.receive(0);
-                            if (msg != null) {
-                                messages.add(msg);
-                                count++;
-                            }
-                        } while (count < 10 && msg != null && !stopped);
-                    }
-                    if (messages.size() != 0) {
-                        if (DEBUG) {
-                            for (final OtpErlangObject message : messages) {
-                                ErlLogger.debug("MSG: %s", message);
+            try {
+                do {
+                    try {
+                        final List<OtpErlangObject> messages = Lists.newArrayList();
+                        OtpErlangObject msg = myMbox.receive();
+                        while (msg != null) {
+                            if (STOP.equals(msg)) {
+                                stopped = true;
+                                break;
                             }
+                            messages.add(msg);
+                            msg = myMbox.receive(0);
                         }
-                        handler.handleMessages(messages);
-
-                        messages.clear();
-                    }
-                } catch (final OtpErlangExit e) {
-                    if (myBackend.isRunning()) {
-                        // backend crashed -- restart?
-                        // also when it was closed... how do we tell difference?
-                        // ErlLogger.warn(e);
+                        if (!messages.isEmpty()) {
+                            dispatch(messages);
+                        }
+                    } catch (final OtpErlangExit e) {
+                        if (myBackend.isRunning()) {
+                            // backend crashed -- restart?
+                            // also when it was closed... how do we tell
+                            // difference?
+                            // ErlLogger.warn(e);
+                        }
+                    } catch (final Exception e) {
+                        ErlLogger.warn(e);
                     }
-                } catch (final Exception e) {
-                    ErlLogger.warn(e);
+                } while (!stopped);
+            } finally {
+                myMbox.close();
+                myExecutor.shutdown();
+            }
+        }
+
+        private void dispatch(final List<OtpErlangObject> messages) {
+            if (DEBUG) {
+                for (final OtpErlangObject message : messages) {
+                    ErlLogger.debug("MSG: %s", message);
                 }
-            } while (!stopped);
+            }
+            myExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    handler.handleMessages(messages);
+                }
+            });
         }
     }
 
@@ -87,11 +110,19 @@ public class DebuggerEventDaemon implements IBackendListener {
     public synchronized void start() {
         stopped = false;
         mbox = backend.getRuntime().createMbox();
-        new Thread(new HandlerJob(backend)).start();
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat("debugger events " + backend.getName())
+                .build());
+        new Thread(new HandlerJob(backend, mbox, executor), "debugger mailbox "
+                + backend.getName()).start();
     }
 
     public synchronized void stop() {
         stopped = true;
+        if (mbox != null) {
+            // wake up the receiving thread
+            mbox.send(mbox.self(), STOP);
+        }
     }
 
     @Override
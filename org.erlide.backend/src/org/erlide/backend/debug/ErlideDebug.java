@@ -1,8 +1,16 @@
 package org.erlide.backend.debug;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.DebugException;
@@ -10,6 +18,7 @@ import org.erlide.backend.BackendUtils;
 import org.erlide.backend.api.IBackend;
 import org.erlide.backend.internal.BackendPlugin;
 import org.erlide.runtime.api.IRpcSite;
+import org.erlide.runtime.rpc.IRpcResultCallback;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
@@ -27,6 +36,11 @@ import com.ericsson.otp.erlang.OtpErlangTuple;
 public class ErlideDebug {
 
     private static final String ERLIDE_DEBUG = "erlide_debug";
+    // modules interpreted at a time; 0 is one per scheduler of the backend
+    private static final int INTERPRET_WORKERS = Integer.getInteger(
+            "erlide.debug.interpret.workers", 0);
+    private static final long INTERPRET_IDLE_TIMEOUT = 30000;
+    private static final long CANCEL_POLL_INTERVAL = 500;
 
     @SuppressWarnings("boxing")
     public static OtpErlangList getProcesses(final IRpcSite backend,
@@ -123,21 +137,142 @@ public class ErlideDebug {
         try {
             final OtpErlangObject res = backend.call(ERLIDE_DEBUG, "interpret", "aoo",
                     moduleName, distributed, interpret);
-            if (res instanceof OtpErlangTuple) {
-                final OtpErlangTuple t = (OtpErlangTuple) res;
-                final OtpErlangObject o = t.elementAt(0);
-                if (o instanceof OtpErlangAtom) {
-                    final OtpErlangAtom moduleAtom = (OtpErlangAtom) o;
-                    return moduleAtom.atomValue().equals("module");
-                }
-            }
-            return Util.isOk(res);
+            return isInterpreted(res);
         } catch (final RpcException e) {
             ErlLogger.warn(e);
         }
         return false;
     }
 
+    /**
+     * Interpret (or stop interpreting) several modules. The backend loads
+     * them in parallel, and the callback gets {Module, Result} for each one as
+     * it is done.
+     */
+    @SuppressWarnings("boxing")
+    public static void interpret(final IRpcSite backend, final List<String> moduleNames,
+            final boolean distributed, final boolean interpret,
+            final IRpcResultCallback callback) throws RpcException {
+        backend.async_call_result(callback, ERLIDE_DEBUG, "interpret_modules",
+                "xlaooi", moduleNames, distributed, interpret, INTERPRET_WORKERS);
+    }
+
+    /**
+     * Interpret (or stop interpreting) several modules in parallel and wait
+     * until they are done, reporting each module to the monitor. Returns the
+     * modules that failed, with the reason.
+     */
+    public static Map<String, String> interpret(final IRpcSite backend,
+            final List<String> moduleNames, final boolean distributed,
+            final boolean interpret, final IProgressMonitor monitor) {
+        final InterpretResults results = new InterpretResults(moduleNames, monitor);
+        try {
+            interpret(backend, moduleNames, distributed, interpret, results);
+            results.await();
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+            results.failAll(e.getMessage());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return results.getFailed();
+    }
+
+    /**
+     * Collects the results of interpreting modules. The wait is over when all
+     * are done, when the monitor is cancelled, or if no module was done for a
+     * while.
+     */
+    private static class InterpretResults implements IRpcResultCallback {
+        private final Set<String> pending;
+        private final Map<String, String> failed = new TreeMap<String, String>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final int total;
+        private final IProgressMonitor monitor;
+
+        InterpretResults(final List<String> moduleNames, final IProgressMonitor monitor) {
+            pending = Collections.synchronizedSet(new HashSet<String>(moduleNames));
+            total = moduleNames.size();
+            this.monitor = monitor;
+        }
+
+        @Override
+        public void start(final OtpErlangObject msg) {
+        }
+
+        @SuppressWarnings("boxing")
+        @Override
+        public void progress(final OtpErlangObject msg) {
+            final OtpErlangTuple t = (OtpErlangTuple) msg;
+            final String module = ((OtpErlangAtom) t.elementAt(0)).atomValue();
+            pending.remove(module);
+            if (!isInterpreted(t.elementAt(1))) {
+                ErlLogger.warn("Could not interpret %s: %s", module, t.elementAt(1));
+                synchronized (failed) {
+                    failed.put(module, t.elementAt(1).toString());
+                }
+            }
+            ErlLogger.debug("interpreted %s (%d/%d)", module, total - pending.size(),
+                    total);
+            monitor.subTask(module);
+            monitor.worked(1);
+        }
+
+        @Override
+        public void stop(final OtpErlangObject msg) {
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            int left = pending.size();
+            long idleSince = System.currentTimeMillis();
+            while (!done.await(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (monitor.isCanceled()) {
+                    failAll("cancelled");
+                    return;
+                }
+                final long now = System.currentTimeMillis();
+                if (pending.size() != left) {
+                    left = pending.size();
+                    idleSince = now;
+                } else if (now - idleSince >= INTERPRET_IDLE_TIMEOUT) {
+                    ErlLogger.warn("Timeout while interpreting %s", pending);
+                    failAll("timeout");
+                    return;
+                }
+            }
+        }
+
+        void failAll(final String reason) {
+            synchronized (pending) {
+                synchronized (failed) {
+                    for (final String module : pending) {
+                        failed.put(module, reason);
+                    }
+                }
+                pending.clear();
+            }
+        }
+
+        Map<String, String> getFailed() {
+            synchronized (failed) {
+                return new TreeMap<String, String>(failed);
+            }
+        }
+    }
+
+    private static boolean isInterpreted(final OtpErlangObject res) {
+        if (res instanceof OtpErlangTuple) {
+            final OtpErlangTuple t = (OtpErlangTuple) res;
+            final OtpErlangObject o = t.elementAt(0);
+            if (o instanceof OtpErlangAtom) {
+                final OtpErlangAtom moduleAtom = (OtpErlangAtom) o;
+                return moduleAtom.atomValue().equals("module");
+            }
+        }
+        return Util.isOk(res);
+    }
+
     @SuppressWarnings("boxing")
     public static void addDeleteLineBreakpoint(final IBackend backend,
             final String module, final int line, final int action) {
@@ -257,6 +392,72 @@ public class ErlideDebug {
         return null;
     }
 
+    /**
+     * As {@link #getAllStackframes}, but the frames have no bindings, those
+     * are fetched with {@link #getFrameBindings} when needed.
+     */
+    public static OtpErlangTuple getStackFrames(final IRpcSite backend,
+            final OtpErlangPid meta) {
+        try {
+            final OtpErlangObject res = backend.call(ERLIDE_DEBUG, "stack_frames", "x",
+                    meta);
+            if (res instanceof OtpErlangTuple) {
+                return (OtpErlangTuple) res;
+            }
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+        }
+        return null;
+    }
+
+    /**
+     * @return the bindings of the stack frame, as a list of {Name, Value},
+     *         where Value is {value, Term} or, for big terms, {large, Kind,
+     *         Size, Preview}
+     */
+    @SuppressWarnings("boxing")
+    public static OtpErlangList getFrameBindings(final IRpcSite backend,
+            final OtpErlangPid meta, final int stackFrameNo) {
+        try {
+            final OtpErlangObject res = backend.call(ERLIDE_DEBUG, "frame_bindings",
+                    "xi", meta, stackFrameNo);
+            if (res instanceof OtpErlangList) {
+                return (OtpErlangList) res;
+            }
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+        }
+        return null;
+    }
+
+    /**
+     * Fetch a part of a big value, see {@link #getFrameBindings}.
+     *
+     * @param path
+     *            the indexes of the elements leading from the variable to the
+     *            value
+     * @return {binary, Bytes} or {terms, Values}, null if it failed
+     */
+    @SuppressWarnings("boxing")
+    public static OtpErlangTuple getValueSlice(final IRpcSite backend,
+            final OtpErlangPid meta, final int stackFrameNo, final String name,
+            final List<Integer> path, final int offset, final int length) {
+        try {
+            final OtpErlangObject res = backend.call(ERLIDE_DEBUG, "value_slice",
+                    "xialiii", meta, stackFrameNo, name, path, offset, length);
+            if (res instanceof OtpErlangTuple) {
+                final OtpErlangTuple t = (OtpErlangTuple) res;
+                if (!ERROR.equals(t.elementAt(0))) {
+                    return t;
+                }
+                ErlLogger.warn("could not fetch %s%s: %s", name, path, t.elementAt(1));
+            }
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+        }
+        return null;
+    }
+
     public static List<String> getAllModulesOnStack(final IRpcSite backend,
             final OtpErlangPid meta) {
         try {
@@ -311,6 +512,7 @@ public class ErlideDebug {
     }
 
     public static final OtpErlangAtom OK = new OtpErlangAtom("ok");
+    private static final OtpErlangAtom ERROR = new OtpErlangAtom("error");
 
     @SuppressWarnings("boxing")
     public static String setVariableValue(final IRpcSite backend, final String name,
@@ -14,12 +14,29 @@ public class NewStatusEvent extends IntEvent {
         super(cmds);
     }
 
+    public OtpErlangPid getPid() {
+        return (OtpErlangPid) cmds[1];
+    }
+
+    public String getStatus() {
+        return ((OtpErlangAtom) cmds[2]).atomValue();
+    }
+
+    /**
+     * Only these statuses fire resume, suspend or terminate events, which the
+     * debug model has to see even if a newer status follows. The others just
+     * set the status and can be replaced by the newer one.
+     */
+    public boolean firesEvent() {
+        final String status = getStatus();
+        return status.equals("break") || status.equals("exit")
+                || status.equals("running");
+    }
+
     @Override
     public void execute(final ErlangDebugTarget debugTarget) {
-        final OtpErlangPid pid = (OtpErlangPid) cmds[1];
-        final ErlangProcess erlangProcess = debugTarget.getOrCreateErlangProcess(pid);
-        final OtpErlangAtom sa = (OtpErlangAtom) cmds[2];
-        final String status = sa.atomValue();
+        final ErlangProcess erlangProcess = debugTarget.getOrCreateErlangProcess(getPid());
+        final String status = getStatus();
         if (status.equals("break")) {
             handleBreakStatus(erlangProcess, status);
         } else if (status.equals("exit")) {
@@ -25,14 +25,17 @@ import java.util.TreeMap;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IMarkerDelta;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IContributor;
 import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
@@ -52,6 +55,7 @@ import org.erlide.backend.internal.BeamUtil;
 import org.erlide.runtime.api.ErlDebugFlags;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.IDisposable;
+import org.erlide.util.MessageReporter;
 import org.erlide.util.erlang.OtpErlang;
 import org.osgi.framework.Bundle;
 
@@ -455,13 +459,52 @@ public class ErlangDebugTarget extends ErlangDebugElement implements IDebugTarge
 
     public void interpretModules(final Collection<String> modules,
             final boolean distributed) {
+        final List<String> moduleNames = new ArrayList<String>(modules.size());
         for (final String pm : modules) {
             final String[] pms = pm.split(":");
-            final IProject project = ResourcesPlugin.getWorkspace().getRoot()
-                    .getProject(pms[0]);
-            final String moduleName = pms[1].replace(".erl", "");
-            interpret(project, moduleName, distributed, true);
+            moduleNames.add(pms[1].replace(".erl", ""));
         }
+        ErlLogger.debug("interpret " + moduleNames);
+        if (moduleNames.isEmpty()) {
+            return;
+        }
+        final Job job = new Job("Interpreting modules") {
+            @Override
+            protected IStatus run(final IProgressMonitor monitor) {
+                monitor.beginTask("Interpreting modules", moduleNames.size());
+                try {
+                    final Map<String, String> failed = ErlideDebug.interpret(
+                            backend.getRpcSite(), moduleNames, distributed, true,
+                            monitor);
+                    if (!failed.isEmpty()) {
+                        reportInterpretFailures(failed);
+                    }
+                } finally {
+                    monitor.done();
+                }
+                return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+            }
+        };
+        job.setPriority(Job.SHORT);
+        job.schedule();
+        // the modules have to be interpreted before the launch goes on
+        try {
+            job.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reportInterpretFailures(final Map<String, String> failed) {
+        ErlLogger.warn("Could not interpret modules %s", failed.keySet());
+        final StringBuilder details = new StringBuilder();
+        for (final Map.Entry<String, String> entry : failed.entrySet()) {
+            details.append(entry.getKey()).append(": ").append(entry.getValue())
+                    .append('\n');
+        }
+        MessageReporter.showError(String.format(
+                "Could not interpret %d module(s) for debugging on %s",
+                failed.size(), backend.getName()), details.toString());
     }
 
     public void interpret(final IProject project, final String moduleName,
@@ -200,7 +200,7 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
     }
 
     public void getStackAndBindings(final String module, final int line) {
-        final OtpErlangTuple stackAndBindings = ErlideDebug.getAllStackframes(
+        final OtpErlangTuple stackAndBindings = ErlideDebug.getStackFrames(
                 fBackend.getRpcSite(), getMeta());
         if (stackAndBindings == null) {
             ErlLogger.warn("could not retrieve stack -"
@@ -217,8 +217,8 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
             el0 = t.elementAt(0);
         }
         final OtpErlangList erlStackFrames = (OtpErlangList) el0;
-        final OtpErlangList bs = (OtpErlangList) stackAndBindings.elementAt(1);
-        setStackFrames(module, line, erlStackFrames, bs);
+        // the bindings are fetched by the frames when shown
+        setStackFrames(module, line, erlStackFrames, null);
         if (savedStackTrace instanceof OtpErlangTuple) {
             addStackTrace((OtpErlangTuple) savedStackTrace);
         }
@@ -256,6 +256,11 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
         stackFrames = new ArrayList<IStackFrame>();
     }
 
+    /**
+     * @param bs
+     *            the current bindings, null if the frames are to fetch their
+     *            bindings from the backend
+     */
     public void setStackFrames(final String module, final int line,
             final OtpErlangList erlStackFrames, final OtpErlangList bs) {
         stackFrames = new ArrayList<IStackFrame>();
@@ -281,7 +286,8 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
             }
             final OtpErlangAtom m = (OtpErlangAtom) mfa0;
             final OtpErlangLong l = (OtpErlangLong) t.elementAt(1);
-            final OtpErlangList bindings = (OtpErlangList) t.elementAt(2);
+            final OtpErlangList bindings = bs == null ? null : (OtpErlangList) t
+                    .elementAt(2);
             final OtpErlangLong n = (OtpErlangLong) t.elementAt(3);
             int lin;
             try {
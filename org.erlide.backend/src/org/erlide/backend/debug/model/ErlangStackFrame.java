@@ -11,6 +11,7 @@
 package org.erlide.backend.debug.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.debug.core.DebugException;
@@ -20,6 +21,7 @@ import org.eclipse.debug.core.model.IRegisterGroup;
 import org.eclipse.debug.core.model.IStackFrame;
 import org.eclipse.debug.core.model.IThread;
 import org.eclipse.debug.core.model.IVariable;
+import org.erlide.backend.debug.ErlideDebug;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.erlang.ErlangFunction;
@@ -40,10 +42,17 @@ public class ErlangStackFrame extends ErlangDebugElement implements IStackFrame,
     private final String fModuleName;
     private final ErlangProcess fParent;
     private final int fLineNumber;
-    List<ErlangVariable> bindings;
+    // null if they are to be fetched from the backend
+    private final OtpErlangList erlBindings;
+    private List<ErlangVariable> bindings;
     int stackFrameNo;
     private String clauseHead;
 
+    /**
+     * @param bindings
+     *            the frame's bindings, or null to fetch them when they are
+     *            first needed
+     */
     public ErlangStackFrame(final String moduleName, final ErlangProcess parent,
             final IDebugTarget target, final int lineNumber0,
             final ErlangFunction function, final OtpErlangList bindings,
@@ -52,23 +61,7 @@ public class ErlangStackFrame extends ErlangDebugElement implements IStackFrame,
         fParent = parent;
         fModuleName = moduleName;
         this.stackFrameNo = stackFrameNo;
-        final List<ErlangVariable> framesReversed = new ArrayList<ErlangVariable>(
-                bindings.arity());
-        for (final OtpErlangObject o : bindings) {
-            if (o instanceof OtpErlangTuple) {
-                final OtpErlangTuple t = (OtpErlangTuple) o;
-                final OtpErlangAtom nameA = (OtpErlangAtom) t.elementAt(0);
-                final OtpErlangObject value = t.elementAt(1);
-                framesReversed.add(new ErlangVariable(target, nameA.atomValue(), false,
-                        value, parent, moduleName, stackFrameNo));
-            }
-        }
-        final List<ErlangVariable> frames = new ArrayList<ErlangVariable>(
-                framesReversed.size());
-        for (int i = framesReversed.size() - 1; i >= 0; --i) {
-            frames.add(framesReversed.get(i));
-        }
-        this.bindings = frames;
+        erlBindings = bindings;
         IErlModule module;
         try {
             module = ErlangEngine.getInstance().getModel().findModule(moduleName);
@@ -111,10 +104,44 @@ public class ErlangStackFrame extends ErlangDebugElement implements IStackFrame,
     }
 
     @Override
-    public IVariable[] getVariables() throws DebugException {
+    public synchronized IVariable[] getVariables() throws DebugException {
+        if (bindings == null) {
+            bindings = createVariables();
+        }
         return bindings.toArray(new IVariable[bindings.size()]);
     }
 
+    private List<ErlangVariable> createVariables() {
+        final IDebugTarget target = getDebugTarget();
+        final boolean fetched = erlBindings == null;
+        final OtpErlangList list = fetched ? ErlideDebug.getFrameBindings(
+                getErlangDebugTarget().getBackend().getRpcSite(), fParent.getMeta(),
+                stackFrameNo) : erlBindings;
+        if (list == null) {
+            return new ArrayList<ErlangVariable>();
+        }
+        final List<ErlangVariable> result = new ArrayList<ErlangVariable>(list.arity());
+        for (int i = list.arity() - 1; i >= 0; --i) {
+            final OtpErlangObject o = list.elementAt(i);
+            if (o instanceof OtpErlangTuple) {
+                final OtpErlangTuple t = (OtpErlangTuple) o;
+                final String name = ((OtpErlangAtom) t.elementAt(0)).atomValue();
+                final OtpErlangObject value = t.elementAt(1);
+                if (fetched) {
+                    final ErlangValue v = RemoteErlangValue.create(target, name, value,
+                            fParent, fModuleName, stackFrameNo, name,
+                            Collections.<Integer> emptyList());
+                    result.add(new ErlangVariable(target, name, false, v, fParent,
+                            stackFrameNo));
+                } else {
+                    result.add(new ErlangVariable(target, name, false, value, fParent,
+                            fModuleName, stackFrameNo));
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean hasVariables() throws DebugException {
         return true;
@@ -35,23 +35,29 @@ public class ErlangVariable extends ErlangDebugElement implements IVariable {
     public ErlangVariable(final IDebugTarget target, final String name,
             final boolean subVariable, final OtpErlangObject value,
             final ErlangProcess process, final String moduleName, final int stackFrameNo) {
+        this(target, name, subVariable, createErlangValue(target, name, value, process,
+                moduleName), process, stackFrameNo);
+    }
+
+    public ErlangVariable(final IDebugTarget target, final String name,
+            final boolean subVariable, final ErlangValue value,
+            final ErlangProcess process, final int stackFrameNo) {
         super(target);
         this.name = name;
         this.subVariable = subVariable;
-        this.value = createErlangValue(name, value, process, moduleName);
+        this.value = value;
         this.process = process;
         this.stackFrameNo = stackFrameNo;
     }
 
-    private ErlangValue createErlangValue(final String aname,
-            final OtpErlangObject avalue, final ErlangProcess aprocess,
-            final String moduleName) {
+    static ErlangValue createErlangValue(final IDebugTarget target,
+            final String aname, final OtpErlangObject avalue,
+            final ErlangProcess aprocess, final String moduleName) {
         if (avalue instanceof OtpErlangList || avalue instanceof OtpErlangTuple
                 || avalue instanceof OtpErlangBinary || avalue instanceof OtpErlangString) {
-            return new IndexedErlangValue(getDebugTarget(), aname, avalue, aprocess,
-                    moduleName);
+            return new IndexedErlangValue(target, aname, avalue, aprocess, moduleName);
         }
-        return new ErlangValue(getDebugTarget(), aname, avalue, aprocess, moduleName);
+        return new ErlangValue(target, aname, avalue, aprocess, moduleName);
     }
 
     @Override
@@ -88,9 +94,11 @@ public class ErlangVariable extends ErlangDebugElement implements IVariable {
         final String err = ErlideDebug.setVariableValue(edt.getBackend().getRpcSite(),
                 name, expression, stackFrameNo - 1, process.getMeta());
         if (err != null) {
-            // restore old value
-            ErlideDebug.setVariableValue(edt.getBackend().getRpcSite(), name,
-                    value.toString(), stackFrameNo - 1, process.getMeta());
+            // restore old value, unless we only have a preview of it
+            if (!(value instanceof RemoteErlangValue)) {
+                ErlideDebug.setVariableValue(edt.getBackend().getRpcSite(), name,
+                        value.toString(), stackFrameNo - 1, process.getMeta());
+            }
             throw new DebugException(new Status(IStatus.ERROR, BackendPlugin.PLUGIN_ID,
                     DebugException.TARGET_REQUEST_FAILED, "Bad expression", null));
         }
@@ -6,6 +6,7 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -37,10 +38,13 @@ import com.google.common.collect.Lists;
 
 public class IndexedErlangValue extends ErlangValue implements IIndexedValue {
     private static final List<IErlElement> EMPTY_LIST = Lists.newArrayList();
+    private static final int MAX_PREVIEW_BYTES = 1024;
 
     // FIXME JC Maybe we should use polymorphism for records?
     protected IErlRecordDef record; // set if this value is a record
-    protected OtpErlangList list; // set if this value is a string-coded list
+    // set if this value is a string-coded list, computed when first needed
+    private OtpErlangList list;
+    private boolean listChecked;
 
     // TODO not for regular lists too?
 
@@ -49,7 +53,14 @@ public class IndexedErlangValue extends ErlangValue implements IIndexedValue {
             final String moduleName) {
         super(target, varName, value, process, moduleName);
         record = checkRecord(value);
-        list = checkList(value);
+    }
+
+    protected synchronized OtpErlangList getList() {
+        if (!listChecked) {
+            list = checkList(value);
+            listChecked = true;
+        }
+        return list;
     }
 
     private OtpErlangList checkList(final OtpErlangObject theValue) {
@@ -158,8 +169,8 @@ public class IndexedErlangValue extends ErlangValue implements IIndexedValue {
     public String getValueString() throws DebugException {
         if (record != null) {
             return getRecordValueString(record, value);
-        } else if (list != null) {
-            return getListValueString(list);
+        } else if (getList() != null) {
+            return getListValueString(getList());
         } else {
             return getValueString(value, false);
         }
@@ -237,7 +248,9 @@ public class IndexedErlangValue extends ErlangValue implements IIndexedValue {
     private static String getBinaryValueString(final OtpErlangBinary b) {
         final StringBuilder sb = new StringBuilder("<<");
         if (b.size() > 0) {
-            final byte[] bytes = b.binaryValue();
+            // the whole content can be seen in the elements
+            final byte[] bytes = b.size() > MAX_PREVIEW_BYTES ? Arrays.copyOf(
+                    b.binaryValue(), MAX_PREVIEW_BYTES) : b.binaryValue();
             CharBuffer cb = null;
             if (looksLikeAscii(bytes)) {
                 final Charset[] css = { Charsets.UTF_8, Charsets.ISO_8859_1 };
@@ -267,6 +280,9 @@ public class IndexedErlangValue extends ErlangValue implements IIndexedValue {
                     }
                 }
             }
+            if (b.size() > MAX_PREVIEW_BYTES) {
+                sb.append("...");
+            }
         }
         sb.append(">>");
         return sb.toString();
@@ -301,8 +317,8 @@ public class IndexedErlangValue extends ErlangValue implements IIndexedValue {
                 j += 256;
             }
             return new OtpErlangLong(j);
-        } else if (list != null) {
-            return list.elementAt(index);
+        } else if (getList() != null) {
+            return getList().elementAt(index);
         }
         return null;
     }
@@ -317,8 +333,8 @@ public class IndexedErlangValue extends ErlangValue implements IIndexedValue {
         } else if (value instanceof OtpErlangBinary) {
             final OtpErlangBinary bs = (OtpErlangBinary) value;
             return bs.size();
-        } else if (list != null) {
-            return list.arity();
+        } else if (getList() != null) {
+            return getList().arity();
         } else {
             return -1;
         }
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.backend.debug.model;
+
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IDebugTarget;
+import org.eclipse.debug.core.model.IIndexedValue;
+import org.eclipse.debug.core.model.IVariable;
+import org.erlide.backend.debug.ErlideDebug;
+import org.erlide.backend.internal.BackendPlugin;
+import org.erlide.util.Util;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangRangeException;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * A value too big to be sent whole by the backend. Only its size and a preview
+ * are known, its elements are fetched in chunks when they are shown.
+ */
+public class RemoteErlangValue extends ErlangValue implements IIndexedValue {
+    private static final int CHUNK_SIZE = 100;
+    private static final OtpErlangAtom VALUE = new OtpErlangAtom("value");
+    private static final OtpErlangAtom BINARY = new OtpErlangAtom("binary");
+
+    private final int stackFrameNo;
+    private final String variable;
+    private final List<Integer> path;
+    private final String kind;
+    private final int size;
+    private final String preview;
+    private final Map<Integer, IVariable[]> chunks = Maps.newHashMap();
+
+    private RemoteErlangValue(final IDebugTarget target, final String varName,
+            final ErlangProcess process, final String moduleName,
+            final int stackFrameNo, final String variable, final List<Integer> path,
+            final String kind, final int size, final String preview) {
+        super(target, varName, null, process, moduleName);
+        this.stackFrameNo = stackFrameNo;
+        this.variable = variable;
+        this.path = path;
+        this.kind = kind;
+        this.size = size;
+        this.preview = preview;
+    }
+
+    /**
+     * @param summary
+     *            the value as sent by the backend, {value, Term} or {large,
+     *            Kind, Size, Preview}
+     * @param variable
+     *            the variable of the stack frame that holds the value
+     * @param path
+     *            the indexes of the elements leading from the variable to the
+     *            value
+     */
+    public static ErlangValue create(final IDebugTarget target, final String varName,
+            final OtpErlangObject summary, final ErlangProcess process,
+            final String moduleName, final int stackFrameNo, final String variable,
+            final List<Integer> path) {
+        final OtpErlangTuple t = (OtpErlangTuple) summary;
+        if (VALUE.equals(t.elementAt(0))) {
+            return ErlangVariable.createErlangValue(target, varName, t.elementAt(1),
+                    process, moduleName);
+        }
+        final String kind = ((OtpErlangAtom) t.elementAt(1)).atomValue();
+        int size;
+        try {
+            size = ((OtpErlangLong) t.elementAt(2)).intValue();
+        } catch (final OtpErlangRangeException e) {
+            size = Integer.MAX_VALUE;
+        }
+        return new RemoteErlangValue(target, varName, process, moduleName,
+                stackFrameNo, variable, path, kind, size, Util.stringValue(t
+                        .elementAt(3)));
+    }
+
+    @Override
+    public String getReferenceTypeName() throws DebugException {
+        return kind;
+    }
+
+    @Override
+    public String getValueString() throws DebugException {
+        final String unit = "binary".equals(kind) ? " bytes" : " elements";
+        return preview + " (" + size + unit + ")";
+    }
+
+    @Override
+    public boolean hasVariables() throws DebugException {
+        return size > 0;
+    }
+
+    @Override
+    public IVariable[] getVariables() throws DebugException {
+        return getVariables(0, size);
+    }
+
+    @Override
+    public int getInitialOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getSize() throws DebugException {
+        return size;
+    }
+
+    @Override
+    public IVariable getVariable(final int offset) throws DebugException {
+        return getVariables(offset, 1)[0];
+    }
+
+    @Override
+    public IVariable[] getVariables(final int offset, final int length)
+            throws DebugException {
+        final IVariable[] result = new IVariable[length];
+        int i = 0;
+        while (i < length) {
+            final int index = offset + i;
+            final IVariable[] chunk = getChunk(index / CHUNK_SIZE);
+            final int from = index % CHUNK_SIZE;
+            final int n = Math.min(chunk.length - from, length - i);
+            if (n <= 0) {
+                throw new DebugException(new Status(IStatus.ERROR,
+                        BackendPlugin.PLUGIN_ID, DebugException.TARGET_REQUEST_FAILED,
+                        "No element " + index + " in " + varName, null));
+            }
+            System.arraycopy(chunk, from, result, i, n);
+            i += n;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("boxing")
+    private synchronized IVariable[] getChunk(final int chunkNo) throws DebugException {
+        IVariable[] chunk = chunks.get(chunkNo);
+        if (chunk == null) {
+            chunk = fetch(chunkNo * CHUNK_SIZE);
+            chunks.put(chunkNo, chunk);
+        }
+        return chunk;
+    }
+
+    @SuppressWarnings("boxing")
+    private IVariable[] fetch(final int offset) throws DebugException {
+        final ErlangDebugTarget target = getErlangDebugTarget();
+        final OtpErlangTuple slice = ErlideDebug.getValueSlice(target.getBackend()
+                .getRpcSite(), process.getMeta(), stackFrameNo, variable, path, offset,
+                CHUNK_SIZE);
+        if (slice == null) {
+            throw new DebugException(new Status(IStatus.ERROR, BackendPlugin.PLUGIN_ID,
+                    DebugException.TARGET_REQUEST_FAILED, "Could not fetch " + varName,
+                    null));
+        }
+        if (BINARY.equals(slice.elementAt(0))) {
+            final byte[] bytes = ((OtpErlangBinary) slice.elementAt(1)).binaryValue();
+            final IVariable[] result = new IVariable[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                result[i] = new ErlangVariable(target, varName + ":" + (offset + i),
+                        true, new OtpErlangLong(bytes[i] & 0xff), process, moduleName,
+                        -1);
+            }
+            return result;
+        }
+        final OtpErlangList terms = (OtpErlangList) slice.elementAt(1);
+        final IVariable[] result = new IVariable[terms.arity()];
+        for (int i = 0; i < result.length; i++) {
+            final String name = varName + ":" + (offset + i);
+            final List<Integer> elementPath = ImmutableList.<Integer> builder()
+                    .addAll(path).add(offset + i).build();
+            final ErlangValue value = create(target, name, terms.elementAt(i), process,
+                    moduleName, stackFrameNo, variable, elementPath);
+            result[i] = new ErlangVariable(target, name, true, value, process, -1);
+        }
+        return result;
+    }
+
+    /**
+     * Only a preview of the value, it can't be used to set it back.
+     */
+    @Override
+    public String toString() {
+        return preview;
+    }
+}
@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.util.Collection;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.runtime.Path;
 import org.eclipse.debug.core.DebugEvent;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.DebugPlugin;
@@ -50,7 +49,6 @@ import org.erlide.runtime.shell.IoRequest.IoRequestKind;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.SystemConfiguration;
 
-import com.ericsson.otp.erlang.OtpErlangBinary;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.google.common.collect.Lists;
 
@@ -359,24 +357,9 @@ public abstract class Backend implements IStreamListener, IBackend {
     private void loadBeamsFromDir(final String outDir) {
         final File dir = new File(outDir);
         if (dir.isDirectory()) {
-            for (final File f : dir.listFiles()) {
-                final Path path = new Path(f.getPath());
-                if (path.getFileExtension() != null
-                        && "beam".compareTo(path.getFileExtension()) == 0) {
-                    final String m = path.removeFileExtension().lastSegment();
-                    try {
-                        boolean ok = false;
-                        final OtpErlangBinary bin = BeamUtil.getBeamBinary(m, path);
-                        if (bin != null) {
-                            ok = BeamLoader.loadBeam(getRpcSite(), m, bin);
-                        }
-                        if (!ok) {
-                            ErlLogger.error("Could not load %s", m);
-                        }
-                    } catch (final Exception ex) {
-                        ErlLogger.warn(ex);
-                    }
-                }
+            for (final String m : BeamLoader.loadBeams(getRpcSite(),
+                    BeamUtil.getBeamsInDir(dir))) {
+                ErlLogger.error("Could not load %s", m);
             }
         }
     }
@@ -11,6 +11,7 @@ import java.net.URLConnection;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.internal.runtime.Activator;
 import org.eclipse.core.runtime.IConfigurationElement;
@@ -23,6 +24,8 @@ import org.osgi.framework.Bundle;
 
 import com.ericsson.otp.erlang.OtpErlangBinary;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
 
 @SuppressWarnings("restriction")
 public class BeamUtil {
@@ -74,6 +77,28 @@ public class BeamUtil {
         }
     }
 
+    /**
+     * @return the contents of the beam files in the directory, by module name
+     */
+    public static Map<String, byte[]> getBeamsInDir(final File dir) {
+        final Map<String, byte[]> result = Maps.newHashMap();
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return result;
+        }
+        for (final File f : files) {
+            final String module = BackendUtils.getBeamModuleName(f.getName());
+            if (module != null) {
+                try {
+                    result.put(module, Files.toByteArray(f));
+                } catch (final IOException e) {
+                    ErlLogger.warn(e);
+                }
+            }
+        }
+        return result;
+    }
+
     public static Collection<String> getPathsFromBundleAndFragments(final String name,
             final Bundle b) {
         final List<String> result = Lists.newArrayList();
@@ -10,11 +10,12 @@
  *******************************************************************************/
 package org.erlide.backend.internal;
 
-import java.net.URL;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.erlide.backend.BackendUtils;
 import org.erlide.backend.api.ICodeBundle;
@@ -25,7 +26,7 @@ import org.erlide.runtime.api.RuntimeUtils;
 import org.erlide.runtime.runtimeinfo.RuntimeVersion;
 import org.erlide.util.ErlLogger;
 
-import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.google.common.collect.Maps;
 
 public class CodeManager {
 
@@ -73,6 +74,7 @@ public class CodeManager {
             ErlLogger.warn("Could not find 'ebin' in bundle %s.", bundle.getBundle());
             return;
         }
+        final Map<String, byte[]> beams = Maps.newHashMap();
         for (final String ebinDir : ebinDirs) {
             final String localDir = ebinDir.replaceAll("\\\\", "/");
             final boolean accessible = RuntimeUtils.isAccessibleDir(site, localDir);
@@ -80,8 +82,13 @@ public class CodeManager {
             if (accessible && !embedded) {
                 ErlangCode.addPathA(site, localDir);
             } else {
-                ErlLogger.debug("loading %s for %s", bundle.getBundle(), backendName);
-                loadCodeForBundle(context, bundle);
+                beams.putAll(BeamUtil.getBeamsInDir(new File(ebinDir)));
+            }
+        }
+        if (!beams.isEmpty()) {
+            ErlLogger.debug("loading %s for %s", bundle.getBundle(), backendName);
+            for (final String module : BeamLoader.loadBeams(site, beams)) {
+                ErlLogger.error("Could not load %s", module);
             }
         }
     }
@@ -94,42 +101,21 @@ public class CodeManager {
         unloadCodeForBundle(context, bundle);
     }
 
-    private boolean loadBeam(final String moduleName, final URL beamPath) {
-        final OtpErlangBinary bin = BeamUtil.getBeamBinary(moduleName, beamPath);
-        if (bin == null) {
-            return false;
-        }
-        return BeamLoader.loadBeam(site, moduleName, bin);
-    }
-
-    private void loadCodeForBundle(final CodeContext context, final ICodeBundle bundle) {
-        final Collection<String> ebinDirs = bundle.getEbinDirs(context);
-        if (ebinDirs == null) {
-            return;
-        }
-        for (final String ebinDir : ebinDirs) {
-            final String beamModuleName = BackendUtils.getBeamModuleName(ebinDir);
-            if (beamModuleName != null) {
-                // ErlLogger.debug(" load " + beamModuleName);
-                final boolean ok = loadBeam(beamModuleName,
-                        bundle.getBundle().getEntry(ebinDir));
-                if (!ok) {
-                    ErlLogger.error("Could not load %s", beamModuleName);
-                }
-            }
-        }
-    }
-
     private void unloadCodeForBundle(final CodeContext context, final ICodeBundle bundle) {
         final Collection<String> ebinDirs = bundle.getEbinDirs(context);
         if (ebinDirs == null) {
             return;
         }
         for (final String ebinDir : ebinDirs) {
-            final String beamModuleName = BackendUtils.getBeamModuleName(ebinDir);
-            if (beamModuleName != null) {
-                // ErlLogger.debug(" unload " + beamModuleName);
-                unloadBeam(beamModuleName);
+            final String[] files = new File(ebinDir).list();
+            if (files == null) {
+                continue;
+            }
+            for (final String file : files) {
+                final String beamModuleName = BackendUtils.getBeamModuleName(file);
+                if (beamModuleName != null) {
+                    unloadBeam(beamModuleName);
+                }
             }
         }
     }
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.benchmarks;
+
+/**
+ * One measured operation. {@link #run()} is called repeatedly; its result is
+ * consumed by the runner so that the work can't be optimized away.
+ */
+public abstract class Benchmark {
+
+    private final String name;
+
+    protected Benchmark(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public abstract Object run() throws Exception;
+
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.benchmarks;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Runs the benchmarks headlessly and compares them with a baseline.
+ *
+ * <pre>
+ * BenchmarkRunner [-baseline file] [-write file] [-time ms] [-threshold pct] [prefix...]
+ * </pre>
+ *
+ * Each benchmark is warmed up, then measured in a few timed iterations; the
+ * reported value is the median time per operation, in nanoseconds. Against a
+ * baseline, a benchmark slower by more than the threshold (default 20%) is a
+ * regression and makes the runner exit with status 1. <code>-write</code>
+ * saves the results in the baseline format.
+ */
+public class BenchmarkRunner {
+
+    private static final int ITERATIONS = 5;
+
+    // results are folded in here so that the JIT can't drop the work
+    static volatile int sink;
+
+    public static void main(final String[] args) throws Exception {
+        String baselineFile = null;
+        String writeFile = null;
+        long time = 1000;
+        double threshold = 20;
+        final List<String> prefixes = Lists.newArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if ("-baseline".equals(args[i])) {
+                baselineFile = args[++i];
+            } else if ("-write".equals(args[i])) {
+                writeFile = args[++i];
+            } else if ("-time".equals(args[i])) {
+                time = Long.parseLong(args[++i]);
+            } else if ("-threshold".equals(args[i])) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                prefixes.add(args[i]);
+            }
+        }
+
+        final Properties baseline = new Properties();
+        if (baselineFile != null) {
+            load(baseline, baselineFile);
+        }
+        final Properties results = new Properties();
+        int regressions = 0;
+
+        System.out.format("%-32s %14s %14s %8s%n", "benchmark", "ns/op", "baseline",
+                "change");
+        for (final Benchmark b : all()) {
+            if (!selected(b.getName(), prefixes)) {
+                continue;
+            }
+            final double nanos = measure(b, time);
+            // the baseline is read back with Double.parseDouble
+            results.setProperty(b.getName(),
+                    String.format(Locale.ROOT, "%.1f", nanos));
+
+            final String base = baseline.getProperty(b.getName());
+            if (base == null) {
+                System.out.format("%-32s %14.1f%n", b.getName(), nanos);
+                continue;
+            }
+            final double baseNanos = Double.parseDouble(base);
+            final double change = (nanos - baseNanos) * 100 / baseNanos;
+            final boolean regressed = change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.format("%-32s %14.1f %14.1f %+7.1f%%%s%n", b.getName(), nanos,
+                    baseNanos, change, regressed ? "  REGRESSION" : "");
+        }
+
+        if (writeFile != null) {
+            store(results, writeFile);
+        }
+        if (regressions > 0) {
+            System.out.format("%d regression(s) over %.0f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    public static List<Benchmark> all() throws Exception {
+        final List<Benchmark> result = Lists.newArrayList();
+        result.addAll(CodecBenchmarks.all());
+        result.addAll(ConversionBenchmarks.all());
+        result.addAll(ParsingBenchmarks.all());
+        return result;
+    }
+
+    private static boolean selected(final String name, final List<String> prefixes) {
+        if (prefixes.isEmpty()) {
+            return true;
+        }
+        for (final String p : prefixes) {
+            if (name.startsWith(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return the median time per operation, in nanoseconds */
+    static double measure(final Benchmark b, final long millis) throws Exception {
+        // warm up for as long as one measurement
+        runFor(b, millis);
+        final double[] times = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            times[i] = runFor(b, millis);
+        }
+        Arrays.sort(times);
+        return times[ITERATIONS / 2];
+    }
+
+    private static double runFor(final Benchmark b, final long millis)
+            throws Exception {
+        final long duration = millis * 1000000;
+        final long start = System.nanoTime();
+        long now;
+        long ops = 0;
+        int h = 0;
+        do {
+            for (int i = 0; i < 16; i++) {
+                final Object r = b.run();
+                h += r == null ? 0 : System.identityHashCode(r);
+            }
+            ops += 16;
+            now = System.nanoTime();
+        } while (now - start < duration);
+        sink += h;
+        return (double) (now - start) / ops;
+    }
+
+    private static void load(final Properties props, final String file)
+            throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void store(final Properties props, final String file)
+            throws IOException {
+        // sorted, so that baselines diff well
+        final PrintStream out = new PrintStream(new FileOutputStream(file), false,
+                "ISO-8859-1");
+        try {
+            out.format("# ns/op, written by %s on java %s, %s, %d cpus%n",
+                    BenchmarkRunner.class.getName(), System.getProperty("java.version"),
+                    System.getProperty("os.arch"), Runtime.getRuntime()
+                            .availableProcessors());
+            for (final String name : Sets.newTreeSet(props.stringPropertyNames())) {
+                out.format("%s=%s%n", name, props.getProperty(name));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+}
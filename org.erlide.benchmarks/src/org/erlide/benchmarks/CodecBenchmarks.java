@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.benchmarks;
+
+import java.util.List;
+
+import org.erlide.util.erlang.TypeConverter;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.collect.Lists;
+
+/**
+ * Encoding and decoding of terms with {@link OtpOutputStream} and
+ * {@link OtpInputStream}.
+ */
+public final class CodecBenchmarks {
+
+    private CodecBenchmarks() {
+    }
+
+    public static List<Benchmark> all() throws Exception {
+        final List<Benchmark> result = Lists.newArrayList();
+        add(result, "tokens", Payloads.scannerReply(2000));
+        add(result, "proposals", Payloads.proposals(200));
+        add(result, "paths", TypeConverter.java2erlang(Payloads.paths(500), "ls"));
+        add(result, "source", Payloads.sourceArgs(1000));
+        return result;
+    }
+
+    private static void add(final List<Benchmark> result, final String name,
+            final OtpErlangObject term) {
+        final byte[] encoded = new OtpOutputStream(term).toByteArray();
+        result.add(new Benchmark("codec.encode." + name) {
+            @Override
+            public Object run() {
+                final OtpOutputStream out = new OtpOutputStream();
+                out.write_any(term);
+                return out.size();
+            }
+        });
+        result.add(new Benchmark("codec.decode." + name) {
+            @Override
+            public Object run() throws Exception {
+                return new OtpInputStream(encoded, 0).read_any();
+            }
+        });
+    }
+
+}
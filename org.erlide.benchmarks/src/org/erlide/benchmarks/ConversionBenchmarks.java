@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.benchmarks;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.erlide.util.erlang.Signature;
+import org.erlide.util.erlang.SignatureCodec;
+import org.erlide.util.erlang.TypeConverter;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.google.common.collect.Lists;
+
+/**
+ * Conversions between Java values and Erlang terms, as done for RPC arguments
+ * and results.
+ */
+public final class ConversionBenchmarks {
+
+    private ConversionBenchmarks() {
+    }
+
+    public static List<Benchmark> all() throws Exception {
+        final List<Benchmark> result = Lists.newArrayList();
+
+        final List<String> paths = Payloads.paths(500);
+        final String source = Payloads.source(1000);
+        final Object[] args = { "module_name", 42, source, paths, true };
+        final Signature[] signature = Signature.parse("aiblso");
+
+        result.add(new Benchmark("convert.java2erlang.paths") {
+            @Override
+            public Object run() throws Exception {
+                return TypeConverter.java2erlang(paths, "ls");
+            }
+        });
+        result.add(new Benchmark("convert.java2erlang.args") {
+            @Override
+            public Object run() throws Exception {
+                final OtpErlangObject[] res = new OtpErlangObject[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    res[i] = TypeConverter.java2erlang(args[i], signature[i]);
+                }
+                return res;
+            }
+        });
+
+        final SignatureCodec codec = SignatureCodec.forSignature("aiblso");
+        result.add(new Benchmark("convert.codec.args") {
+            @Override
+            public Object run() throws Exception {
+                return codec.encode(args);
+            }
+        });
+
+        final OtpErlangObject erlPaths = TypeConverter.java2erlang(paths, "ls");
+        result.add(new Benchmark("convert.erlang2java.paths") {
+            @Override
+            public Object run() throws Exception {
+                return TypeConverter.erlang2java(erlPaths, Collection.class);
+            }
+        });
+        final OtpErlangObject erlSource = TypeConverter.java2erlang(source, "s");
+        result.add(new Benchmark("convert.erlang2java.string") {
+            @Override
+            public Object run() throws Exception {
+                return TypeConverter.erlang2java(erlSource, String.class);
+            }
+        });
+
+        result.add(new Benchmark("convert.signature.parse") {
+            @Override
+            public Object run() throws Exception {
+                return Signature.parse("aiblso");
+            }
+        });
+        return result;
+    }
+
+}
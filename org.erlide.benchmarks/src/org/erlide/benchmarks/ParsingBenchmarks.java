@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.benchmarks;
+
+import java.util.List;
+
+import org.erlide.engine.services.parsing.ErlLexer;
+import org.erlide.engine.services.parsing.ErlToken;
+import org.erlide.util.erlang.ErlUtils;
+import org.erlide.util.erlang.TermParser;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Parsing of term text, decoding of scanner results and scanning of source.
+ */
+public final class ParsingBenchmarks {
+
+    private ParsingBenchmarks() {
+    }
+
+    public static List<Benchmark> all() throws Exception {
+        final List<Benchmark> result = Lists.newArrayList();
+
+        final StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            b.append(i == 0 ? "" : ",").append("{fun_").append(i).append(", ")
+                    .append(i % 5).append(", \"doc ").append(i).append("\", [a, b]}");
+        }
+        final String termText = b.append("]").toString();
+        final TermParser parser = TermParser.getParser();
+
+        // the parser caches its results, so vary the input to measure parsing
+        result.add(new Benchmark("parse.term") {
+            private int n = 0;
+
+            @Override
+            public Object run() throws Exception {
+                return parser.parse("{" + n++ + ", " + termText + "}");
+            }
+        });
+        result.add(new Benchmark("parse.format") {
+            @Override
+            public Object run() throws Exception {
+                return ErlUtils.format("{call, ~a, ~s, [~i, ~x]}", "erlide_model",
+                        "get_module", 42, "text");
+            }
+        });
+
+        final byte[] tokens = Payloads.lightScanTokens(2000);
+        result.add(new Benchmark("scanner.tokens.decode") {
+            @Override
+            public Object run() {
+                final List<ErlToken> toks = Lists.newArrayListWithCapacity(tokens.length / 10);
+                for (int i = 0; i < tokens.length; i += 10) {
+                    toks.add(new ErlToken(tokens, i, 0));
+                }
+                return toks;
+            }
+        });
+
+        final String source = Payloads.source(200);
+        result.add(new Benchmark("scanner.lexer.source") {
+            @Override
+            public Object run() {
+                return ErlLexer.scan(source, 0);
+            }
+        });
+        return result;
+    }
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+import org.erlide.engine.services.parsing.ErlToken;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
+
+/**
+ * Deterministic payloads shaped like the terms the IDE exchanges with the
+ * backend.
+ */
+public final class Payloads {
+
+    private Payloads() {
+    }
+
+    /** A source file of about the given number of lines. */
+    public static String source(final int lines) {
+        final StringBuilder b = new StringBuilder();
+        b.append("-module(bench).\n-export([f/2]).\n\n");
+        for (int i = 0; b.length() < lines * 40; i++) {
+            b.append("f").append(i).append("(X, [H | T]) when is_atom(H) ->\n");
+            b.append("    %% walk the list\n");
+            b.append("    {ok, lists:reverse([X, \"text\" | T]), ").append(i)
+                    .append(", 3.14};\n");
+            b.append("f").append(i).append("(_, []) -> ?MODULE.\n\n");
+        }
+        return b.toString();
+    }
+
+    /** The binary returned by erlide_scanner:light_scan_string/2. */
+    public static byte[] lightScanTokens(final int count) {
+        final byte[] bytes = new byte[count * 10];
+        int ofs = 0;
+        for (int i = 0; i < count; i++) {
+            final int p = i * 10;
+            final int len = 1 + i % 12;
+            bytes[p] = (byte) (i % (ErlToken.KIND_KEYWORD + 1));
+            put24(bytes, p + 1, i / 8);
+            put24(bytes, p + 4, ofs);
+            put24(bytes, p + 7, len);
+            ofs += len + 1;
+        }
+        return bytes;
+    }
+
+    private static void put24(final byte[] b, final int i, final int v) {
+        b[i] = (byte) (v >> 16);
+        b[i + 1] = (byte) (v >> 8);
+        b[i + 2] = (byte) v;
+    }
+
+    /** {ok, TokenBinary} */
+    public static OtpErlangObject scannerReply(final int count) {
+        return new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangAtom("ok"),
+                new OtpErlangBinary(lightScanTokens(count)) });
+    }
+
+    /** A completion reply: [{Name, Arity, [ArgName], Doc}] */
+    public static OtpErlangObject proposals(final int count) {
+        final List<OtpErlangObject> result = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            final int arity = i % 4;
+            final OtpErlangObject[] args = new OtpErlangObject[arity];
+            for (int j = 0; j < arity; j++) {
+                args[j] = new OtpErlangString("Arg" + j);
+            }
+            result.add(new OtpErlangTuple(new OtpErlangObject[] {
+                    new OtpErlangAtom("function_" + i), new OtpErlangLong(arity),
+                    new OtpErlangList(args),
+                    new OtpErlangString("Returns the " + i + "th element of the list.") }));
+        }
+        return new OtpErlangList(result.toArray(new OtpErlangObject[result.size()]));
+    }
+
+    /** A list of code path entries, as passed to the search server. */
+    public static List<String> paths(final int count) {
+        final List<String> result = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            result.add("/home/user/workspace/project" + i % 7 + "/src/module_" + i
+                    + ".erl");
+        }
+        return result;
+    }
+
+    /** A source file as sent to erlide_noparse: {Module, Binary} */
+    public static OtpErlangObject sourceArgs(final int lines) {
+        try {
+            return new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangAtom("bench"),
+                    new OtpErlangBinary(source(lines).getBytes("UTF-8")) });
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.erlide.core.builder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.erlide.engine.model.root.IErlProject;
+import org.erlide.test.support.ErlideTestUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+public class MarkerUtilsTest {
+
+    private static IErlProject project;
+
+    private IFile module;
+    private IFile header;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws CoreException {
+        ErlideTestUtils.initProjects();
+        final String name = "testprojectmarkers";
+        project = ErlideTestUtils.createProject(ErlideTestUtils.getTmpPath(name), name);
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws CoreException {
+        ErlideTestUtils.deleteProjects();
+    }
+
+    @Before
+    public void setUp() throws CoreException {
+        module = ErlideTestUtils.createFile("mu_a.erl", "-module(mu_a).\n",
+                project.getWorkspaceProject().getFolder("src"));
+        header = ErlideTestUtils.createFile("mu_a.hrl", "",
+                project.getWorkspaceProject().getFolder("include"));
+    }
+
+    @After
+    public void tearDown() throws CoreException {
+        MarkerUtils.deleteMarkers(module);
+        module.delete(true, null);
+        header.delete(true, null);
+    }
+
+    private static OtpErlangTuple message(final IResource file, final int line,
+            final String text) {
+        return new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangLong(line),
+                new OtpErlangString(file.getLocation().toString()),
+                new OtpErlangString(text), new OtpErlangLong(0) });
+    }
+
+    private void setErrors(final OtpErlangTuple... messages) {
+        MarkerUtils.setErrorMarkers(module, new OtpErlangList(messages));
+    }
+
+    private static List<IMarker> problems(final IResource resource) {
+        return Arrays.asList(MarkerUtils.getProblemsFor(resource));
+    }
+
+    @Test
+    public void unchangedProblemKeepsItsMarker() {
+        setErrors(message(module, 2, "one"), message(module, 3, "two"));
+        final List<IMarker> before = problems(module);
+        assertThat(before.size(), is(2));
+
+        setErrors(message(module, 2, "one"), message(module, 3, "two"));
+        final List<IMarker> after = problems(module);
+        assertThat(after.size(), is(2));
+        assertThat(after.containsAll(before), is(true));
+    }
+
+    @Test
+    public void removedProblemDeletesItsMarker() throws CoreException {
+        setErrors(message(module, 2, "one"), message(module, 3, "two"));
+        IMarker kept = null;
+        IMarker removed = null;
+        for (final IMarker m : problems(module)) {
+            if ("one".equals(m.getAttribute(IMarker.MESSAGE))) {
+                kept = m;
+            } else {
+                removed = m;
+            }
+        }
+
+        setErrors(message(module, 2, "one"));
+        assertThat(problems(module), contains(kept));
+        assertThat(removed.exists(), is(false));
+    }
+
+    @Test
+    public void problemsInHeadersAreReplaced() throws CoreException {
+        setErrors(message(header, 1, "in header"));
+        final List<IMarker> markers = problems(header);
+        assertThat(markers.size(), is(1));
+        assertThat(markers.get(0).getAttribute(IMarker.SOURCE_ID),
+                is((Object) module.getFullPath().toString()));
+
+        setErrors();
+        assertThat(problems(header), is(empty()));
+    }
+
+    @Test
+    public void legacyMarkerIsMigrated() throws CoreException {
+        // older builds used the location of the compiled file as source
+        final IMarker legacy = module.createMarker(MarkerUtils.PROBLEM_MARKER);
+        legacy.setAttributes(new String[] { IMarker.MESSAGE, IMarker.SEVERITY,
+                IMarker.LINE_NUMBER, IMarker.SOURCE_ID }, new Object[] { "one",
+                IMarker.SEVERITY_ERROR, 2, module.getLocation().toString() });
+
+        setErrors(message(module, 2, "one"));
+        assertThat(problems(module), contains(legacy));
+        assertThat(legacy.getAttribute(IMarker.SOURCE_ID),
+                is((Object) module.getFullPath().toString()));
+        final ProblemMarkerIndex index = ProblemMarkerIndex.get(project
+                .getWorkspaceProject());
+        assertThat(index.get(module.getFullPath().toString()), contains(legacy));
+        assertThat(index.get(module.getLocation().toString()), is(empty()));
+    }
+}
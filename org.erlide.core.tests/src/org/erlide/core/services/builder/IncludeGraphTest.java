@@ -0,0 +1,78 @@
+package org.erlide.core.services.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.erlide.core.internal.builder.IncludeGraph;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class IncludeGraphTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("includes", ".deps");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void unknownModuleHasNoDependencies() {
+        final IncludeGraph graph = new IncludeGraph(file);
+        Assert.assertFalse(graph.isKnown("/p/src/a.erl"));
+        Assert.assertTrue(graph.getDependents("/p/include/a.hrl").isEmpty());
+    }
+
+    @Test
+    public void nestedHeadersAreDependencies() {
+        final IncludeGraph graph = new IncludeGraph(file);
+        graph.setIncludes("/p/src/a.erl", Arrays.asList("/p/src/a.erl",
+                "/p/src/../include/a.hrl", "/p/include/b.hrl"));
+        graph.setIncludes("/p/src/b.erl", Arrays.asList("/p/include/b.hrl"));
+        graph.setIncludes("/p/src/c.erl", Collections.<String> emptyList());
+
+        Assert.assertTrue(graph.isKnown("/p/src/c.erl"));
+        Assert.assertEquals(Sets.newHashSet("/p/include/a.hrl", "/p/include/b.hrl"),
+                graph.getIncludes("/p/src/a.erl"));
+        Assert.assertEquals(Sets.newHashSet("/p/src/a.erl"),
+                graph.getDependents("/p/include/a.hrl"));
+        Assert.assertEquals(Sets.newHashSet("/p/src/a.erl", "/p/src/b.erl"),
+                graph.getDependents("/p/include/b.hrl"));
+    }
+
+    @Test
+    public void recompilingReplacesDependencies() {
+        final IncludeGraph graph = new IncludeGraph(file);
+        graph.setIncludes("/p/src/a.erl", Arrays.asList("/p/include/a.hrl"));
+        graph.setIncludes("/p/src/a.erl", Arrays.asList("/p/include/b.hrl"));
+        Assert.assertTrue(graph.getDependents("/p/include/a.hrl").isEmpty());
+        graph.remove("/p/src/a.erl");
+        Assert.assertFalse(graph.isKnown("/p/src/a.erl"));
+        Assert.assertTrue(graph.getDependents("/p/include/b.hrl").isEmpty());
+    }
+
+    @Test
+    public void graphIsSaved() {
+        final IncludeGraph graph = new IncludeGraph(file);
+        graph.setIncludes("/p/src/a.erl", Arrays.asList("/p/include/a.hrl"));
+        graph.setIncludes("/p/src/b.erl", Collections.<String> emptyList());
+        graph.save();
+
+        final IncludeGraph loaded = new IncludeGraph(file);
+        Assert.assertTrue(loaded.isKnown("/p/src/b.erl"));
+        Assert.assertEquals(Sets.newHashSet("/p/src/a.erl"),
+                loaded.getDependents("/p/include/a.hrl"));
+    }
+}
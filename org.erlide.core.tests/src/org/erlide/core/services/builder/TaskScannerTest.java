@@ -0,0 +1,47 @@
+package org.erlide.core.services.builder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.eclipse.core.resources.IMarker;
+import org.erlide.core.builder.TaskScanner;
+import org.erlide.core.builder.TaskScanner.Task;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaskScannerTest {
+
+    // split to keep them from being detected as real tasks
+    private static final String TODO = "T" + "ODO";
+    private static final String FIXME = "F" + "IXME";
+
+    private List<Task> scan(final String text) throws IOException {
+        return TaskScanner.scan(new StringReader(text));
+    }
+
+    @Test
+    public void tasksAreInComments() throws IOException {
+        final List<Task> tasks = scan("-module(a).\n%% " + TODO + " one\n"
+                + "f() -> ok. % " + FIXME + " two\n" + "g() -> \"" + TODO + "\".\n");
+        Assert.assertEquals(2, tasks.size());
+        Assert.assertEquals(2, tasks.get(0).getLine());
+        Assert.assertEquals(TODO + " one", tasks.get(0).getMessage());
+        Assert.assertEquals(IMarker.PRIORITY_NORMAL, tasks.get(0).getPriority());
+        Assert.assertEquals(3, tasks.get(1).getLine());
+        Assert.assertEquals(FIXME + " two", tasks.get(1).getMessage());
+        Assert.assertEquals(IMarker.PRIORITY_HIGH, tasks.get(1).getPriority());
+    }
+
+    @Test
+    public void commentMustStartWithTag() throws IOException {
+        Assert.assertTrue(scan("% see " + TODO + "\n").isEmpty());
+    }
+
+    @Test
+    public void allTagsOnTheLineAreTasks() throws IOException {
+        final List<Task> tasks = scan("%\t" + TODO + " and " + FIXME);
+        Assert.assertEquals(2, tasks.size());
+        Assert.assertEquals(FIXME, tasks.get(1).getMessage());
+    }
+}
@@ -39,6 +39,8 @@ import org.erlide.backend.api.IBackendManager;
 import org.erlide.core.ErlangPlugin;
 import org.erlide.core.internal.builder.BuildQueueProcessor;
 import org.erlide.core.internal.builder.BuildWorkerInfo;
+import org.erlide.core.internal.builder.CompileResults;
+import org.erlide.core.internal.builder.IncludeGraph;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.erlang.ErlangIncludeFile;
@@ -48,8 +50,10 @@ import org.erlide.engine.model.root.IErlProject;
 import org.erlide.engine.util.ResourceUtil;
 import org.erlide.runtime.api.IRpcSite;
 import org.erlide.runtime.rpc.IRpcFuture;
+import org.erlide.runtime.rpc.IRpcResultCallback;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.util.ErlLogger;
+import org.erlide.util.Util;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangList;
@@ -57,6 +61,7 @@ import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public final class BuilderHelper {
@@ -66,6 +71,8 @@ public final class BuilderHelper {
     private static final String BEAM = "beam";
     private static final String YRL = "yrl";
     private static final String ERLIDE_BUILDER = "erlide_builder";
+    // parallel compilers in a build; 0 is one per scheduler of the backend
+    private static final int WORKERS = Integer.getInteger("erlide.builder.workers", 0);
 
     public BuilderHelper() {
     }
@@ -134,13 +141,28 @@ public final class BuilderHelper {
         return false;
     }
 
+    /**
+     * Add the modules that include this header, directly or through other
+     * headers. Modules that haven't been compiled yet in this workspace have
+     * no known dependencies, for them the model is checked.
+     */
     public void addDependents(final IResource resource, final IProject my_project,
             final Set<BuildResource> result) throws ErlModelException {
         final IErlProject eprj = ErlangEngine.getInstance().getModel()
                 .findProject(my_project);
         if (eprj != null) {
+            final IncludeGraph graph = IncludeGraph.get(my_project);
+            final Set<String> dependents = graph.getDependents(location(resource));
             final Collection<IErlModule> ms = eprj.getModules();
             for (final IErlModule m : ms) {
+                final IResource mres = m.getResource();
+                if (mres != null && graph.isKnown(location(mres))) {
+                    if (dependents.contains(location(mres))
+                            && m.getModuleKind() == ModuleKind.ERL) {
+                        result.add(new BuildResource(mres));
+                    }
+                    continue;
+                }
                 final Collection<ErlangIncludeFile> incs = m.getIncludeFiles();
                 for (final ErlangIncludeFile ifile : incs) {
                     if (ResourceUtil.samePath(ifile.getFilename(), resource.getName())) {
@@ -268,6 +290,17 @@ public final class BuilderHelper {
             final IResource beam, final boolean shouldCompile0, final IErlProject eprj)
             throws ErlModelException {
         boolean shouldCompile = shouldCompile0;
+        final IncludeGraph graph = IncludeGraph.get(project);
+        final String sourcePath = location(source);
+        if (graph.isKnown(sourcePath)) {
+            for (final String include : graph.getIncludes(sourcePath)) {
+                final File file = new File(include);
+                if (!file.exists() || file.lastModified() > beam.getLocalTimeStamp()) {
+                    return true;
+                }
+            }
+            return shouldCompile;
+        }
         final IErlModule m = eprj.getModule(source.getName());
         if (m != null) {
             final Collection<ErlangIncludeFile> incs = m.getIncludeFiles();
@@ -298,29 +331,56 @@ public final class BuilderHelper {
             final OtpErlangObject compilationResult, final IRpcSite backend,
             final OtpErlangList compilerOptions) {
         if (compilationResult == null) {
+            MarkerUtils.deleteMarkers(source);
             MarkerUtils.addProblemMarker(source, null, null, "Could not compile file", 0,
                     IMarker.SEVERITY_ERROR);
             return;
         }
         final OtpErlangTuple t = (OtpErlangTuple) compilationResult;
 
-        if ("ok".equals(((OtpErlangAtom) t.elementAt(0)).atomValue())) {
+        final boolean ok = "ok".equals(((OtpErlangAtom) t.elementAt(0)).atomValue());
+        if (ok) {
             final String beamf = source.getFullPath().removeFileExtension().lastSegment();
             BuilderHelper.loadModule(project, beamf);
             refreshDirs(project, t.elementAt(2));
         }
+        updateIncludes(project, source, t, ok ? 3 : 2);
 
         // process compilation messages
         if (t.elementAt(1) instanceof OtpErlangList) {
             final OtpErlangList l = (OtpErlangList) t.elementAt(1);
-            MarkerUtils.addErrorMarkers(source, l);
+            MarkerUtils.setErrorMarkers(source, l);
         } else {
+            MarkerUtils.deleteMarkers(source);
             ErlLogger.warn("bad result from builder: %s", t);
         }
 
         completeCompileForYrl(project, source, backend, compilerOptions);
     }
 
+    /**
+     * The result of compiling a module ends with the files read by the
+     * compiler, if they are known.
+     */
+    private void updateIncludes(final IProject project, final IResource source,
+            final OtpErlangTuple result, final int index) {
+        if (result.arity() <= index
+                || !(result.elementAt(index) instanceof OtpErlangList)) {
+            return;
+        }
+        final List<String> files = Lists.newArrayList();
+        for (final OtpErlangObject file : (OtpErlangList) result.elementAt(index)) {
+            files.add(Util.stringValue(file));
+        }
+        IncludeGraph.get(project).setIncludes(location(source), files);
+    }
+
+    private static String location(final IResource resource) {
+        final IPath location = resource.getLocation();
+        return location == null ? resource.getFullPath().toPortableString() : location
+                .toPortableString();
+    }
+
     private void refreshDirs(final IProject project, final OtpErlangObject element) {
         final OtpErlangList list = (OtpErlangList) element;
         for (final OtpErlangObject ebeam : list) {
@@ -370,6 +430,57 @@ public final class BuilderHelper {
     public IRpcFuture startCompileErl(final IProject project, final BuildResource bres,
             final String outputDir0, final IRpcSite backend,
             final OtpErlangList compilerOptions, final boolean force) {
+        final String outputDir = prepareCompileErl(project, bres, outputDir0, force);
+        if (outputDir == null) {
+            return null;
+        }
+        return BuilderHelper.compileErl(backend, bres.getResource().getLocation(),
+                outputDir, getAllIncludeDirs(project), compilerOptions);
+    }
+
+    /**
+     * Start compiling the modules with a single call. They share the include
+     * directories and options, and the backend compiles them in parallel,
+     * reporting each one when it is done.
+     *
+     * @return the futures for the modules that are compiled
+     */
+    public Map<IResource, IRpcFuture> startCompileErls(final IProject project,
+            final Collection<BuildResource> resources, final String outputDir0,
+            final IRpcSite backend, final OtpErlangList compilerOptions,
+            final boolean force) {
+        final Map<IResource, IRpcFuture> result = Maps.newHashMap();
+        final CompileResults results = new CompileResults();
+        final List<OtpErlangObject> files = Lists.newArrayList();
+        for (final BuildResource bres : resources) {
+            final String outputDir = prepareCompileErl(project, bres, outputDir0, force);
+            if (outputDir != null) {
+                final IResource res = bres.getResource();
+                final String path = res.getLocation().toString();
+                files.add(new OtpErlangTuple(new OtpErlangObject[] {
+                        new OtpErlangString(path), new OtpErlangString(outputDir) }));
+                result.put(res, results.expect(path));
+            }
+        }
+        if (!files.isEmpty()) {
+            try {
+                BuilderHelper.compileErls(backend, files, getAllIncludeDirs(project),
+                        compilerOptions, results);
+            } catch (final RpcException e) {
+                ErlLogger.warn(e);
+                results.abort("could not start compiler");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clear the old build results of the module if it has to be compiled.
+     *
+     * @return the output directory, or null if the module is up to date
+     */
+    private String prepareCompileErl(final IProject project, final BuildResource bres,
+            final String outputDir0, final boolean force) {
         final IPath projectPath = project.getLocation();
         final IResource res = bres.getResource();
         final String s = res.getFileExtension();
@@ -377,13 +488,10 @@ public final class BuilderHelper {
             ErlLogger.warn("trying to compile " + res.getName() + "?!?!");
         }
 
-        MarkerUtils.deleteMarkers(res);
-
+        // the old markers are replaced when the result is in
         String outputDir;
         outputDir = getRealOutputDir(bres, outputDir0, projectPath);
 
-        final Collection<IPath> includeDirs = getAllIncludeDirs(project);
-
         // delete beam file
         final IPath beamPath = getBeamForErl(res);
         final IResource beam = project.findMember(beamPath);
@@ -404,8 +512,7 @@ public final class BuilderHelper {
                 }
 
                 createTaskMarkers(project, res);
-                return BuilderHelper.compileErl(backend, res.getLocation(), outputDir,
-                        includeDirs, compilerOptions);
+                return outputDir;
 
             }
             return null;
@@ -540,6 +647,22 @@ public final class BuilderHelper {
         }
     }
 
+    /**
+     * @param files
+     *            {source, output directory} tuples
+     */
+    public static void compileErls(final IRpcSite backend,
+            final Collection<OtpErlangObject> files,
+            final Collection<IPath> includedirs, final OtpErlangList compilerOptions,
+            final IRpcResultCallback callback) throws RpcException {
+        final List<String> incs = Lists.newArrayList();
+        for (final IPath p : includedirs) {
+            incs.add(p.toString());
+        }
+        backend.async_call_result(callback, ERLIDE_BUILDER, "build_resources",
+                "xlxlsxi", files, incs, compilerOptions, Integer.valueOf(WORKERS));
+    }
+
     public static IRpcFuture compileYrl(final IRpcSite backend, final String fn,
             final String output) {
         try {
@@ -770,6 +893,7 @@ public final class BuilderHelper {
                 break;
             case IResourceDelta.REMOVED:
                 MarkerUtils.deleteMarkers(resource);
+                IncludeGraph.get(resource.getProject()).remove(location(resource));
                 IPath beam = erlProject.getOutputLocation();
                 final IPath module = beam.append(resource.getName())
                         .removeFileExtension();
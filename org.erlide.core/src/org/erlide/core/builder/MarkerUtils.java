@@ -1,22 +1,26 @@
 package org.erlide.core.builder;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.Reader;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.xtext.xbase.lib.Pair;
 import org.erlide.core.ErlangCore;
+import org.erlide.core.builder.TaskScanner.Task;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.model.erlang.IErlFunction;
 import org.erlide.engine.model.erlang.IErlModule;
@@ -33,17 +37,13 @@ import com.ericsson.otp.erlang.OtpErlangLong;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangRangeException;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 public final class MarkerUtils {
 
-    // do this to keep them from being detected as real tasks by Jenkins plugin
-    private static final String FIXME_TAG = "F" + "IXME";
-    private static final String XXX_TAG = "X" + "XX";
-    private static final String TODO_TAG = "T" + "ODO";
-    private static final String TODO_XXX_FIXME_PATTERN = "^[^%]*%+[ \t]*(" + TODO_TAG
-            + "|" + XXX_TAG + "|" + FIXME_TAG + ").*";
     // Copied from org.eclipse.ui.ide (since we don't want ui code in core)
     public static final String PATH_ATTRIBUTE = "org.eclipse.ui.views.markers.path";//$NON-NLS-1$
 
@@ -74,23 +74,147 @@ public final class MarkerUtils {
     }
 
     /**
-     * Add error markers from a list of error tuples
+     * Replace the problem markers from compiling a file with those for a list
+     * of error tuples. Markers that didn't change are kept, and all changes
+     * are made in one workspace operation.
      * 
      * @param resource
      * @param errorList
      */
-    public static void addErrorMarkers(final IResource resource,
+    public static void setErrorMarkers(final IResource resource,
             final OtpErlangList errorList) {
         final OtpErlangObject[] messages = errorList.elements();
         final Map<String, List<OtpErlangTuple>> groupedMessages = groupMessagesByFile(messages);
 
+        final List<Problem> problems = Lists.newArrayList();
         for (final Entry<String, List<OtpErlangTuple>> entry : groupedMessages.entrySet()) {
             final String fileName = entry.getKey();
-            final IResource res = findResourceForFileName(resource, entry, fileName);
+            IResource res = findResourceForFileName(resource, entry, fileName);
+            if (res == null) {
+                res = resource.getProject();
+            }
 
             for (final OtpErlangTuple data : entry.getValue()) {
-                addAnnotationForMessage(resource, fileName, res, data);
+                problems.add(problemForMessage(res, fileName, data));
+            }
+        }
+        final IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+            @Override
+            public void run(final IProgressMonitor monitor) throws CoreException {
+                reconcileProblems(resource, problems);
+            }
+        };
+        try {
+            ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE,
+                    null);
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    /**
+     * The problem markers of the compiled file are those on the file itself
+     * and those it caused in other files, e.g. in included headers.
+     */
+    private static void reconcileProblems(final IResource compiledFile,
+            final List<Problem> problems) {
+        final String sourceId = compiledFile.getFullPath().toString();
+        final ProblemMarkerIndex index = ProblemMarkerIndex.get(compiledFile
+                .getProject());
+        final Set<IMarker> old = index.get(sourceId);
+        // markers from older builds have the location as source
+        old.addAll(index.get(compiledFile.getLocation().toString()));
+        old.addAll(Arrays.asList(getProblemsFor(compiledFile)));
+
+        final ListMultimap<Problem, IMarker> existing = ArrayListMultimap.create();
+        for (final IMarker m : old) {
+            try {
+                existing.put(Problem.of(m), m);
+            } catch (final CoreException e) {
+                // gone already
+            }
+        }
+        final List<IMarker> markers = Lists.newArrayList();
+        for (final Problem problem : problems) {
+            final List<IMarker> same = existing.get(problem);
+            try {
+                final IMarker marker;
+                if (same.isEmpty()) {
+                    marker = problem.create();
+                } else {
+                    marker = same.remove(0);
+                }
+                if (!sourceId.equals(marker.getAttribute(IMarker.SOURCE_ID))) {
+                    marker.setAttribute(IMarker.SOURCE_ID, sourceId);
+                }
+                markers.add(marker);
+            } catch (final CoreException e) {
+            }
+        }
+        for (final IMarker m : existing.values()) {
+            try {
+                m.delete();
+            } catch (final CoreException e) {
+                // not much to do
+            }
+        }
+        index.removeAll(compiledFile.getLocation().toString());
+        index.set(sourceId, markers);
+    }
+
+    /**
+     * The part of a problem marker that is compared to find out if it changed.
+     */
+    private static final class Problem {
+        private static final String[] ATTRIBUTES = new String[] { IMarker.MESSAGE,
+                IMarker.SEVERITY, IMarker.LINE_NUMBER, PATH_ATTRIBUTE };
+
+        private final IResource resource;
+        private final Object[] values;
+
+        Problem(final IResource resource, final String message, final int severity,
+                final int lineNumber, final String path) {
+            this(resource, new Object[] { message, Integer.valueOf(severity),
+                    Integer.valueOf(lineNumber != -1 ? lineNumber : 1),
+                    otherPath(resource, path) });
+        }
+
+        // as in addProblemMarker, so that older markers compare equal
+        private static String otherPath(final IResource resource, final String path) {
+            if (path == null || new Path(path).equals(resource.getLocation())) {
+                return null;
+            }
+            return path;
+        }
+
+        private Problem(final IResource resource, final Object[] values) {
+            this.resource = resource;
+            this.values = values;
+        }
+
+        static Problem of(final IMarker marker) throws CoreException {
+            return new Problem(marker.getResource(), marker.getAttributes(ATTRIBUTES));
+        }
+
+        IMarker create() throws CoreException {
+            final IMarker marker = resource.createMarker(PROBLEM_MARKER);
+            marker.setAttributes(ATTRIBUTES, values);
+            return marker;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Problem)) {
+                return false;
             }
+            final Problem other = (Problem) obj;
+            return resource.equals(other.resource)
+                    && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * resource.hashCode() + Arrays.hashCode(values);
         }
     }
 
@@ -130,8 +254,8 @@ public final class MarkerUtils {
         return res;
     }
 
-    private static void addAnnotationForMessage(final IResource resource,
-            final String fileName, final IResource res, final OtpErlangTuple data) {
+    private static Problem problemForMessage(final IResource res,
+            final String fileName, final OtpErlangTuple data) {
         int line = 0;
         if (data.elementAt(0) instanceof OtpErlangLong) {
             try {
@@ -159,14 +283,7 @@ public final class MarkerUtils {
         if (msg.length() > 1000) {
             msg = msg.substring(0, 1000) + "...";
         }
-        final IMarker marker = addMarker(res, resource.getProject(), fileName, msg, line,
-                sev, PROBLEM_MARKER);
-        if (marker != null) {
-            try {
-                marker.setAttribute(IMarker.SOURCE_ID, resource.getLocation().toString());
-            } catch (final CoreException e) {
-            }
-        }
+        return new Problem(res, msg, sev, line, fileName);
     }
 
     private static Map<String, List<OtpErlangTuple>> groupMessagesByFile(
@@ -259,22 +376,16 @@ public final class MarkerUtils {
         if (!project.isAccessible()) {
             return;
         }
-        try {
-            for (final IMarker m : project.findMarkers(PROBLEM_MARKER, true,
-                    IResource.DEPTH_INFINITE)) {
-                final Object source_id = m.getAttribute(IMarker.SOURCE_ID);
-                if (source_id instanceof String
-                        && source_id.equals(file.getFullPath().toString())) {
-                    try {
-                        m.delete();
-                    } catch (final CoreException e) {
-                        // not much to do
-                    }
-                }
+        final ProblemMarkerIndex index = ProblemMarkerIndex.get(project);
+        final String sourceId = file.getFullPath().toString();
+        for (final IMarker m : index.get(sourceId)) {
+            try {
+                m.delete();
+            } catch (final CoreException e) {
+                // not much to do
             }
-        } catch (final CoreException e) {
-            // not much to do
         }
+        index.removeAll(sourceId);
     }
 
     public void createProblemMarkerFor(final IResource resource,
@@ -340,48 +451,47 @@ public final class MarkerUtils {
     }
 
     public static void getScanMarkersFor(final IResource resource) {
+        final List<Task> tasks = scanTasks(resource);
+        if (tasks != null) {
+            setTaskMarkers(resource, tasks);
+        }
+    }
+
+    /**
+     * @return the tasks in the file, or null if it can't be read
+     */
+    public static List<Task> scanTasks(final IResource resource) {
         try {
-            final BufferedReader reader = new BufferedReader(new FileReader(resource
-                    .getLocation().toPortableString()));
+            final Reader reader = new FileReader(resource.getLocation()
+                    .toPortableString());
             try {
-                String line = reader.readLine();
-                final List<Pair<String, Integer>> cl = new ArrayList<Pair<String, Integer>>();
-                int numline = 0;
-                while (line != null) {
-                    if (line.matches(TODO_XXX_FIXME_PATTERN)) {
-                        cl.add(new Pair<String, Integer>(line, numline));
-                    }
-                    numline++;
-                    line = reader.readLine();
-                }
-
-                for (final Pair<String, Integer> c : cl) {
-                    createTaskMarkerAtText(resource, c.getValue(), c.getKey(), TODO_TAG,
-                            IMarker.PRIORITY_NORMAL);
-                    createTaskMarkerAtText(resource, c.getValue(), c.getKey(), XXX_TAG,
-                            IMarker.PRIORITY_NORMAL);
-                    createTaskMarkerAtText(resource, c.getValue(), c.getKey(), FIXME_TAG,
-                            IMarker.PRIORITY_HIGH);
-                }
+                return TaskScanner.scan(reader);
             } finally {
                 reader.close();
             }
         } catch (final IOException e) {
+            return null;
         }
     }
 
-    private static void createTaskMarkerAtText(final IResource resource, final int line,
-            final String text, final String tag, final int prio) {
-        if (text.contains(tag)) {
-            final int ix = text.indexOf(tag);
-            final String msg = text.substring(ix);
-            int dl = 0;
-            for (int i = 0; i < ix; i++) {
-                if (text.charAt(i) == '\n') {
-                    dl++;
-                }
+    /**
+     * Replace the task markers of the resource. When updating many files, do
+     * it in a workspace operation.
+     */
+    public static void setTaskMarkers(final IResource resource, final List<Task> tasks) {
+        removeTaskMarkers(resource);
+        for (final Task task : tasks) {
+            try {
+                final IMarker marker = resource.createMarker(TASK_MARKER);
+                marker.setAttributes(
+                        new String[] { IMarker.MESSAGE, IMarker.PRIORITY,
+                                IMarker.SOURCE_ID, IMarker.LINE_NUMBER },
+                        new Object[] { task.getMessage(),
+                                Integer.valueOf(task.getPriority()),
+                                resource.getFullPath().toString(),
+                                Integer.valueOf(task.getLine()) });
+            } catch (final CoreException e) {
             }
-            addTaskMarker(resource, resource, msg, line + 1 + dl, prio);
         }
     }
 
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.core.builder;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+/**
+ * The problem markers of a project by the file whose compilation created them
+ * (their {@link IMarker#SOURCE_ID}), so that the markers of a module, including
+ * those in the headers it uses, are found without going through all the
+ * markers of the project. It is filled from the project's markers when first
+ * used and kept up to date by {@link MarkerUtils}.
+ */
+final class ProblemMarkerIndex {
+
+    private static final Map<String, ProblemMarkerIndex> indexes = Maps.newHashMap();
+
+    private final SetMultimap<String, IMarker> markers = HashMultimap.create();
+
+    public static synchronized ProblemMarkerIndex get(final IProject project) {
+        ProblemMarkerIndex index = indexes.get(project.getName());
+        if (index == null) {
+            index = new ProblemMarkerIndex();
+            index.load(project);
+            indexes.put(project.getName(), index);
+        }
+        return index;
+    }
+
+    private void load(final IProject project) {
+        if (!project.isAccessible()) {
+            return;
+        }
+        try {
+            for (final IMarker m : project.findMarkers(MarkerUtils.PROBLEM_MARKER,
+                    true, IResource.DEPTH_INFINITE)) {
+                final Object sourceId = m.getAttribute(IMarker.SOURCE_ID);
+                if (sourceId instanceof String) {
+                    markers.put((String) sourceId, m);
+                }
+            }
+        } catch (final CoreException e) {
+            // not much to do
+        }
+    }
+
+    /**
+     * The markers that still exist; markers may be deleted by others, e.g. when
+     * cleaning the project.
+     */
+    public synchronized Set<IMarker> get(final String sourceId) {
+        final Set<IMarker> result = Sets.newHashSet();
+        final Iterator<IMarker> it = markers.get(sourceId).iterator();
+        while (it.hasNext()) {
+            final IMarker m = it.next();
+            if (m.exists()) {
+                result.add(m);
+            } else {
+                it.remove();
+            }
+        }
+        return result;
+    }
+
+    public synchronized void set(final String sourceId, final Collection<IMarker> list) {
+        markers.replaceValues(sourceId, list);
+    }
+
+    public synchronized void removeAll(final String sourceId) {
+        markers.removeAll(sourceId);
+    }
+}
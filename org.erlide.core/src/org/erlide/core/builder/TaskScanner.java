@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.core.builder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IMarker;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Finds the task tags in the comments of a file. A line has tasks if its first
+ * comment starts with a tag, and then there is a task for each tag on the line.
+ */
+public final class TaskScanner {
+
+    // do this to keep them from being detected as real tasks by Jenkins plugin
+    private static final String FIXME_TAG = "F" + "IXME";
+    private static final String XXX_TAG = "X" + "XX";
+    private static final String TODO_TAG = "T" + "ODO";
+
+    private static final String[] TAGS = { TODO_TAG, XXX_TAG, FIXME_TAG };
+    private static final int[] PRIORITIES = { IMarker.PRIORITY_NORMAL,
+            IMarker.PRIORITY_NORMAL, IMarker.PRIORITY_HIGH };
+    private static final Pattern TASK_LINE = Pattern.compile("^[^%]*%+[ \t]*(?:"
+            + TODO_TAG + "|" + XXX_TAG + "|" + FIXME_TAG + ")");
+
+    public static final class Task {
+        private final int line;
+        private final String message;
+        private final int priority;
+
+        public Task(final int line, final String message, final int priority) {
+            this.line = line;
+            this.message = message;
+            this.priority = priority;
+        }
+
+        /** 1-based */
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String toString() {
+            return line + ": " + message;
+        }
+    }
+
+    private TaskScanner() {
+    }
+
+    public static List<Task> scan(final Reader input) throws IOException {
+        final List<Task> result = Lists.newArrayList();
+        final BufferedReader reader = new BufferedReader(input);
+        final Matcher matcher = TASK_LINE.matcher("");
+        int numline = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            numline++;
+            // most lines have no comment at all
+            if (line.indexOf('%') >= 0 && matcher.reset(line).lookingAt()) {
+                for (int i = 0; i < TAGS.length; i++) {
+                    final int ix = line.indexOf(TAGS[i]);
+                    if (ix >= 0) {
+                        result.add(new Task(numline, line.substring(ix), PRIORITIES[i]));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
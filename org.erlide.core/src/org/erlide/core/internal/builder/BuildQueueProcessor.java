@@ -1,19 +1,62 @@
 package org.erlide.core.internal.builder;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.erlide.core.builder.MarkerUtils;
+import org.erlide.core.builder.TaskScanner;
+import org.erlide.core.builder.TaskScanner.Task;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.SystemConfiguration;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
+/**
+ * Updates the task markers of the compiled files. Files whose content didn't
+ * change since they were last scanned, and still have their markers, are
+ * skipped, and the markers are changed in batches, each in one workspace
+ * operation.
+ */
 public class BuildQueueProcessor extends Job {
+    private static final int BATCH_SIZE = 50;
+
     private static BuildQueueProcessor instance;
     private final ConcurrentLinkedQueue<BuildWorkerInfo> queue = Queues
             .newConcurrentLinkedQueue();
+    // only used by the job
+    private final Map<IResource, Scanned> scanned = Maps.newHashMap();
+
+    private static class Scanned {
+        final HashCode hash;
+        final int taskCount;
+
+        Scanned(final HashCode hash, final int taskCount) {
+            this.hash = hash;
+            this.taskCount = taskCount;
+        }
+    }
 
     public BuildQueueProcessor(final String name) {
         super(name);
@@ -28,16 +71,90 @@ public class BuildQueueProcessor extends Job {
 
     @Override
     protected IStatus run(final IProgressMonitor monitor) {
+        final boolean skip = SystemConfiguration.hasFeatureEnabled("erlide.skip.tasks");
+        final Map<IResource, List<Task>> batch = Maps.newHashMap();
+        final Set<IResource> seen = Sets.newHashSet();
         BuildWorkerInfo work = null;
         work = queue.poll();
         while (work != null) {
-            MarkerUtils.removeTaskMarkers(work.resource);
-            MarkerUtils.createTaskMarkers(work.resource);
+            final IResource resource = work.resource;
+            if (skip) {
+                scanned.remove(resource);
+                MarkerUtils.removeTaskMarkers(resource);
+            } else if (seen.add(resource)) {
+                final List<Task> tasks = scanIfChanged(resource);
+                if (tasks != null) {
+                    batch.put(resource, tasks);
+                    if (batch.size() >= BATCH_SIZE) {
+                        setTaskMarkers(batch);
+                    }
+                }
+            }
             work = queue.poll();
         }
+        setTaskMarkers(batch);
+        forgetRemoved();
         return Status.OK_STATUS;
     }
 
+    private void forgetRemoved() {
+        final Iterator<IResource> it = scanned.keySet().iterator();
+        while (it.hasNext()) {
+            if (!it.next().exists()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the tasks, or null if the file and its markers are unchanged or
+     *         it can't be read
+     */
+    private List<Task> scanIfChanged(final IResource resource) {
+        final IPath location = resource.getLocation();
+        if (location == null) {
+            return null;
+        }
+        try {
+            final byte[] content = Files.toByteArray(new File(location.toOSString()));
+            final HashCode hash = Hashing.md5().hashBytes(content);
+            final Scanned previous = scanned.get(resource);
+            // the markers are gone if the file was deleted and created again
+            if (previous != null && hash.equals(previous.hash)
+                    && MarkerUtils.getTasksFor(resource).length == previous.taskCount) {
+                return null;
+            }
+            final List<Task> tasks = TaskScanner.scan(new StringReader(new String(
+                    content, Charset.defaultCharset())));
+            scanned.put(resource, new Scanned(hash, tasks.size()));
+            return tasks;
+        } catch (final IOException e) {
+            scanned.remove(resource);
+            return null;
+        }
+    }
+
+    private void setTaskMarkers(final Map<IResource, List<Task>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+            @Override
+            public void run(final IProgressMonitor monitor) throws CoreException {
+                for (final Map.Entry<IResource, List<Task>> entry : batch.entrySet()) {
+                    MarkerUtils.setTaskMarkers(entry.getKey(), entry.getValue());
+                }
+            }
+        };
+        try {
+            ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE,
+                    null);
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+        batch.clear();
+    }
+
     public static synchronized BuildQueueProcessor getInstance() {
         if (instance == null) {
             instance = new BuildQueueProcessor("tasks");
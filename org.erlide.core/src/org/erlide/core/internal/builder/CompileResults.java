@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.core.internal.builder;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.erlide.runtime.rpc.IRpcFuture;
+import org.erlide.runtime.rpc.IRpcResultCallback;
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.Util;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.AbstractFuture;
+
+/**
+ * Receives the results of erlide_builder:build_resources, which compiles many
+ * files in one call and reports each of them as it is done. Every file gets a
+ * future, so the results can be handled like those of separate calls.
+ */
+public class CompileResults implements IRpcResultCallback {
+
+    private static class Result extends AbstractFuture<OtpErlangObject> implements
+            IRpcFuture {
+
+        @Override
+        public boolean set(final OtpErlangObject value) {
+            return super.set(value);
+        }
+
+        public boolean fail(final RpcException e) {
+            return setException(e);
+        }
+
+        @Override
+        public OtpErlangObject checkedGet() throws RpcException {
+            try {
+                return get();
+            } catch (final InterruptedException e) {
+                throw new RpcException(e);
+            } catch (final ExecutionException e) {
+                // only failed with RpcException
+                throw (RpcException) e.getCause();
+            }
+        }
+
+        @Override
+        public OtpErlangObject checkedGet(final long timeout, final TimeUnit unit)
+                throws TimeoutException, RpcException {
+            try {
+                return get(timeout, unit);
+            } catch (final InterruptedException e) {
+                throw new RpcException(e);
+            } catch (final ExecutionException e) {
+                // only failed with RpcException
+                throw (RpcException) e.getCause();
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, Result> pending = Maps.newConcurrentMap();
+
+    /**
+     * @return the future for the result of compiling the file, whose path is
+     *         passed to the backend as it is here
+     */
+    public IRpcFuture expect(final String path) {
+        final Result result = new Result();
+        pending.put(path, result);
+        return result;
+    }
+
+    @Override
+    public void start(final OtpErlangObject msg) {
+    }
+
+    @Override
+    public void progress(final OtpErlangObject msg) {
+        final OtpErlangTuple t = (OtpErlangTuple) msg;
+        final String path = Util.stringValue(t.elementAt(0));
+        final Result result = pending.remove(path);
+        if (result == null) {
+            ErlLogger.warn("unexpected compile result for %s", path);
+            return;
+        }
+        result.set(t.elementAt(1));
+    }
+
+    @Override
+    public void stop(final OtpErlangObject msg) {
+        abort("no result from the compiler");
+    }
+
+    /**
+     * Fail all the files that have no result yet.
+     */
+    public void abort(final String reason) {
+        for (final String path : pending.keySet()) {
+            final Result result = pending.remove(path);
+            if (result != null) {
+                result.fail(new RpcException(reason + ": " + path));
+            }
+        }
+    }
+}
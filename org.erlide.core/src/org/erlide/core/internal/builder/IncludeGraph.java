@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.core.internal.builder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.Path;
+import org.erlide.core.ErlangCore;
+import org.erlide.util.ErlLogger;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+/**
+ * The files each module of a project was last compiled with, as reported by
+ * the compiler. These are all the files read by the preprocessor, so a header
+ * included from another header is a dependency of the module too, and the
+ * modules to rebuild after a header changed are found with one lookup.
+ *
+ * <p>
+ * Paths are file system locations. The graph is kept in the project's working
+ * area between sessions.
+ * </p>
+ */
+public class IncludeGraph {
+
+    private static final String HEADER = "# erlide include dependencies 1";
+    private static final char SEP = '\t';
+    private static final Map<String, IncludeGraph> graphs = Maps.newHashMap();
+
+    private final File file;
+    // module -> included files
+    private final SetMultimap<String, String> includes = HashMultimap.create();
+    // included file -> modules
+    private final SetMultimap<String, String> dependents = HashMultimap.create();
+    private boolean dirty;
+
+    public static synchronized IncludeGraph get(final IProject project) {
+        IncludeGraph graph = graphs.get(project.getName());
+        if (graph == null) {
+            graph = new IncludeGraph(new File(project.getWorkingLocation(
+                    ErlangCore.PLUGIN_ID).toFile(), "includes.deps"));
+            graphs.put(project.getName(), graph);
+        }
+        return graph;
+    }
+
+    public IncludeGraph(final File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Whether the module was compiled since the graph exists, so that its
+     * dependencies are known.
+     */
+    public synchronized boolean isKnown(final String module) {
+        return includes.containsKey(key(module));
+    }
+
+    public synchronized Set<String> getIncludes(final String module) {
+        final String m = key(module);
+        final Set<String> result = Sets.newHashSet(includes.get(m));
+        result.remove(m);
+        return result;
+    }
+
+    /** The modules that include the file, directly or not. */
+    public synchronized Set<String> getDependents(final String include) {
+        return Sets.newHashSet(dependents.get(key(include)));
+    }
+
+    /**
+     * Record the files read when compiling the module; the module itself is
+     * ignored if it is in the list.
+     */
+    public synchronized void setIncludes(final String module,
+            final Collection<String> files) {
+        final String m = key(module);
+        remove(m);
+        // an entry for the module itself marks it as known
+        includes.put(m, m);
+        for (final String f : files) {
+            final String inc = key(f);
+            if (!inc.equals(m)) {
+                includes.put(m, inc);
+                dependents.put(inc, m);
+            }
+        }
+        dirty = true;
+    }
+
+    public synchronized void remove(final String module) {
+        final String m = key(module);
+        for (final String inc : includes.removeAll(m)) {
+            dependents.remove(inc, m);
+        }
+        dirty = true;
+    }
+
+    public synchronized void clear() {
+        includes.clear();
+        dependents.clear();
+        dirty = true;
+    }
+
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        file.getParentFile().mkdirs();
+        try {
+            final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file), Charsets.UTF_8));
+            try {
+                out.write(HEADER);
+                out.newLine();
+                for (final String module : includes.keySet()) {
+                    out.write(module);
+                    for (final String inc : includes.get(module)) {
+                        if (!inc.equals(module)) {
+                            out.write(SEP);
+                            out.write(inc);
+                        }
+                    }
+                    out.newLine();
+                }
+            } finally {
+                out.close();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            file.delete();
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), Charsets.UTF_8));
+            try {
+                if (!HEADER.equals(in.readLine())) {
+                    return;
+                }
+                String line;
+                while ((line = in.readLine()) != null) {
+                    final List<String> paths = Splitter.on(SEP).splitToList(line);
+                    setIncludes(paths.get(0), paths.subList(1, paths.size()));
+                }
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            clear();
+        }
+        dirty = false;
+    }
+
+    private static String key(final String path) {
+        // the compiler may report paths like src/../include/x.hrl
+        return new Path(path).toPortableString();
+    }
+}
@@ -14,10 +14,8 @@ import static com.google.common.collect.Lists.newArrayList;
 
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -47,17 +45,21 @@ import org.erlide.engine.model.IErlModel;
 import org.erlide.engine.model.root.ErlangProjectProperties;
 import org.erlide.engine.model.root.IErlProject;
 import org.erlide.runtime.rpc.IRpcFuture;
+import org.erlide.runtime.rpc.RpcCompletionQueue;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangList;
-import com.ericsson.otp.erlang.OtpErlangObject;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 public class InternalBuilder extends ErlangBuilder {
 
+    private static final long CANCEL_CHECK_INTERVAL = 250;
+
     BuildNotifier notifier;
     private final BuilderHelper helper = new BuilderHelper();
+    // the build thread was interrupted while waiting for results; the flag
+    // is restored when the build is over, so that the cleanup RPCs still work
+    private boolean interrupted;
 
     @Override
     public IProject[] build(final int kind, final Map<String, String> args,
@@ -105,11 +107,16 @@ public class InternalBuilder extends ErlangBuilder {
             MarkerUtils.addProblemMarker(project, null, null, msg, 0,
                     IMarker.SEVERITY_ERROR);
         } finally {
+            IncludeGraph.get(project).save();
             cleanup();
             // if (BuilderHelper.isDebugging()) {
             ErlLogger.debug("###** Finished build of " + project.getName() + " took "
                     + Long.toString(System.currentTimeMillis() - time));
             // }
+            if (interrupted) {
+                interrupted = false;
+                Thread.currentThread().interrupt();
+            }
         }
         return null;
     }
@@ -129,6 +136,9 @@ public class InternalBuilder extends ErlangBuilder {
         try {
             initializeBuilder(monitor);
             MarkerUtils.removeProblemMarkersFor(currentProject);
+            final IncludeGraph includeGraph = IncludeGraph.get(currentProject);
+            includeGraph.clear();
+            includeGraph.save();
             final IErlProject erlProject = ErlangEngine.getInstance().getModel()
                     .getErlangProject(currentProject);
             final IFolder bf = currentProject.getFolder(erlProject.getOutputLocation());
@@ -207,57 +217,50 @@ public class InternalBuilder extends ErlangBuilder {
             backend.addProjectPath(model.findProject(project));
 
             notifier.setProgressPerCompilationUnit(1.0f / n);
-            final Map<IRpcFuture, IResource> results = new HashMap<IRpcFuture, IResource>();
+            final RpcCompletionQueue<IResource> results = new RpcCompletionQueue<IResource>();
+            final List<BuildResource> erls = newArrayList();
             for (final BuildResource bres : resourcesToBuild) {
                 notifier.checkCancel();
                 final IResource resource = bres.getResource();
-                MarkerUtils.deleteMarkers(resource);
                 // notifier.aboutToCompile(resource);
                 if ("erl".equals(resource.getFileExtension())) {
-                    final String outputDir = erlProject.getOutputLocation().toString();
-                    final IRpcFuture f = helper.startCompileErl(project, bres, outputDir,
-                            backend.getRpcSite(), compilerOptions,
-                            kind == IncrementalProjectBuilder.FULL_BUILD);
-                    if (f != null) {
-                        results.put(f, resource);
-                    }
+                    erls.add(bres);
                 } else if ("yrl".equals(resource.getFileExtension())) {
                     final IRpcFuture f = helper.startCompileYrl(project, resource,
                             backend.getRpcSite(), compilerOptions);
                     if (f != null) {
-                        results.put(f, resource);
+                        results.add(f, resource);
                     }
                 } else {
                     ErlLogger.warn("Don't know how to compile: %s", resource.getName());
                 }
             }
+            // all modules are compiled by one call, in parallel on the backend
+            final String outputDir = erlProject.getOutputLocation().toString();
+            final Map<IResource, IRpcFuture> compiling = helper.startCompileErls(project,
+                    erls, outputDir, backend.getRpcSite(), compilerOptions,
+                    kind == IncrementalProjectBuilder.FULL_BUILD);
+            for (final Map.Entry<IResource, IRpcFuture> entry : compiling.entrySet()) {
+                results.add(entry.getValue(), entry.getKey());
+            }
 
-            final List<Entry<IRpcFuture, IResource>> done = Lists.newArrayList();
-            final List<Entry<IRpcFuture, IResource>> waiting = Lists.newArrayList(results
-                    .entrySet());
-
-            // TODO should use some kind of notification!
-            while (!waiting.isEmpty()) {
-                for (final Entry<IRpcFuture, IResource> result : waiting) {
-                    notifier.checkCancel();
-                    OtpErlangObject r;
-                    try {
-                        r = result.getKey().get(100, TimeUnit.MILLISECONDS);
-                    } catch (final Exception e) {
-                        r = null;
-                    }
-                    if (r != null) {
-                        final IResource resource = result.getValue();
-
-                        helper.completeCompile(project, resource, r,
-                                backend.getRpcSite(), compilerOptions);
-                        notifier.compiled(resource);
-
-                        done.add(result);
-                    }
+            // handle each result as soon as it arrives; the timeout is only
+            // for noticing cancellation
+            while (!results.isEmpty()) {
+                notifier.checkCancel();
+                final RpcCompletionQueue.Completed<IResource> result;
+                try {
+                    result = results.poll(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                    throw new OperationCanceledException();
+                }
+                if (result != null) {
+                    final IResource resource = result.getTag();
+                    helper.completeCompile(project, resource, result.getResult(),
+                            backend.getRpcSite(), compilerOptions);
+                    notifier.compiled(resource);
                 }
-                waiting.removeAll(done);
-                done.clear();
             }
             helper.refreshOutputDir(project);
 
@@ -92,10 +92,12 @@ public class DialyzerUtils {
             while (!future.isDone()) {
                 // check cancellation
                 if (monitor.isCanceled()) {
+                    future.cancel(false);
                     throw new OperationCanceledException();
                 }
                 // check backend down
                 if (!backend.isRunning()) {
+                    future.cancel(false);
                     throw new BackendException("Dialyzer: backend " + backend.getName()
                             + " is down");
                 }
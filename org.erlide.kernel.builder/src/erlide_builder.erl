@@ -46,26 +46,30 @@ compile(F, OutputDir, IncludeDirs) ->
 compile(F, OutputDir, IncludeDirs, Options) ->
   erlide_batch:call(?MODULE, fun compile_options/3,[F, [return, binary | mk_includes(IncludeDirs)]++Options, OutputDir]).
 
-%% Compile Erlang file taking various compile options into account
+%% Compile Erlang file taking various compile options into account.
+%% The last element of the result is the list of files read by the
+%% preprocessor (or unknown), for the IDE's include dependencies.
 compile_options(F, Options, OutputDir) ->
   FN = list_to_atom(filename:basename(F, ".erl")),
-  case compile:file(F, Options) of
+  Result = compile:file(F, erlide_include_deps:options() ++ Options),
+  Deps = erlide_include_deps:collect(),
+  case Result of
     {error, E, W} ->
-      {error, lists:sort(format_compile_msg(E, ?ERROR)++ format_compile_msg(W, ?WARNING))};
+      {error, lists:sort(format_compile_msg(E, ?ERROR)++ format_compile_msg(W, ?WARNING)), Deps};
     {ok, FN, Bin, W} ->
       F1 = OutputDir++"/"++atom_to_list(FN)++".beam",
       file:write_file(F1, Bin),
-      {ok, lists:sort(format_compile_msg(W, ?WARNING)), [F1]};
+      {ok, lists:sort(format_compile_msg(W, ?WARNING)), [F1], Deps};
     {ok, FN, Bin} ->
       F1 = OutputDir++"/"++atom_to_list(FN)++".beam",
       file:write_file(F1, Bin),
-      {ok, [], [F1]};
+      {ok, [], [F1], Deps};
     {ok, Mod, _Bin, W} ->
       Msg = {1, F, lists:flatten(io_lib:format("declared module name '~p' doesn't match file name '~p'", [Mod, FN])), ?ERROR},
-      {error, lists:sort([Msg | format_compile_msg(W, ?WARNING)])};
+      {error, lists:sort([Msg | format_compile_msg(W, ?WARNING)]), Deps};
     {ok, Mod, _Bin} ->
       Msg = {1, F, lists:flatten(io_lib:format("declared module name '~p' doesn't match file name '~p'", [Mod, FN])), ?ERROR},
-      {error, [Msg]}
+      {error, [Msg], Deps}
   end.
 
 format_compile_msg(L, Marker) when is_list(L) ->
@@ -159,58 +163,83 @@ source_clash(Dirs) ->
   Struct = lists:flatten(build(Dirs, "erl")),
   search(Struct).
 
-build_resources(Files, OutputDir, IncludeDirs, Options, Reporter) ->
+%% Compile Files, a list of {Source, OutputDir}, with at most Workers
+%% compilers running in parallel (one per scheduler if Workers isn't a
+%% positive integer). The results are sent to Reporter as they complete:
+%% {start, NumberOfFiles}, then {progress, {Source, Result}} for each file,
+%% with Result as from compile/4, and finally {stop, ok}.
+build_resources(Reporter, Files, IncludeDirs, Options, Workers) ->
   spawn(fun() ->
-          catch erlang:register(erlide_builder, self()),
-          receive
-            start ->
-              erlide_log:logp("Start building! ~p", [{Files, OutputDir, IncludeDirs, Options, Reporter}]),
-              do_build_resources(Files, OutputDir, IncludeDirs, Options, Reporter),
-              erlide_log:logp("Done building!")
-            after 1000 ->
-              erlide_log:logp("builder timeout!")
+          %% if this node goes down, the link tells the reporter
+          link(Reporter),
+          try
+            Reporter ! {start, length(Files)},
+            Opts = [return, binary | mk_includes(IncludeDirs)] ++ Options,
+            do_build_resources(Files, [], workers(Workers), Opts, Reporter)
+          after
+            %% the files without a result are failed by the reporter
+            unlink(Reporter),
+            Reporter ! {stop, ok}
           end
-      end).
-
-do_build_resources(Files, OutputDir, IncludeDirs, Options, Reporter) ->
-  Fun = fun(F) ->
-          Res = (catch build_one_file(F, OutputDir, IncludeDirs, Options)),
-          Reporter ! {compile, Res},
-
-          %% TODO scan tasks
-
-          ok
-      end,
-  lists:foreach(Fun, Files),
-
-  %% TODO check code clashes
-
-  Reporter ! stop,
+      end),
   ok.
 
-build_one_file(F, OutputDir, IncludeDirs, Options) ->
-  erlide_log:logp("COMPILE ->  ~p ", [F]),
+workers(N) when is_integer(N), N > 0 ->
+  N;
+workers(_) ->
+  erlang:system_info(schedulers).
+
+%% Running is a list of {Pid, Source} for the files being compiled
+do_build_resources([], [], _Workers, _Opts, _Reporter) ->
+  ok;
+do_build_resources([{F, OutputDir} | Files], Running, Workers, Opts, Reporter)
+  when length(Running) < Workers ->
+  Self = self(),
+  {Pid, _Ref} = spawn_monitor(fun() ->
+                                  Res = build_one_file(F, OutputDir, Opts),
+                                  Self ! {built, self(), F, Res}
+                              end),
+  do_build_resources(Files, [{Pid, F} | Running], Workers, Opts, Reporter);
+do_build_resources(Files, Running, Workers, Opts, Reporter) ->
+  receive
+    {built, Pid, F, Res} ->
+      Reporter ! {progress, {F, Res}},
+      do_build_resources(Files, lists:keydelete(Pid, 1, Running), Workers, Opts, Reporter);
+    {'DOWN', _Ref, process, Pid, Reason} ->
+      %% a worker that reported its result is no longer in Running
+      case lists:keyfind(Pid, 1, Running) of
+        {Pid, F} ->
+          Msg = lists:flatten(io_lib:format("compiler crashed: ~p", [Reason])),
+          Reporter ! {progress, {F, {error, [{0, F, Msg, ?ERROR}], unknown}}},
+          do_build_resources(Files, lists:keydelete(Pid, 1, Running), Workers, Opts, Reporter);
+        false ->
+          do_build_resources(Files, Running, Workers, Opts, Reporter)
+      end
+  end.
+
+%% Runs in its own process, so the compiler is called directly instead of
+%% through the erlide_builder batch server.
+build_one_file(F, OutputDir, Opts) ->
   case filename:extension(F) of
     ".erl" ->
-      compile(F, OutputDir, IncludeDirs, Options);
+      compile_options(F, Opts, OutputDir);
     ".yrl" ->
       %% to be handled in http://www.assembla.com/spaces/erlide/tickets/679
       ErlF = filename:join(filename:dirname(F),
                  filename:basename(F, "yrl")++"erl"),
-      erlide_log:logp("YRL ->  ~p ", [{F, ErlF}]),
-      case compile_yrl(F, ErlF) of
+      case do_compile_yrl(F, ErlF) of
         {error, Msgs} ->
           {error, Msgs};
         {ok, Msgs, Out} ->
-          case compile(ErlF, OutputDir, IncludeDirs, Options) of
-            {ok, Msgs2, Out2} ->
-              {ok, Msgs++Msgs2, Out++Out2};
-            {error, Msgs2} ->
-              {error, Msgs++Msgs2}
+          case compile_options(ErlF, Opts, OutputDir) of
+            {ok, Msgs2, Out2, Deps} ->
+              {ok, Msgs++Msgs2, Out++Out2, Deps};
+            {error, Msgs2, Deps} ->
+              {error, Msgs++Msgs2, Deps}
           end
       end;
     _ ->
-      {error, [{0, F, "Don't know how to compile this file"}]}
+      {error, [{0, F, "Don't know how to compile this file", ?ERROR}]}
   end.
 
 %% TODO disabled inefficient scanning of source dirs, ticket #1300
@@ -0,0 +1,41 @@
+%%% ******************************************************************************
+%%%  Copyright (c) 2014 Vlad Dumitrescu and others.
+%%%  All rights reserved. This program and the accompanying materials
+%%%  are made available under the terms of the Eclipse Public License v1.0
+%%%  which accompanies this distribution, and is available at
+%%%  http://www.eclipse.org/legal/epl-v10.html
+%%%
+%%%  Contributors:
+%%%      Vlad Dumitrescu
+%%% ******************************************************************************/
+%%% Description : The files read by the preprocessor when compiling a module,
+%%%               i.e. all the headers it includes, directly or not.
+
+-module(erlide_include_deps).
+
+-export([options/0, collect/0, parse_transform/2]).
+
+%% Compile options that make the compiler report the dependencies to the
+%% calling process, to be retrieved with collect/0 after compile:file/2.
+options() ->
+    [{parse_transform, ?MODULE}, {?MODULE, self()}].
+
+%% The included files, or unknown if the compiler stopped before the
+%% parse transforms were run.
+collect() ->
+    receive
+        {?MODULE, Files} ->
+            Files
+    after 0 ->
+            unknown
+    end.
+
+parse_transform(Forms, Options) ->
+    case lists:keyfind(?MODULE, 1, Options) of
+        {?MODULE, Pid} ->
+            Files = lists:usort([File || {attribute, _, file, {File, _}} <- Forms]),
+            Pid ! {?MODULE, Files};
+        false ->
+            ok
+    end,
+    Forms.
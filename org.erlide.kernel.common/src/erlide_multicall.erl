@@ -0,0 +1,40 @@
+%%% ******************************************************************************
+%%%  Copyright (c) 2014 Vlad Dumitrescu and others.
+%%%  All rights reserved. This program and the accompanying materials
+%%%  are made available under the terms of the Eclipse Public License v1.0
+%%%  which accompanies this distribution, and is available at
+%%%  http://www.eclipse.org/legal/epl-v10.html
+%%%
+%%%  Contributors:
+%%%      Vlad Dumitrescu
+%%% ******************************************************************************/
+%% Description: Executes a list of calls sent from the IDE in one message,
+%%   so that a batch of small requests costs a single round trip.
+
+-module(erlide_multicall).
+
+%%
+%% Exported Functions
+%%
+-export([
+     call/1
+    ]).
+
+%% Calls is a list of {M, F, A}; the result is a list of {ok, Value} or
+%% {error, {Class, Reason}}, in the same order.
+call(Calls) when is_list(Calls) ->
+  [do_call(Call) || Call <- Calls].
+
+%%
+%% Local Functions
+%%
+
+do_call({M, F, A}) when is_atom(M), is_atom(F), is_list(A) ->
+  try
+    {ok, apply(M, F, A)}
+  catch
+    Class:Reason ->
+      {error, {Class, Reason}}
+  end;
+do_call(Other) ->
+  {error, {badarg, Other}}.
@@ -19,7 +19,7 @@
 
 %% External exports
 -export([start/2, stop/0, interpret/3, line_breakpoint/3]).
--export([resume/1, suspend/1, bindings/1, all_stack_frames/1, step_over/1]).
+-export([resume/1, suspend/1, bindings/1, bindings/2, all_stack_frames/1, step_over/1]).
 -export([step_into/1, step_return/1, eval/2, set_variable_value/4]).
 -export([tracing/2, drop_to_frame/2, all_modules_on_stack/1]).
 
@@ -277,6 +277,9 @@ gui_cmd({set_trace, {Bool, MetaPid}}, State) ->
 gui_cmd({bindings, MetaPid}, State) ->
     Res = dbg_icmd:get(MetaPid, bindings, nostack),
     {Res, State};
+gui_cmd({frame_bindings, {MetaPid, SP}}, State) ->
+    Res = dbg_icmd:get(MetaPid, bindings, SP),
+    {Res, State};
 gui_cmd({all_stack_frames, MetaPid}, State) ->
     Res = dbg_icmd:get(MetaPid, all_stack_frames, noargs),
     {Res, State};
@@ -422,6 +425,9 @@ set_variable_value(Variable, Value, SP, MetaPid) ->
 bindings(MetaPid) ->
     cmd(bindings, MetaPid).
 
+bindings(MetaPid, SP) ->
+    cmd(frame_bindings, {MetaPid, SP}).
+
 tracing(Bool, MetaPid) ->
     cmd(set_trace, {Bool, MetaPid}).
 
@@ -20,6 +20,12 @@
 %% -define(DebugStack(T), erlide_log:erlangLogStack(?MODULE, ?LINE, finest, T)).
 %% -define(Info(T), erlide_log:erlangLog(?MODULE, ?LINE, info, T)).
 
+%% values bigger than this (encoded, in bytes) are sent as a summary and
+%% their elements are fetched with value_slice/6
+-define(INLINE_SIZE, 4096).
+-define(PREVIEW_DEPTH, 12).
+-define(PREVIEW_LENGTH, 256).
+
 %%
 %% Exported Functions
 %%
@@ -35,7 +41,11 @@
          step_into/1,
          step_return/1,
          interpret/3,
+         interpret_modules/5,
          all_stack_frames/1,
+         stack_frames/1,
+         frame_bindings/2,
+         value_slice/6,
          all_modules_on_stack/1,
          tracing/2,
          eval/2,
@@ -133,6 +143,72 @@ get_dist(false) -> local.
 interpret(Module, Dist, Interpret) ->
     dbg_mon:interpret(Module, get_dist(Dist), Interpret).
 
+%% Interpret (or stop interpreting) Modules, with at most Workers of them
+%% being loaded at a time (one per scheduler if Workers isn't a positive
+%% integer). Reporter gets {start, NumberOfModules}, then
+%% {progress, {Module, Result}} as each one is done, and finally {stop, ok}.
+interpret_modules(Reporter, Modules, Dist, Interpret, Workers) ->
+    spawn(fun() ->
+                  %% if this node goes down, the link tells the reporter
+                  link(Reporter),
+                  try
+                      Reporter ! {start, length(Modules)},
+                      Cmd = {get_dist(Dist), Interpret},
+                      interpret_loop(Modules, [], workers(Workers), Cmd,
+                                     Reporter)
+                  after
+                      %% the modules without a result are failed by the
+                      %% reporter
+                      unlink(Reporter),
+                      Reporter ! {stop, ok}
+                  end
+          end),
+    ok.
+
+workers(N) when is_integer(N), N > 0 ->
+    N;
+workers(_) ->
+    erlang:system_info(schedulers).
+
+%% Running is a list of {Pid, Module}. The modules are loaded by the
+%% interpreter server, so they don't have to go through dbg_mon one by one.
+interpret_loop([], [], _Workers, _Cmd, _Reporter) ->
+    ok;
+interpret_loop([Module | Modules], Running, Workers, Cmd, Reporter)
+  when length(Running) < Workers ->
+    Self = self(),
+    {Pid, _Ref} = spawn_monitor(fun() ->
+                                        Res = do_interpret(Module, Cmd),
+                                        Self ! {interpreted, self(), Module, Res}
+                                end),
+    interpret_loop(Modules, [{Pid, Module} | Running], Workers, Cmd, Reporter);
+interpret_loop(Modules, Running, Workers, Cmd, Reporter) ->
+    receive
+        {interpreted, Pid, Module, Res} ->
+            Reporter ! {progress, {Module, Res}},
+            interpret_loop(Modules, lists:keydelete(Pid, 1, Running), Workers,
+                           Cmd, Reporter);
+        {'DOWN', _Ref, process, Pid, Reason} ->
+            case lists:keyfind(Pid, 1, Running) of
+                {Pid, Module} ->
+                    Reporter ! {progress, {Module, {error, Reason}}},
+                    interpret_loop(Modules, lists:keydelete(Pid, 1, Running),
+                                   Workers, Cmd, Reporter);
+                false ->
+                    interpret_loop(Modules, Running, Workers, Cmd, Reporter)
+            end
+    end.
+
+%% as dbg_mon does it
+do_interpret(Module, {local, true}) ->
+    int:i(Module);
+do_interpret(Module, {distributed, true}) ->
+    int:ni(Module);
+do_interpret(Module, {local, false}) ->
+    int:n(Module);
+do_interpret(Module, {distributed, false}) ->
+    int:nn(Module).
+
 line_breakpoint(File, Line, Action) ->
     ModuleName = filename:rootname(filename:basename(File)),
     Module = list_to_atom(ModuleName),
@@ -157,6 +233,133 @@ all_stack_frames(MetaPid) ->
 all_modules_on_stack(MetaPid) ->
     dbg_mon:all_modules_on_stack(MetaPid).
 
+%% As all_stack_frames/1, but without any bindings; they are fetched with
+%% frame_bindings/2 for the frames that are shown.
+stack_frames(MetaPid) ->
+    case all_stack_frames(MetaPid) of
+        {{Frames, Trace}, _Bs} when is_list(Frames) ->
+            {{[strip_bindings(F) || F <- Frames], Trace}, []};
+        {Frames, _Bs} when is_list(Frames) ->
+            {[strip_bindings(F) || F <- Frames], []};
+        Other ->
+            Other
+    end.
+
+strip_bindings({MFA, Line, _Bs, Level}) ->
+    {MFA, Line, [], Level};
+strip_bindings(Frame) ->
+    Frame.
+
+%% The bindings of the frame at level SP (the current ones if SP is above
+%% the stack), as [{Name, Value}], where Value is either {value, Term} or,
+%% for big terms, {large, Kind, Size, Preview}.
+frame_bindings(MetaPid, SP) ->
+    [{Name, summary(Value)} || {Name, Value} <- dbg_mon:bindings(MetaPid, SP)].
+
+%% Elements Offset .. Offset+Length-1 (0-based) of the term found by
+%% following Path, a list of element indexes, from the variable Name.
+%% Returns {binary, Bytes} for binaries and {terms, [Value]} otherwise, with
+%% Value as for frame_bindings/2.
+value_slice(MetaPid, SP, Name, Path, Offset, Length) ->
+    case lists:keyfind(Name, 1, dbg_mon:bindings(MetaPid, SP)) of
+        {Name, Value} ->
+            case catch slice(descend(Value, Path), Offset, Length) of
+                {'EXIT', Reason} ->
+                    {error, Reason};
+                Res ->
+                    Res
+            end;
+        false ->
+            {error, unbound}
+    end.
+
+summary(Value) ->
+    case erlang:external_size(Value) =< ?INLINE_SIZE of
+        true ->
+            {value, Value};
+        false ->
+            Kind = kind(Value),
+            {large, Kind, size(Kind, Value), preview(Value)}
+    end.
+
+kind(Value) when is_binary(Value) ->
+    binary;
+kind(Value) when is_tuple(Value) ->
+    tuple;
+kind(Value) when is_list(Value) ->
+    case catch length(Value) of
+        N when is_integer(N) ->
+            list;
+        _ ->
+            term
+    end;
+kind(Value) ->
+    case is_map_term(Value) of
+        true ->
+            map;
+        false ->
+            term
+    end.
+
+size(binary, Value) ->
+    byte_size(Value);
+size(tuple, Value) ->
+    tuple_size(Value);
+size(list, Value) ->
+    length(Value);
+size(map, Value) ->
+    maps:size(Value);
+size(term, _Value) ->
+    0.
+
+%% maps are not known by older runtimes
+is_map_term(Value) ->
+    (catch erlang:is_map(Value)) =:= true.
+
+preview(Value) ->
+    Text = lists:flatten(io_lib:format("~P", [Value, ?PREVIEW_DEPTH])),
+    unicode:characters_to_binary(truncate(Text, ?PREVIEW_LENGTH)).
+
+truncate(Text, Max) when length(Text) > Max ->
+    lists:sublist(Text, Max - 3) ++ "...";
+truncate(Text, _Max) ->
+    Text.
+
+descend(Value, []) ->
+    Value;
+descend(Value, [Index | Path]) ->
+    descend(element_at(kind(Value), Value, Index), Path).
+
+element_at(binary, Value, Index) ->
+    binary:at(Value, Index);
+element_at(tuple, Value, Index) ->
+    element(Index + 1, Value);
+element_at(list, Value, Index) ->
+    lists:nth(Index + 1, Value);
+element_at(map, Value, Index) ->
+    lists:nth(Index + 1, maps:to_list(Value)).
+
+slice(Value, Offset, Length) when is_binary(Value) ->
+    Size = byte_size(Value),
+    Start = erlang:min(Offset, Size),
+    {binary, binary:part(Value, Start, erlang:min(Length, Size - Start))};
+slice(Value, Offset, Length) when is_tuple(Value) ->
+    Last = erlang:min(Offset + Length, tuple_size(Value)),
+    {terms, [summary(element(I, Value)) || I <- lists:seq(Offset + 1, Last)]};
+slice(Value, Offset, Length) ->
+    Elements = case kind(Value) of
+                   list ->
+                       Value;
+                   map ->
+                       maps:to_list(Value)
+               end,
+    {terms, [summary(E) || E <- sublist(Elements, Offset, Length)]}.
+
+sublist(List, Offset, _Length) when Offset >= length(List) ->
+    [];
+sublist(List, Offset, Length) ->
+    lists:sublist(List, Offset + 1, Length).
+
 tracing(Bool, MetaPid) ->
     dbg_mon:tracing(Bool, MetaPid).
 
@@ -175,11 +378,27 @@ drop_to_frame(MetaPid, FrameNum) ->
 set_variable_value(Variable, Value, SP, MetaPid) ->
     dbg_mon:set_variable_value(Variable, Value, SP, MetaPid).
 
+%% The modules are loaded on all nodes at the same time.
 distribute_debugger_code(Modules) ->
-    [{rpc:multicall(code, purge, [Module]),
-      rpc:multicall(code, load_binary, [Module, Filename, Binary])
-     }
-     || {Module, Filename, Binary} <- Modules].
+    Self = self(),
+    Pids = [spawn_monitor(fun() ->
+                                  Res = {rpc:multicall(code, purge, [Module]),
+                                         rpc:multicall(code, load_binary,
+                                                       [Module, Filename,
+                                                        Binary])},
+                                  Self ! {self(), Res}
+                          end)
+            || {Module, Filename, Binary} <- Modules],
+    [distributed_result(Pid, Ref) || {Pid, Ref} <- Pids].
+
+distributed_result(Pid, Ref) ->
+    receive
+        {Pid, Res} ->
+            erlang:demonitor(Ref, [flush]),
+            Res;
+        {'DOWN', Ref, process, Pid, Reason} ->
+            {error, Reason}
+    end.
 
 unload_debugger_code(Modules) ->
     [rpc:cast(Node, ?MODULE, unload_my_debugger_code, [Modules]) || Node <- [node()|erlang:nodes()]].
@@ -20,7 +20,6 @@
 package com.ericsson.otp.erlang;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.Socket;
 import java.util.Random;
 
@@ -62,6 +61,7 @@ public abstract class AbstractConnection extends Thread {
 
     protected static final byte passThrough = (byte) 0x70;
     protected static final byte version = (byte) 0x83;
+    protected static final byte distHeader = (byte) 0x44;
 
     // Erlang message header tags
     protected static final int linkTag = 1;
@@ -85,7 +85,7 @@ public abstract class AbstractConnection extends Thread {
     private volatile boolean done = false;
 
     protected boolean connected = false; // connection status
-    protected Socket socket; // communication channel
+    protected OtpTransport socket; // communication channel
     protected OtpPeer peer; // who are we connected to
     protected OtpLocalNode self; // this nodes id
     String name; // local name of this connection
@@ -104,8 +104,16 @@ public abstract class AbstractConnection extends Thread {
 
     protected static final Random random;
 
+    private static final String transportKind = System.getProperty(
+            "OtpConnection.transport", "socket");
+
     private int flags = 0;
 
+    // non-null if both nodes use distribution headers with atom cache
+    private OtpAtomCache atomCache = null;
+    // scratch stream for packets with distribution header, used under lock
+    private final OtpOutputStream cachedBody = new OtpOutputStream();
+
     static {
         // trace this connection?
         final String trace = System.getProperties().getProperty("OtpConnection.trace");
@@ -138,9 +146,7 @@ public abstract class AbstractConnection extends Thread {
             throws IOException, OtpAuthException {
         this.self = self;
         peer = new OtpPeer();
-        socket = s;
-
-        socket.setTcpNoDelay(true);
+        socket = new OtpSocketTransport(s);
 
         traceLevel = defaultLevel;
         setDaemon(true);
@@ -200,6 +206,7 @@ public abstract class AbstractConnection extends Thread {
         doConnect(port);
 
         name = peer.node();
+        setupAtomCache();
         connected = true;
     }
 
@@ -230,6 +237,10 @@ public abstract class AbstractConnection extends Thread {
         if (!connected) {
             throw new IOException("Not connected");
         }
+        if (atomCache != null) {
+            sendCached(from, dest, null, payload, null);
+            return;
+        }
         final OtpOutputStream header = new OtpOutputStream(headerLen);
 
         // preamble: 4 byte length + "passthrough" tag + version
@@ -274,6 +285,10 @@ public abstract class AbstractConnection extends Thread {
         if (!connected) {
             throw new IOException("Not connected");
         }
+        if (atomCache != null) {
+            sendCached(from, null, dest, payload, null);
+            return;
+        }
         final OtpOutputStream header = new OtpOutputStream(headerLen);
 
         // preamble: 4 byte length + "passthrough" tag + version
@@ -300,6 +315,103 @@ public abstract class AbstractConnection extends Thread {
         do_send(header, payload);
     }
 
+    /**
+     * Determine if packets to the peer use a distribution header with atom
+     * cache, in which case messages should be sent with
+     * {@link #sendCached(OtpErlangPid, String, OtpErlangPid, OtpOutputStream, OtpErlangObject)}
+     * so that their atoms are cached too.
+     */
+    protected boolean usesAtomCache() {
+        return atomCache != null;
+    }
+
+    private void setupAtomCache() {
+        if ((self.flags & peer.flags & AbstractNode.dFlagDistHdrAtomCache) != 0) {
+            atomCache = new OtpAtomCache((self.flags & peer.flags
+                    & AbstractNode.dFlagUtf8Atoms) != 0);
+        }
+    }
+
+    /**
+     * Send a message in a packet with a distribution header. The destination
+     * is either a registered name or a pid. The message is either pre-encoded,
+     * in which case only the atoms in the control message go through the
+     * cache, or a term that is encoded here with cached atoms.
+     * 
+     * @return the size of the encoded message.
+     */
+    protected synchronized int sendCached(final OtpErlangPid from,
+            final String destName, final OtpErlangPid destPid,
+            final OtpOutputStream encoded, final OtpErlangObject msg)
+            throws IOException {
+        if (!connected) {
+            throw new IOException("Not connected");
+        }
+        final OtpOutputStream body = cachedBody;
+        try {
+            atomCache.reset();
+            body.atomCache = atomCache;
+            if (destName != null) {
+                body.write_tuple_head(4);
+                body.write_long(regSendTag);
+                body.write_any(from);
+                body.write_atom("");
+                body.write_atom(destName);
+            } else {
+                body.write_tuple_head(3);
+                body.write_long(sendTag);
+                body.write_atom("");
+                body.write_any(destPid);
+            }
+            final int ctrlSize = body.size();
+            if (msg != null) {
+                body.write_any(msg);
+            }
+            body.atomCache = null;
+
+            final OtpOutputStream header = new OtpOutputStream(headerLen);
+            header.write4BE(0); // reserve space for length
+            header.write1(version);
+            header.write1(distHeader);
+            atomCache.writeHeader(header);
+
+            final OtpOutputStream payload;
+            if (encoded != null) {
+                header.write(body.getBuf(), 0, body.size());
+                payload = encoded;
+            } else {
+                payload = body;
+            }
+            header.poke4BE(0, header.size() + payload.size() - 4);
+            do_send(header, payload);
+            return encoded != null ? encoded.size() : body.size() - ctrlSize;
+        } finally {
+            body.atomCache = null;
+            body.recycle();
+        }
+    }
+
+    /*
+     * Start a packet that is not sent through sendCached. Once the atom cache
+     * is agreed on, the peer takes only packets with a distribution header,
+     * so those get one without cache refs; the control message and payload
+     * then have no version byte.
+     */
+    private OtpOutputStream controlHeader() {
+        final OtpOutputStream header = new OtpOutputStream(headerLen);
+        header.write4BE(0); // reserve space for length
+        if (atomCache != null) {
+            header.write1(version);
+            header.write1(distHeader);
+            header.write1(0); // no atom cache refs
+        } else {
+            // "passthrough" tag + version
+            header.write1(passThrough);
+            header.write1(version);
+        }
+        return header;
+    }
+
     /*
      * Send an auth error to peer because he sent a bad cookie. The auth error
      * uses his cookie (not revealing ours). This is just like send_reg
@@ -308,12 +420,7 @@ public abstract class AbstractConnection extends Thread {
     private void cookieError(final OtpLocalNode local, final OtpErlangAtom cookie)
             throws OtpAuthException {
         try {
-            final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-            // preamble: 4 byte length + "passthrough" tag + version
-            header.write4BE(0); // reserve space for length
-            header.write1(passThrough);
-            header.write1(version);
+            final OtpOutputStream header = controlHeader();
 
             header.write_tuple_head(4);
             header.write_long(regSendTag);
@@ -322,8 +429,10 @@ public abstract class AbstractConnection extends Thread {
             // not mine...
             header.write_atom("auth");
 
-            // version for payload
-            header.write1(version);
+            if (atomCache == null) {
+                // version for payload
+                header.write1(version);
+            }
 
             // the payload
 
@@ -377,12 +486,7 @@ public abstract class AbstractConnection extends Thread {
         if (!connected) {
             throw new IOException("Not connected");
         }
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-        // preamble: 4 byte length + "passthrough" tag
-        header.write4BE(0); // reserve space for length
-        header.write1(passThrough);
-        header.write1(version);
+        final OtpOutputStream header = controlHeader();
 
         // header
         header.write_tuple_head(3);
@@ -413,12 +517,7 @@ public abstract class AbstractConnection extends Thread {
         if (!connected) {
             throw new IOException("Not connected");
         }
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-        // preamble: 4 byte length + "passthrough" tag
-        header.write4BE(0); // reserve space for length
-        header.write1(passThrough);
-        header.write1(version);
+        final OtpOutputStream header = controlHeader();
 
         // header
         header.write_tuple_head(3);
@@ -460,12 +559,7 @@ public abstract class AbstractConnection extends Thread {
         if (!connected) {
             throw new IOException("Not connected");
         }
-        final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-        // preamble: 4 byte length + "passthrough" tag
-        header.write4BE(0); // reserve space for length
-        header.write1(passThrough);
-        header.write1(version);
+        final OtpOutputStream header = controlHeader();
 
         // header
         header.write_tuple_head(4);
@@ -487,7 +581,6 @@ public abstract class AbstractConnection extends Thread {
             return;
         }
 
-        final byte[] lbuf = new byte[4];
         OtpInputStream ibuf;
         OtpErlangObject traceobj;
         int len;
@@ -502,27 +595,32 @@ public abstract class AbstractConnection extends Thread {
                 tick_loop:
                 do {
                     // read 4 bytes - get length of incoming packet
-                    // socket.getInputStream().read(lbuf);
-                    readSock(socket, lbuf);
-                    ibuf = new OtpInputStream(lbuf, flags);
-                    len = ibuf.read4BE();
+                    len = socket.read4BE();
 
                     // received tick? send tock!
                     if (len == 0) {
                         synchronized (this) {
-                            socket.getOutputStream().write(tock);
+                            socket.write(tock, 0, tock.length);
                         }
                     }
 
                 } while (len == 0); // tick_loop
 
-                // got a real message (maybe) - read len bytes
+                // got a real message (maybe) - read len bytes; this buffer
+                // becomes the body of the delivered message, so it can't be
+                // reused
                 final byte[] tmpbuf = new byte[len];
-                // i = socket.getInputStream().read(tmpbuf);
                 readSock(socket, tmpbuf);
                 ibuf = new OtpInputStream(tmpbuf, flags);
 
-                if (ibuf.read1() != passThrough) {
+                final int packetType = ibuf.read1();
+                if (packetType == (version & 0xff) && atomCache != null) {
+                    if (ibuf.read1() != distHeader) {
+                        break receive_loop;
+                    }
+                    // the terms that follow refer to these atoms
+                    ibuf.atomRefs = atomCache.readHeader(ibuf);
+                } else if (packetType != passThrough) {
                     break receive_loop;
                 }
 
@@ -709,6 +807,9 @@ public abstract class AbstractConnection extends Thread {
             deliver(new OtpErlangExit("Remote is sending garbage"));
         } catch (final IOException e) {
             deliver(new OtpErlangExit("Remote has closed connection"));
+        } catch (final RuntimeException e) {
+            // the mailboxes must learn that the connection is gone
+            deliver(new OtpErlangExit("Connection failed: " + e));
         } finally {
             close();
         }
@@ -814,8 +915,7 @@ public abstract class AbstractConnection extends Thread {
                 }
             }
 
-            header.writeTo(socket.getOutputStream());
-            payload.writeTo(socket.getOutputStream());
+            socket.write(header, payload);
         } catch (final IOException e) {
             close();
             throw e;
@@ -833,7 +933,7 @@ public abstract class AbstractConnection extends Thread {
                     System.out.println("   " + "can't decode output buffer: " + e);
                 }
             }
-            header.writeTo(socket.getOutputStream());
+            socket.write(header);
         } catch (final IOException e) {
             close();
             throw e;
@@ -886,38 +986,26 @@ public abstract class AbstractConnection extends Thread {
     }
 
     /* this method now throws exception if we don't get full read */
-    protected int readSock(final Socket s, final byte[] b) throws IOException {
-        int got = 0;
+    protected int readSock(final OtpTransport s, final byte[] b) throws IOException {
         final int len = b.length;
-        int i;
-        InputStream is = null;
-
-        synchronized (this) {
-            if (s == null) {
-                throw new IOException("expected " + len + " bytes, socket was closed");
-            }
-            is = s.getInputStream();
+        if (s == null) {
+            throw new IOException("expected " + len + " bytes, socket was closed");
         }
+        s.readFully(b, 0, len);
+        return len;
+    }
 
-        while (got < len) {
-            i = is.read(b, got, len - got);
-
-            if (i < 0) {
-                throw new IOException("expected " + len + " bytes, got EOF after " + got
-                        + " bytes");
-            } else if (i == 0 && len != 0) {
-                /*
-                 * This is a corner case. According to
-                 * http://java.sun.com/j2se/1.4.2/docs/api/ class InputStream
-                 * is.read(,,l) can only return 0 if l==0. In other words it
-                 * should not happen, but apparently did.
-                 */
-                throw new IOException("Remote connection closed");
-            } else {
-                got += i;
-            }
+    /**
+     * Create the transport for an outgoing connection. The default is chosen
+     * by the <code>OtpConnection.transport</code> system property:
+     * <code>socket</code> (the default) or <code>nio</code>.
+     */
+    protected OtpTransport createTransport(final String host, final int port)
+            throws IOException {
+        if ("socket".equals(transportKind)) {
+            return new OtpSocketTransport(host, port);
         }
-        return got;
+        return new OtpNioTransport(host, port);
     }
 
     protected void doAccept() throws IOException, OtpAuthException {
@@ -928,6 +1016,7 @@ public abstract class AbstractConnection extends Thread {
             final int her_challenge = recvChallengeReply(our_challenge);
             final byte[] our_digest = genDigest(her_challenge, self.cookie());
             sendChallengeAck(our_digest);
+            setupAtomCache();
             connected = true;
             cookieOk = true;
             sendCookie = false;
@@ -949,8 +1038,7 @@ public abstract class AbstractConnection extends Thread {
 
     protected void doConnect(final int port) throws IOException, OtpAuthException {
         try {
-            socket = new Socket(peer.host(), port);
-            socket.setTcpNoDelay(true);
+            socket = createTransport(peer.host(), port);
 
             if (traceLevel >= handshakeThreshold) {
                 System.out.println("-> MD5 CONNECT TO " + peer.host() + ":" + port);
@@ -1039,7 +1127,7 @@ public abstract class AbstractConnection extends Thread {
         obuf.write4BE(flags);
         obuf.write(str.getBytes());
 
-        obuf.writeTo(socket.getOutputStream());
+        socket.write(obuf);
 
         if (traceLevel >= handshakeThreshold) {
             System.out.println("-> " + "HANDSHAKE sendName" + " flags=" + flags
@@ -1059,7 +1147,7 @@ public abstract class AbstractConnection extends Thread {
         obuf.write4BE(challenge);
         obuf.write(str.getBytes());
 
-        obuf.writeTo(socket.getOutputStream());
+        socket.write(obuf);
 
         if (traceLevel >= handshakeThreshold) {
             System.out.println("-> " + "HANDSHAKE sendChallenge" + " flags=" + flags
@@ -1186,7 +1274,7 @@ public abstract class AbstractConnection extends Thread {
         obuf.write1(ChallengeReply);
         obuf.write4BE(challenge);
         obuf.write(digest);
-        obuf.writeTo(socket.getOutputStream());
+        socket.write(obuf);
 
         if (traceLevel >= handshakeThreshold) {
             System.out.println("-> " + "HANDSHAKE sendChallengeReply" + " challenge="
@@ -1244,7 +1332,7 @@ public abstract class AbstractConnection extends Thread {
         obuf.write1(ChallengeAck);
         obuf.write(digest);
 
-        obuf.writeTo(socket.getOutputStream());
+        socket.write(obuf);
 
         if (traceLevel >= handshakeThreshold) {
             System.out.println("-> " + "HANDSHAKE sendChallengeAck" + " digest="
@@ -1287,7 +1375,7 @@ public abstract class AbstractConnection extends Thread {
         obuf.write1(ChallengeStatus);
         obuf.write(status.getBytes());
 
-        obuf.writeTo(socket.getOutputStream());
+        socket.write(obuf);
 
         if (traceLevel >= handshakeThreshold) {
             System.out.println("-> " + "HANDSHAKE sendStatus" + " status=" + status
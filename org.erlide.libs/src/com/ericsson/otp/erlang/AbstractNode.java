@@ -91,6 +91,7 @@ public class AbstractNode {
     static final int dFlagBitBinaries = 0x400;
     static final int dFlagNewFloats = 0x800;
     static final int dFlagUnicodeIo = 0x1000;
+    static final int dFlagDistHdrAtomCache = 0x2000;
     static final int dFlagUtf8Atoms = 0x10000;
 
     int ntype = NTYPE_R6;
@@ -99,7 +100,9 @@ public class AbstractNode {
     int distLow = 5; // Cannot talk to nodes before R6
     int creation = 0;
     int flags = dFlagExtendedReferences | dFlagExtendedPidsPorts | dFlagBitBinaries
-            | dFlagNewFloats | dFlagFunTags | dflagNewFunTags | dFlagUtf8Atoms;
+            | dFlagNewFloats | dFlagFunTags | dflagNewFunTags | dFlagUtf8Atoms
+            | (Boolean.parseBoolean(System.getProperty("OtpConnection.atomCache",
+                    "true")) ? dFlagDistHdrAtomCache : 0);
 
     /* initialize hostname and default cookie */
     static {
@@ -18,36 +18,75 @@
  */
 package com.ericsson.otp.erlang;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
+ * <p>
  * This class implements a generic FIFO queue. There is no upper bound on the
  * length of the queue, items are linked.
+ * </p>
+ *
+ * <p>
+ * Producers (usually the connection reader threads) never block: an item is
+ * linked at the tail with a single atomic exchange, and a parked consumer is
+ * woken with {@link LockSupport#unpark(Thread)}. Consumers are serialized by a
+ * lock that producers never touch, so with the usual single receiving thread
+ * it is never contended. Timed gets use a {@link System#nanoTime()} deadline.
+ * </p>
+ *
+ * <p>
+ * Interrupts do not abort a get.
+ * </p>
  */
-
 public class GenericQueue {
+
+    private static final class Node {
+        volatile Node next;
+        Object contents;
+
+        Node(final Object o) {
+            contents = o;
+        }
+    }
+
     private static final int open = 0;
     private static final int closing = 1;
     private static final int closed = 2;
 
-    private int status;
-    private Bucket head;
-    private Bucket tail;
-    private int count;
+    private static final AtomicReferenceFieldUpdater<GenericQueue, Node> tailUpdater = AtomicReferenceFieldUpdater
+            .newUpdater(GenericQueue.class, Node.class, "tail");
 
-    private void init() {
-        head = null;
-        tail = null;
-        count = 0;
-    }
+    // consumer side, guarded by consumerLock; head is a sentinel
+    private Node head;
+    private final ReentrantLock consumerLock = new ReentrantLock();
+    private volatile Thread waiter;
+
+    // producer side
+    private volatile Node tail;
+    private final AtomicInteger count = new AtomicInteger();
+
+    private volatile int status;
 
     /** Create an empty queue */
     public GenericQueue() {
-        init();
+        head = tail = new Node(null);
         status = open;
     }
 
     /** Clear a queue */
     public void flush() {
-        init();
+        consumerLock.lock();
+        try {
+            while (poll() != null) {
+                // drop it
+            }
+        } finally {
+            consumerLock.unlock();
+        }
     }
 
     public void close() {
@@ -56,130 +95,135 @@ public class GenericQueue {
 
     /**
      * Add an object to the tail of the queue.
-     * 
+     *
      * @param o
      *            Object to insert in the queue
      */
-    public synchronized void put(final Object o) {
-        final Bucket b = new Bucket(o);
-
-        if (tail != null) {
-            tail.setNext(b);
-            tail = b;
-        } else {
-            // queue was empty but has one element now
-            head = tail = b;
+    public void put(final Object o) {
+        final Node n = new Node(o);
+        final Node prev = tailUpdater.getAndSet(this, n);
+        count.incrementAndGet();
+        // between the exchange and this link the consumer sees an empty
+        // queue; it is woken below if it parked in the meantime
+        prev.next = n;
+
+        final Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
         }
-        count++;
-
-        // notify any waiting tasks
-        notify();
     }
 
     /**
      * Retrieve an object from the head of the queue, or block until one
      * arrives.
-     * 
+     *
      * @return The object at the head of the queue.
      */
-    public synchronized Object get() {
-        Object o = null;
-
-        while ((o = tryGet()) == null) {
-            try {
-                this.wait();
-            } catch (final InterruptedException e) {
+    public Object get() {
+        consumerLock.lock();
+        try {
+            Object o;
+            while ((o = poll()) == null) {
+                waiter = Thread.currentThread();
+                if ((o = poll()) != null) {
+                    waiter = null;
+                    break;
+                }
+                LockSupport.park(this);
+                waiter = null;
+                // ignore interrupts
+                Thread.interrupted();
             }
+            return o;
+        } finally {
+            consumerLock.unlock();
         }
-        return o;
     }
 
     /**
      * Retrieve an object from the head of the queue, blocking until one arrives
      * or until timeout occurs.
-     * 
+     *
      * @param timeout
      *            Maximum time to block on queue, in ms. Use 0 to poll the
      *            queue.
-     * 
+     *
      * @exception InterruptedException
      *                if the operation times out.
-     * 
+     *
      * @return The object at the head of the queue, or null if none arrived in
      *         time.
      */
-    public synchronized Object get(final long timeout) throws InterruptedException {
+    public Object get(final long timeout) throws InterruptedException {
         if (status == closed) {
             return null;
         }
+        final long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeout);
 
-        long currentTime = System.currentTimeMillis();
-        final long stopTime = currentTime + timeout;
-        Object o = null;
-
-        while (true) {
-            if ((o = tryGet()) != null) {
-                return o;
-            }
-
-            currentTime = System.currentTimeMillis();
-            if (stopTime <= currentTime) {
-                throw new InterruptedException("Get operation timed out");
+        if (!lockConsumer(deadline)) {
+            throw new InterruptedException("Get operation timed out");
+        }
+        try {
+            while (true) {
+                Object o = poll();
+                if (o != null) {
+                    return o;
+                }
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new InterruptedException("Get operation timed out");
+                }
+                waiter = Thread.currentThread();
+                if ((o = poll()) != null) {
+                    waiter = null;
+                    return o;
+                }
+                LockSupport.parkNanos(this, remaining);
+                waiter = null;
+                Thread.interrupted();
             }
+        } finally {
+            consumerLock.unlock();
+        }
+    }
 
+    private boolean lockConsumer(final long deadline) {
+        while (true) {
             try {
-                this.wait(stopTime - currentTime);
+                return consumerLock.tryLock(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
             } catch (final InterruptedException e) {
-                // ignore, but really should retry operation instead
+                // ignore, like the rest of the gets
             }
         }
     }
 
     // attempt to retrieve message from queue head
     public Object tryGet() {
-        Object o = null;
-
-        if (head != null) {
-            o = head.getContents();
-            head = head.getNext();
-            count--;
-
-            if (head == null) {
-                tail = null;
-                count = 0;
-            }
+        consumerLock.lock();
+        try {
+            return poll();
+        } finally {
+            consumerLock.unlock();
         }
-
-        return o;
-    }
-
-    public synchronized int getCount() {
-        return count;
     }
 
-    /*
-     * The Bucket class. The queue is implemented as a linked list of Buckets.
-     * The container holds the queued object and a reference to the next Bucket.
-     */
-    static class Bucket {
-        private Bucket next;
-        private final Object contents;
-
-        public Bucket(final Object o) {
-            next = null;
-            contents = o;
-        }
-
-        public void setNext(final Bucket newNext) {
-            next = newNext;
-        }
-
-        public Bucket getNext() {
-            return next;
+    // must hold consumerLock
+    private Object poll() {
+        final Node next = head.next;
+        if (next == null) {
+            return null;
         }
+        final Object o = next.contents;
+        // next becomes the sentinel; don't keep the message alive
+        next.contents = null;
+        head = next;
+        count.decrementAndGet();
+        return o;
+    }
 
-        public Object getContents() {
-            return contents;
-        }
+    public int getCount() {
+        return count.get();
     }
 }
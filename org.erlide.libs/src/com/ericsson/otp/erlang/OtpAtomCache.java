@@ -0,0 +1,175 @@
+/*
+ * %CopyrightBegin%
+ *
+ * Copyright Ericsson AB 2000-2010. All Rights Reserved.
+ *
+ * The contents of this file are subject to the Erlang Public License,
+ * Version 1.1, (the "License"); you may not use this file except in
+ * compliance with the License. You should have received a copy of the
+ * Erlang Public License along with this software. If not, it can be
+ * retrieved online at http://www.erlang.org/.
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * %CopyrightEnd%
+ */
+package com.ericsson.otp.erlang;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * The atom caches of one connection, used when both nodes support the
+ * distribution header (DFLAG_DIST_HDR_ATOM_CACHE).
+ * 
+ * <p>
+ * Each direction has its own table of 2048 atoms, in 8 segments of 256. A
+ * packet starts with a header listing the cache entries it refers to, defining
+ * new ones with their text; atoms in the control message and payload are then
+ * encoded as ATOM_CACHE_REF with an index in that list. The text of the
+ * entries is UTF-8 if both nodes have DFLAG_UTF8_ATOMS, Latin-1 otherwise.
+ * </p>
+ * 
+ * <p>
+ * The receiving side is only used from the connection's reader thread. The
+ * sending side must be used while holding the connection's lock, so that
+ * cache updates reach the peer in the same order as they are made.
+ * </p>
+ */
+public class OtpAtomCache {
+
+    static final int cacheSize = 2048;
+    static final int maxRefs = 255;
+
+    private static final OtpErlangAtom[] noRefs = new OtpErlangAtom[0];
+
+    private final boolean utf8;
+    private final OtpErlangAtom[] received = new OtpErlangAtom[cacheSize];
+    private final String[] sent = new String[cacheSize];
+    // the encoded text of the sent entries
+    private final byte[][] sentText = new byte[cacheSize][];
+
+    // refs of the packet being encoded
+    private final int[] refSlots = new int[maxRefs];
+    private final boolean[] refNew = new boolean[maxRefs];
+    private int refCount = 0;
+
+    public OtpAtomCache(final boolean utf8) {
+        this.utf8 = utf8;
+    }
+
+    /**
+     * Decode the atom cache part of a distribution header, updating the
+     * receive cache.
+     * 
+     * @return the atoms referred to by the packet, by reference index.
+     */
+    public OtpErlangAtom[] readHeader(final OtpInputStream ibuf) throws OtpErlangDecodeException {
+        final int n = ibuf.read1();
+        if (n == 0) {
+            return noRefs;
+        }
+        final byte[] flags = new byte[n / 2 + 1];
+        ibuf.readN(flags);
+        final boolean longAtoms = (halfByte(flags, n) & 1) != 0;
+        final OtpErlangAtom[] refs = new OtpErlangAtom[n];
+        for (int i = 0; i < n; i++) {
+            final int f = halfByte(flags, i);
+            final int slot = (f & 7) << 8 | ibuf.read1();
+            if ((f & 8) != 0) {
+                final int len = longAtoms ? ibuf.read2BE() : ibuf.read1();
+                received[slot] = ibuf.read_atom_text(len, utf8);
+            } else if (received[slot] == null) {
+                throw new OtpErlangDecodeException("Unknown atom cache entry " + slot);
+            }
+            refs[i] = received[slot];
+        }
+        return refs;
+    }
+
+    private static int halfByte(final byte[] flags, final int i) {
+        return flags[i / 2] >> (i & 1) * 4 & 0xF;
+    }
+
+    /** Start encoding a new packet. */
+    public void reset() {
+        refCount = 0;
+    }
+
+    /**
+     * Get the reference index for an atom in the packet being encoded, adding
+     * a cache entry if needed.
+     * 
+     * @return the index, or -1 if the atom has to be encoded in full.
+     */
+    public int ref(final String atom) {
+        final int slot = (atom.hashCode() & 0x7fffffff) % cacheSize;
+        for (int i = 0; i < refCount; i++) {
+            if (refSlots[i] == slot) {
+                // same slot used twice in one packet: only if same atom
+                return atom.equals(sent[slot]) ? i : -1;
+            }
+        }
+        if (refCount == maxRefs || atom.length() > OtpExternal.maxAtomLength) {
+            return -1;
+        }
+        final boolean isNew = !atom.equals(sent[slot]);
+        if (isNew) {
+            final byte[] text = encode(atom);
+            if (text == null || text.length > 255) {
+                return -1;
+            }
+            sent[slot] = atom;
+            sentText[slot] = text;
+        }
+        refSlots[refCount] = slot;
+        refNew[refCount] = isNew;
+        return refCount++;
+    }
+
+    /**
+     * @return the text of the atom, or null if it can't be encoded in Latin-1
+     *         and the peer does not take UTF-8.
+     */
+    private byte[] encode(final String atom) {
+        if (!utf8) {
+            for (int i = 0; i < atom.length(); i++) {
+                if (atom.charAt(i) > 0xff) {
+                    return null;
+                }
+            }
+        }
+        try {
+            return atom.getBytes(utf8 ? "UTF-8" : "ISO-8859-1");
+        } catch (final UnsupportedEncodingException e) {
+            // can't happen, both are always supported
+            return null;
+        }
+    }
+
+    /** Write the atom cache part of the header for the packet being encoded. */
+    public void writeHeader(final OtpOutputStream obuf) {
+        obuf.write1(refCount);
+        if (refCount == 0) {
+            return;
+        }
+        // the last half byte holds the LongAtoms flag, always 0 here
+        final byte[] flags = new byte[refCount / 2 + 1];
+        for (int i = 0; i < refCount; i++) {
+            final int f = (refNew[i] ? 8 : 0) | refSlots[i] >> 8;
+            flags[i / 2] |= f << (i & 1) * 4;
+        }
+        obuf.writeN(flags);
+        for (int i = 0; i < refCount; i++) {
+            final int slot = refSlots[i];
+            obuf.write1(slot & 0xff);
+            if (refNew[i]) {
+                final byte[] text = sentText[slot];
+                obuf.write1(text.length);
+                obuf.writeN(text);
+            }
+        }
+    }
+}
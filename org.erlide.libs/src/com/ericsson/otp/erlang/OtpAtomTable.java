@@ -0,0 +1,105 @@
+/*
+ * %CopyrightBegin%
+ *
+ * Copyright Ericsson AB 2000-2010. All Rights Reserved.
+ *
+ * The contents of this file are subject to the Erlang Public License,
+ * Version 1.1, (the "License"); you may not use this file except in
+ * compliance with the License. You should have received a copy of the
+ * Erlang Public License along with this software. If not, it can be
+ * retrieved online at http://www.erlang.org/.
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * %CopyrightEnd%
+ */
+package com.ericsson.otp.erlang;
+
+import java.nio.charset.Charset;
+
+/**
+ * A bounded table of decoded atoms, shared by all input streams, so that
+ * decoding the same atom text again returns the same {@link OtpErlangAtom}
+ * without allocating.
+ * 
+ * <p>
+ * The table is direct-mapped on a hash of the encoded text: a colliding atom
+ * simply replaces the previous entry. Entries are immutable, so the table can
+ * be read and updated concurrently without locking; the worst case of a race
+ * is a lost entry. The size can be set with the
+ * <code>OtpInputStream.atomTableSize</code> system property (default 4096).
+ * </p>
+ */
+final class OtpAtomTable {
+
+    private static final Charset latin1 = Charset.forName("ISO-8859-1");
+    private static final Charset utf8 = Charset.forName("UTF-8");
+
+    private static final int size = powerOfTwo(Integer.getInteger(
+            "OtpInputStream.atomTableSize", 4096).intValue());
+    private static final Entry[] table = new Entry[size];
+
+    private static final class Entry {
+        final byte[] text;
+        final boolean isUtf8;
+        final OtpErlangAtom atom;
+
+        Entry(final byte[] text, final boolean isUtf8, final OtpErlangAtom atom) {
+            this.text = text;
+            this.isUtf8 = isUtf8;
+            this.atom = atom;
+        }
+
+        boolean matches(final byte[] buf, final int off, final int len,
+                final boolean utf) {
+            if (text.length != len || isUtf8 != utf) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (text[i] != buf[off + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private OtpAtomTable() {
+    }
+
+    private static int powerOfTwo(final int n) {
+        int p = 16;
+        while (p < n && p < 1 << 20) {
+            p <<= 1;
+        }
+        return p;
+    }
+
+    /**
+     * Get the atom whose encoded text is at <code>buf[off..off+len)</code>.
+     * The text must be at most {@link OtpExternal#maxAtomLength} bytes long.
+     */
+    static OtpErlangAtom lookup(final byte[] buf, final int off, final int len,
+            final boolean isUtf8) {
+        int h = isUtf8 ? 1 : 0;
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + buf[off + i];
+        }
+        h ^= h >>> 16;
+        final int index = h & size - 1;
+
+        final Entry e = table[index];
+        if (e != null && e.matches(buf, off, len, isUtf8)) {
+            return e.atom;
+        }
+        final OtpErlangAtom atom = new OtpErlangAtom(new String(buf, off, len,
+                isUtf8 ? utf8 : latin1));
+        final byte[] text = new byte[len];
+        System.arraycopy(buf, off, text, 0, len);
+        table[index] = new Entry(text, isUtf8, atom);
+        return atom;
+    }
+}
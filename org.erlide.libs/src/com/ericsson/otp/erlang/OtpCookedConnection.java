@@ -149,20 +149,40 @@ public class OtpCookedConnection extends AbstractConnection {
     /*
      * send to pid
      */
-    void send(final OtpErlangPid from, final OtpErlangPid dest, final OtpErlangObject msg)
+    int send(final OtpErlangPid from, final OtpErlangPid dest, final OtpErlangObject msg)
             throws IOException {
+        if (usesAtomCache()) {
+            return sendCached(from, null, dest, null, msg);
+        }
         // encode and send the message
-        sendBuf(from, dest, new OtpOutputStream(msg));
+        final OtpOutputStream payload = OtpOutputStream.reusableStream();
+        try {
+            payload.write_any(msg);
+            sendBuf(from, dest, payload);
+            return payload.size();
+        } finally {
+            payload.recycle();
+        }
     }
 
     /*
      * send to remote name dest is recipient's registered name, the nodename is
      * implied by the choice of connection.
      */
-    void send(final OtpErlangPid from, final String dest, final OtpErlangObject msg)
+    int send(final OtpErlangPid from, final String dest, final OtpErlangObject msg)
             throws IOException {
+        if (usesAtomCache()) {
+            return sendCached(from, dest, null, null, msg);
+        }
         // encode and send the message
-        sendBuf(from, dest, new OtpOutputStream(msg));
+        final OtpOutputStream payload = OtpOutputStream.reusableStream();
+        try {
+            payload.write_any(msg);
+            sendBuf(from, dest, payload);
+            return payload.size();
+        } finally {
+            payload.recycle();
+        }
     }
 
     @Override
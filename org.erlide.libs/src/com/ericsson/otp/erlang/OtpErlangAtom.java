@@ -132,12 +132,16 @@ public class OtpErlangAtom extends OtpErlangObject implements Serializable, Clon
     @Override
     public boolean equals(final Object o) {
 
+        if (o == this) {
+            // decoded atoms are shared, so this is the common case
+            return true;
+        }
         if (!(o instanceof OtpErlangAtom)) {
             return false;
         }
 
         final OtpErlangAtom atom = (OtpErlangAtom) o;
-        return this.atom.compareTo(atom.atom) == 0;
+        return this.atom.equals(atom.atom);
     }
 
     @Override
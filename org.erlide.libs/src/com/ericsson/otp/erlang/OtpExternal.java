@@ -97,6 +97,9 @@ public class OtpExternal {
     /** The tag used for small unicode atoms */
     public static final int smallAtomUtf8Tag = 119;
 
+    /** The tag used for atoms referring to the distribution atom cache */
+    public static final int atomCacheRefTag = 82;
+
     /** The tag used for compressed terms */
     public static final int compressedTag = 80;
 
@@ -35,6 +35,9 @@ public class OtpInputStream extends ByteArrayInputStream {
 
     private final int flags;
 
+    // the atoms referred to by the distribution header of this packet, if any
+    OtpErlangAtom[] atomRefs = null;
+
     /**
      * @param buf
      */
@@ -73,6 +76,16 @@ public class OtpInputStream extends ByteArrayInputStream {
 	return super.pos;
     }
 
+    /**
+     * Get the position of the end of the stream, i.e. the number of bytes of
+     * the underlying buffer that belong to the stream.
+     * 
+     * @return the end position of the stream.
+     */
+    public int size() {
+	return super.count;
+    }
+
     /**
      * Set the current position in the stream.
      * 
@@ -350,68 +363,79 @@ public class OtpInputStream extends ByteArrayInputStream {
      *                if the next term in the stream is not an atom.
      */
     public String read_atom() throws OtpErlangDecodeException {
-	int tag;
-	int len = -1;
-	byte[] strbuf;
-	String atom;
+	return read_shared_atom().atomValue();
+    }
 
-	tag = read1skip_version();
+    /**
+     * Read an Erlang atom from the stream. Atoms that fit in the shared atom
+     * table are returned from it, so the same instance may be returned for
+     * every occurrence of an atom.
+     * 
+     * @return the atom.
+     * 
+     * @exception OtpErlangDecodeException
+     *                if the next term in the stream is not an atom.
+     */
+    public OtpErlangAtom read_shared_atom() throws OtpErlangDecodeException {
+	final int tag = read1skip_version();
 
 	switch (tag) {
 
-	case OtpExternal.atomTag:
-	    len = read2BE();
-	    strbuf = new byte[len];
-	    this.readN(strbuf);
-	    try {
-		atom = new String(strbuf, "ISO-8859-1");
-	    } catch (final java.io.UnsupportedEncodingException e) {
+	case OtpExternal.atomCacheRefTag:
+	    final int ref = read1();
+	    if (atomRefs == null || ref >= atomRefs.length) {
 		throw new OtpErlangDecodeException(
-		    "Failed to decode ISO-8859-1 atom");
-	    }
-	    if (atom.length() > OtpExternal.maxAtomLength) {
-		/*
-		 * Throwing an exception would be better I think,
-		 * but truncation seems to be the way it has
-		 * been done in other parts of OTP...
-		 */
-		atom = atom.substring(0, OtpExternal.maxAtomLength);
+		    "Atom cache reference " + ref + " not in distribution header");
 	    }
-	    break;
+	    return atomRefs[ref];
+
+	case OtpExternal.atomTag:
+	    return read_atom_text(read2BE(), false);
 
 	case OtpExternal.smallAtomUtf8Tag:
-	    len = read1();
-	    /* fall through */
+	    return read_atom_text(read1(), true);
+
 	case OtpExternal.atomUtf8Tag:
-	    if (len < 0) {
-		len = read2BE();
-	    }
-	    strbuf = new byte[len];
-	    this.readN(strbuf);
-	    try {
-		atom = new String(strbuf, "UTF-8");
-	    } catch (final java.io.UnsupportedEncodingException e) {
-		throw new OtpErlangDecodeException(
-		    "Failed to decode UTF-8 atom");
-	    }
-	    if (atom.codePointCount(0, atom.length()) > OtpExternal.maxAtomLength) {
-		/*
-		 * Throwing an exception would be better I think,
-		 * but truncation seems to be the way it has
-		 * been done in other parts of OTP...
-		 */
-		final int[] cps = OtpErlangString.stringToCodePoints(atom);
-		atom = new String(cps, 0, OtpExternal.maxAtomLength);
-	    }
-	    break;
+	    return read_atom_text(read2BE(), true);
 
 	default:
 	    throw new OtpErlangDecodeException(
 		"wrong tag encountered, expected " + OtpExternal.atomTag
 		+ ", or "  + OtpExternal.atomUtf8Tag + ", got " + tag);
 	}
+    }
+
+    // package scope, also used for the atom cache entries of a distribution
+    // header
+    OtpErlangAtom read_atom_text(final int len, final boolean utf8)
+	    throws OtpErlangDecodeException {
+	if (len <= OtpExternal.maxAtomLength && len <= available()) {
+	    // decode in place, through the shared table
+	    final OtpErlangAtom atom = OtpAtomTable.lookup(super.buf, super.pos,
+		    len, utf8);
+	    super.pos += len;
+	    return atom;
+	}
 
-	return atom;
+	final byte[] strbuf = new byte[len];
+	this.readN(strbuf);
+	String atom;
+	try {
+	    atom = new String(strbuf, utf8 ? "UTF-8" : "ISO-8859-1");
+	} catch (final java.io.UnsupportedEncodingException e) {
+	    throw new OtpErlangDecodeException("Failed to decode "
+		    + (utf8 ? "UTF-8" : "ISO-8859-1") + " atom");
+	}
+	if (atom.codePointCount(0, atom.length()) > OtpExternal.maxAtomLength) {
+	    /*
+	     * Throwing an exception would be better I think,
+	     * but truncation seems to be the way it has
+	     * been done in other parts of OTP...
+	     */
+	    final int[] cps = OtpErlangString.stringToCodePoints(atom);
+	    atom = new String(cps, 0, OtpExternal.maxAtomLength);
+	}
+	return new OtpErlangAtom(atom);
     }
 
     /**
@@ -1166,6 +1190,7 @@ public class OtpInputStream extends ByteArrayInputStream {
 	}
 
 	final OtpInputStream ois = new OtpInputStream(buf, flags);
+	ois.atomRefs = atomRefs;
 	return ois.read_any();
     }
 
@@ -1192,7 +1217,8 @@ public class OtpInputStream extends ByteArrayInputStream {
 	case OtpExternal.atomTag:
 	case OtpExternal.smallAtomUtf8Tag:
 	case OtpExternal.atomUtf8Tag:
-	    return new OtpErlangAtom(this);
+	case OtpExternal.atomCacheRefTag:
+	    return read_shared_atom();
 
 	case OtpExternal.floatTag:
 	case OtpExternal.newFloatTag:
@@ -372,8 +372,10 @@ public class OtpMbox {
      * @param msg
      *            the body of the message to send.
      * 
+     * @return the size of the encoded message, or 0 if it was delivered
+     *         locally or could not be sent.
      */
-    public void send(final String name, final String node, final OtpErlangObject msg) {
+    public int send(final String name, final String node, final OtpErlangObject msg) {
         try {
             final String currentNode = home.node();
             if (node.equals(currentNode)) {
@@ -385,12 +387,13 @@ public class OtpMbox {
                 // other node
                 final OtpCookedConnection conn = home.getConnection(node);
                 if (conn == null) {
-                    return;
+                    return 0;
                 }
-                conn.send(self, name, msg);
+                return conn.send(self, name, msg);
             }
         } catch (final Exception e) {
         }
+        return 0;
     }
 
     /**
@@ -148,6 +148,17 @@ public class OtpMsg {
         return paybuf;
     }
 
+    /**
+     * Get the size of the message as it was received from the connection,
+     * including the control message.
+     * 
+     * @return the size in bytes, or -1 if the message was delivered locally
+     *         without being encoded.
+     */
+    public int getMsgSize() {
+        return paybuf == null ? -1 : paybuf.size();
+    }
+
     /**
      * <p>
      * Get the type marker from this message. The type marker identifies the
@@ -0,0 +1,210 @@
+/*
+ * %CopyrightBegin%
+ *
+ * Copyright Ericsson AB 2000-2010. All Rights Reserved.
+ *
+ * The contents of this file are subject to the Erlang Public License,
+ * Version 1.1, (the "License"); you may not use this file except in
+ * compliance with the License. You should have received a copy of the
+ * Erlang Public License along with this software. If not, it can be
+ * retrieved online at http://www.erlang.org/.
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * %CopyrightEnd%
+ */
+package com.ericsson.otp.erlang;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A transport over a blocking {@link SocketChannel}.
+ * 
+ * <p>
+ * Reads go through a direct buffer, so that several small packets are fetched
+ * with one system call and large ones are read straight into their
+ * destination. Writes of a header and a payload that fit together in the
+ * direct write buffer are done with a single call; larger ones use a gathering
+ * write. The direct buffers are pooled, since they are expensive to allocate.
+ * </p>
+ */
+public class OtpNioTransport implements OtpTransport {
+
+    private static final int bufferSize = 64 * 1024;
+    private static final int maxPooled = 16;
+    private static final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    private final SocketChannel channel;
+    private ByteBuffer readBuf;
+    private ByteBuffer writeBuf;
+    private volatile Thread reader;
+
+    public OtpNioTransport(final SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(true);
+        channel.socket().setTcpNoDelay(true);
+        readBuf = acquire();
+        // nothing read yet
+        readBuf.flip();
+        writeBuf = acquire();
+    }
+
+    public OtpNioTransport(final String host, final int port) throws IOException {
+        this(SocketChannel.open(new InetSocketAddress(host, port)));
+    }
+
+    private static ByteBuffer acquire() {
+        final ByteBuffer b = pool.poll();
+        if (b != null) {
+            b.clear();
+            return b;
+        }
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    private static void release(final ByteBuffer b) {
+        if (b != null && pool.size() < maxPooled) {
+            pool.offer(b);
+        }
+    }
+
+    // a read after close fails here instead of using a released buffer
+    private synchronized ByteBuffer readBuffer() throws IOException {
+        if (readBuf == null) {
+            throw new IOException("Connection closed");
+        }
+        reader = Thread.currentThread();
+        return readBuf;
+    }
+
+    // refill the read buffer, blocking until at least one byte is available
+    private void fill(final ByteBuffer buf) throws IOException {
+        buf.compact();
+        try {
+            if (channel.read(buf) < 0) {
+                throw new IOException("Remote connection closed");
+            }
+        } finally {
+            buf.flip();
+        }
+    }
+
+    @Override
+    public void readFully(final byte[] b, final int off, final int len)
+            throws IOException {
+        final ByteBuffer buf = readBuffer();
+        int got = Math.min(len, buf.remaining());
+        buf.get(b, off, got);
+        if (len - got >= buf.capacity()) {
+            // large packet, skip the intermediate copy
+            final ByteBuffer dst = ByteBuffer.wrap(b, off + got, len - got);
+            while (dst.hasRemaining()) {
+                if (channel.read(dst) < 0) {
+                    throw new IOException("expected " + len + " bytes, got EOF after "
+                            + (len - dst.remaining()) + " bytes");
+                }
+            }
+            return;
+        }
+        while (got < len) {
+            fill(buf);
+            final int n = Math.min(len - got, buf.remaining());
+            buf.get(b, off + got, n);
+            got += n;
+        }
+    }
+
+    @Override
+    public int read4BE() throws IOException {
+        final ByteBuffer buf = readBuffer();
+        while (buf.remaining() < 4) {
+            fill(buf);
+        }
+        // ByteBuffers are big-endian by default
+        return buf.getInt();
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        writeFully(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public void write(final OtpOutputStream buf) throws IOException {
+        writeFully(ByteBuffer.wrap(buf.getBuf(), 0, buf.size()));
+    }
+
+    @Override
+    public void write(final OtpOutputStream header, final OtpOutputStream payload)
+            throws IOException {
+        if (writeBuf == null) {
+            throw new IOException("Connection closed");
+        }
+        final int hlen = header.size();
+        final int plen = payload.size();
+        if (hlen + plen <= writeBuf.capacity()) {
+            writeBuf.clear();
+            writeBuf.put(header.getBuf(), 0, hlen);
+            writeBuf.put(payload.getBuf(), 0, plen);
+            writeBuf.flip();
+            writeFully(writeBuf);
+        } else {
+            writeFully(ByteBuffer.wrap(header.getBuf(), 0, hlen),
+                    ByteBuffer.wrap(payload.getBuf(), 0, plen));
+        }
+    }
+
+    /*
+     * A channel is closed when a thread blocked on it is interrupted, which
+     * would take the whole connection down because a caller was cancelled.
+     * So the interrupt status of the writer is cleared for the duration of the
+     * write and restored afterwards.
+     */
+    private void writeFully(final ByteBuffer... bufs) throws IOException {
+        final boolean interrupted = Thread.interrupted();
+        try {
+            final ByteBuffer last = bufs[bufs.length - 1];
+            while (last.hasRemaining()) {
+                channel.write(bufs);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Writes are serialized by the connection, which also holds its lock when
+     * closing, so the write buffer can always go back to the pool. The read
+     * buffer is only returned when the reader itself closes or there has been
+     * no reader yet, otherwise it might still be in use.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            synchronized (this) {
+                release(writeBuf);
+                writeBuf = null;
+                if (reader == null || reader == Thread.currentThread()) {
+                    release(readBuf);
+                    readBuf = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(channel.socket().getRemoteSocketAddress());
+    }
+}
@@ -49,8 +49,21 @@ public class OtpOutputStream extends ByteArrayOutputStream {
     private static final BigDecimal ten = new BigDecimal(10.0);
     private static final BigDecimal one = new BigDecimal(1.0);
 
+    /** Streams larger than this are not kept for reuse. * */
+    private static final int maxReusedSize = 64 * 1024;
+
+    private static final ThreadLocal<OtpOutputStream> reusable = new ThreadLocal<OtpOutputStream>() {
+	@Override
+	protected OtpOutputStream initialValue() {
+	    return new OtpOutputStream();
+	}
+    };
+
     private int fixedSize = Integer.MAX_VALUE;
 
+    // set by the connection while encoding a packet with a distribution header
+    OtpAtomCache atomCache = null;
+
     /**
      * Create a stream with the default initial size (2048 bytes).
      */
@@ -73,6 +86,39 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 	write_any(o);
     }
 
+    /**
+     * Get an empty stream owned by the calling thread, for encoding a message
+     * that is sent right away. The contents are only valid until the next call
+     * to this method from the same thread; call {@link #recycle()} when done.
+     * 
+     * @return an empty stream, possibly with a previously grown buffer.
+     */
+    public static OtpOutputStream reusableStream() {
+	final OtpOutputStream s = reusable.get();
+	s.reset();
+	return s;
+    }
+
+    /**
+     * Empty this stream, dropping its buffer if it has grown too large to be
+     * worth keeping around.
+     */
+    public void recycle() {
+	if (super.buf.length > maxReusedSize) {
+	    super.buf = new byte[defaultInitialSize];
+	}
+	super.count = 0;
+    }
+
+    // package scope
+    /*
+     * Get the underlying array, valid up to size(). Used by the transports to
+     * write the contents without copying.
+     */
+    byte[] getBuf() {
+	return super.buf;
+    }
+
     // package scope
     /*
      * Get the contents of the output stream as an input stream instead. This is
@@ -391,6 +437,15 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 				  0, OtpExternal.maxAtomLength);
 	}
 
+	if (atomCache != null) {
+	    final int ref = atomCache.ref(enc_atom);
+	    if (ref >= 0) {
+		write1(OtpExternal.atomCacheRefTag);
+		write1(ref);
+		return;
+	    }
+	}
+
 	for (int offset = 0; offset < enc_atom.length();) {
 	    final int cp = enc_atom.codePointAt(offset);
 	    if ((cp & ~0xFF) != 0) {
@@ -0,0 +1,115 @@
+/*
+ * %CopyrightBegin%
+ *
+ * Copyright Ericsson AB 2000-2010. All Rights Reserved.
+ *
+ * The contents of this file are subject to the Erlang Public License,
+ * Version 1.1, (the "License"); you may not use this file except in
+ * compliance with the License. You should have received a copy of the
+ * Erlang Public License along with this software. If not, it can be
+ * retrieved online at http://www.erlang.org/.
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * %CopyrightEnd%
+ */
+package com.ericsson.otp.erlang;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * A transport over the streams of a plain {@link Socket}. Both directions are
+ * buffered, so that small packets are read in bulk and a header and its
+ * payload leave in a single write.
+ */
+public class OtpSocketTransport implements OtpTransport {
+
+    private static final int bufferSize = 64 * 1024;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+
+    public OtpSocketTransport(final Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        in = new BufferedInputStream(socket.getInputStream(), bufferSize);
+        out = new BufferedOutputStream(socket.getOutputStream(), bufferSize);
+    }
+
+    public OtpSocketTransport(final String host, final int port) throws IOException {
+        this(new Socket(host, port));
+    }
+
+    @Override
+    public void readFully(final byte[] b, final int off, final int len)
+            throws IOException {
+        int got = 0;
+        while (got < len) {
+            final int i = in.read(b, off + got, len - got);
+            if (i < 0) {
+                throw new IOException("expected " + len + " bytes, got EOF after " + got
+                        + " bytes");
+            } else if (i == 0) {
+                /*
+                 * According to the InputStream documentation, read(,,l) can only
+                 * return 0 if l==0. In other words it should not happen, but
+                 * apparently did.
+                 */
+                throw new IOException("Remote connection closed");
+            }
+            got += i;
+        }
+    }
+
+    @Override
+    public int read4BE() throws IOException {
+        int res = 0;
+        for (int i = 0; i < 4; i++) {
+            final int b = in.read();
+            if (b < 0) {
+                throw new IOException("expected 4 bytes, got EOF after " + i + " bytes");
+            }
+            res = res << 8 | b;
+        }
+        return res;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        out.write(b, off, len);
+        out.flush();
+    }
+
+    @Override
+    public void write(final OtpOutputStream buf) throws IOException {
+        buf.writeTo(out);
+        out.flush();
+    }
+
+    @Override
+    public void write(final OtpOutputStream header, final OtpOutputStream payload)
+            throws IOException {
+        header.writeTo(out);
+        payload.writeTo(out);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @Override
+    public String toString() {
+        return socket.getInetAddress() + ":" + socket.getPort();
+    }
+}
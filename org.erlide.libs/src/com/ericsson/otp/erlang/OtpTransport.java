@@ -0,0 +1,69 @@
+/*
+ * %CopyrightBegin%
+ *
+ * Copyright Ericsson AB 2000-2010. All Rights Reserved.
+ *
+ * The contents of this file are subject to the Erlang Public License,
+ * Version 1.1, (the "License"); you may not use this file except in
+ * compliance with the License. You should have received a copy of the
+ * Erlang Public License along with this software. If not, it can be
+ * retrieved online at http://www.erlang.org/.
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * %CopyrightEnd%
+ */
+package com.ericsson.otp.erlang;
+
+import java.io.IOException;
+
+/**
+ * The byte stream under an {@link AbstractConnection}. A transport is used by
+ * one reader thread, while writes are serialized by the connection.
+ * 
+ * <p>
+ * Two implementations are provided: {@link OtpNioTransport}, based on a
+ * <code>SocketChannel</code> with pooled direct buffers, and
+ * {@link OtpSocketTransport}, based on buffered socket streams. The transport
+ * used for outgoing connections is chosen with the
+ * <code>OtpConnection.transport</code> system property (<code>socket</code>,
+ * the default, or <code>nio</code>).
+ * </p>
+ */
+public interface OtpTransport {
+
+    /**
+     * Read exactly <code>len</code> bytes into <code>b</code>.
+     * 
+     * @exception java.io.IOException
+     *                if the stream ends before all the bytes were read.
+     */
+    void readFully(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Read a 4 byte big-endian length, as used by distribution packets,
+     * without allocating.
+     */
+    int read4BE() throws IOException;
+
+    /**
+     * Write all the bytes in <code>b</code>.
+     */
+    void write(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Write the contents of a stream.
+     */
+    void write(OtpOutputStream buf) throws IOException;
+
+    /**
+     * Write a header and a payload, as one packet when possible.
+     */
+    void write(OtpOutputStream header, OtpOutputStream payload) throws IOException;
+
+    void close() throws IOException;
+
+}
@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.engine.services.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A Java implementation of <code>erlide_scanner:light_scan_string/2</code>: it
+ * splits Erlang source in tokens of the {@link ErlToken} kinds, without values.
+ * Single character punctuation tokens have the character as kind, like the
+ * backend scanner returns them.
+ *
+ * <p>
+ * Text is scanned a line at a time. The state at the end of a line (inside a
+ * string or a quoted atom, or not) is all that is needed to scan the next one,
+ * so callers can keep these states as checkpoints and rescan only the lines
+ * that changed. A string or quoted atom spanning several lines is returned as
+ * one token per line. Like in <code>erl_scan</code>, a newline token includes
+ * the indentation of the following line, so a change of indentation needs the
+ * previous line rescanned too.
+ * </p>
+ */
+public final class ErlLexer {
+
+    /** Line state: between tokens. */
+    public static final int STATE_NORMAL = 0;
+    /** Line state: inside a string. */
+    public static final int STATE_STRING = 1;
+    /** Line state: inside a quoted atom. */
+    public static final int STATE_QATOM = 2;
+    /**
+     * Line state: between tokens, the indentation at the start of the line
+     * was already returned with the previous newline.
+     */
+    public static final int STATE_NEWLINE = 3;
+
+    private static final Set<String> KEYWORDS = ImmutableSet.of("after", "and",
+            "andalso", "band", "begin", "bnot", "bor", "bsl", "bsr", "bxor", "case",
+            "catch", "cond", "div", "end", "fun", "if", "let", "not", "of", "or",
+            "orelse", "query", "receive", "rem", "try", "when", "xor");
+
+    private static final String[] OPERATORS = { "=:=", "=/=", "...", "==", "/=",
+            "=<", ">=", "++", "--", "::", "||", "<-", "<=", "=>", ":=", "<<", ">>", ".." };
+
+    private ErlLexer() {
+    }
+
+    /**
+     * Scan a whole text, starting between tokens.
+     *
+     * @param offset
+     *            added to the token offsets
+     */
+    public static List<ErlToken> scan(final CharSequence text, final int offset) {
+        final List<ErlToken> result = new ArrayList<ErlToken>(text.length() / 4);
+        final int n = text.length();
+        int state = STATE_NORMAL;
+        int line = 0;
+        int pos = 0;
+        while (pos < n) {
+            final int eol = lineEnd(text, pos, n);
+            state = scanLine(text, pos, eol, state, line, offset, result);
+            pos = eol;
+            line++;
+        }
+        return result;
+    }
+
+    /**
+     * @return the position after the end of the line starting at
+     *         <code>start</code>, i.e. after its newline or at <code>end</code>
+     */
+    public static int lineEnd(final CharSequence text, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Scan one line.
+     *
+     * @param start
+     *            start of the line
+     * @param end
+     *            end of the line, after its newline if it has one
+     * @param state
+     *            the state at the end of the previous line
+     * @param line
+     *            the line number, stored in the tokens
+     * @param delta
+     *            added to the token offsets
+     * @param out
+     *            where the tokens are added
+     * @return the state at the end of the line
+     */
+    public static int scanLine(final CharSequence text, final int start, final int end,
+            final int state, final int line, final int delta, final List<ErlToken> out) {
+        if (start >= end) {
+            return state;
+        }
+        int i = start;
+        if (state == STATE_NEWLINE) {
+            i = indentEnd(text, i, end);
+        } else if (state == STATE_STRING || state == STATE_QATOM) {
+            final int j = quotedEnd(text, i, end, state == STATE_STRING ? '"' : '\'');
+            if (j < 0) {
+                add(out, state == STATE_STRING ? ErlToken.KIND_STRING
+                        : ErlToken.KIND_ATOM, line, i, end, delta);
+                return state;
+            }
+            add(out, state == STATE_STRING ? ErlToken.KIND_STRING : ErlToken.KIND_ATOM,
+                    line, i, j, delta);
+            i = j;
+        }
+
+        while (i < end) {
+            final char c = text.charAt(i);
+            int j = i + 1;
+            int kind;
+
+            if (c == '\n') {
+                // the newline takes the next line's indentation, if any
+                j = indentEnd(text, j, text.length());
+                add(out, ErlToken.KIND_WHITESPACE, line, i, j, delta);
+                return STATE_NEWLINE;
+            } else if (c == ' ' || c == '\t') {
+                while (j < end && text.charAt(j) == c) {
+                    j++;
+                }
+                kind = ErlToken.KIND_WHITESPACE;
+            } else if (isWhitespace(c)) {
+                while (j < end && isWhitespace(text.charAt(j)) && text.charAt(j) != '\n') {
+                    j++;
+                }
+                kind = ErlToken.KIND_WHITESPACE;
+            } else if (c == '%') {
+                while (j < end && text.charAt(j) != '\n') {
+                    j++;
+                }
+                kind = ErlToken.KIND_COMMENT;
+            } else if (c == '"' || c == '\'') {
+                kind = c == '"' ? ErlToken.KIND_STRING : ErlToken.KIND_ATOM;
+                j = quotedEnd(text, j, end, c);
+                if (j < 0) {
+                    add(out, kind, line, i, end, delta);
+                    return c == '"' ? STATE_STRING : STATE_QATOM;
+                }
+            } else if (c == '$') {
+                if (j < end) {
+                    j = text.charAt(j) == '\\' ? escapeEnd(text, j, end) : j + 1;
+                }
+                kind = ErlToken.KIND_CHAR;
+            } else if (isDigit(c)) {
+                j = numberEnd(text, i, end);
+                kind = isFloat(text, i, j) ? ErlToken.KIND_FLOAT : ErlToken.KIND_INTEGER;
+            } else if (isNameStart(c)) {
+                j = nameEnd(text, j, end);
+                if (isVarStart(c)) {
+                    kind = ErlToken.KIND_VAR;
+                } else {
+                    kind = KEYWORDS.contains(text.subSequence(i, j).toString()) ? ErlToken.KIND_KEYWORD
+                            : ErlToken.KIND_ATOM;
+                }
+            } else if (c == '?') {
+                final int m = macroEnd(text, i, end);
+                if (m > 0) {
+                    j = m;
+                    kind = ErlToken.KIND_MACRO;
+                } else {
+                    kind = c;
+                }
+            } else if (c == '-' && j < end && text.charAt(j) == '>') {
+                j++;
+                kind = ErlToken.KIND_ARROW;
+            } else if (c == '.' && (j == end || isWhitespace(text.charAt(j)) || text.charAt(j) == '%')) {
+                // the end of a form
+                kind = ErlToken.KIND_OTHER;
+            } else {
+                final int len = operatorLength(text, i, end);
+                if (len > 1) {
+                    j = i + len;
+                    kind = ErlToken.KIND_OTHER;
+                } else {
+                    kind = c > ErlToken.KIND_KEYWORD && c < 128 ? c : ErlToken.KIND_OTHER;
+                }
+            }
+            add(out, kind, line, i, j, delta);
+            i = j;
+        }
+        return STATE_NORMAL;
+    }
+
+    private static void add(final List<ErlToken> out, final int kind, final int line,
+            final int from, final int to, final int delta) {
+        out.add(new ErlToken(kind, line, from + delta, to - from));
+    }
+
+    // a run of spaces or one of tabs, as erl_scan does after a newline
+    private static int indentEnd(final CharSequence text, final int from, final int end) {
+        int j = from;
+        if (j < end && (text.charAt(j) == ' ' || text.charAt(j) == '\t')) {
+            final char c = text.charAt(j);
+            while (j < end && text.charAt(j) == c) {
+                j++;
+            }
+        }
+        return j;
+    }
+
+    /**
+     * @return the position after the closing quote, or the complement (
+     *         <code>~end</code>) if the quote isn't closed on this line
+     */
+    private static int quotedEnd(final CharSequence text, final int from, final int end,
+            final char quote) {
+        int i = from;
+        while (i < end) {
+            final char c = text.charAt(i);
+            if (c == '\\') {
+                i = escapeEnd(text, i, end);
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return ~end;
+    }
+
+    // i is at the backslash
+    private static int escapeEnd(final CharSequence text, final int i, final int end) {
+        int j = i + 1;
+        if (j >= end) {
+            return end;
+        }
+        final char c = text.charAt(j++);
+        if (c >= '0' && c <= '7') {
+            // up to three octal digits
+            for (int k = 0; k < 2 && j < end && text.charAt(j) >= '0'
+                    && text.charAt(j) <= '7'; k++) {
+                j++;
+            }
+        } else if (c == 'x' && j < end) {
+            if (text.charAt(j) == '{') {
+                while (j < end && text.charAt(j) != '}' && text.charAt(j) != '\n') {
+                    j++;
+                }
+                if (j < end && text.charAt(j) == '}') {
+                    j++;
+                }
+            } else {
+                for (int k = 0; k < 2 && j < end && isHexDigit(text.charAt(j)); k++) {
+                    j++;
+                }
+            }
+        } else if (c == '^' && j < end) {
+            j++;
+        }
+        return j;
+    }
+
+    private static int numberEnd(final CharSequence text, final int from, final int end) {
+        int j = digitsEnd(text, from, end);
+        if (j + 1 < end && text.charAt(j) == '#' && isNameChar(text.charAt(j + 1))) {
+            // based integer
+            j += 2;
+            while (j < end && (Character.isLetterOrDigit(text.charAt(j)) || text
+                    .charAt(j) == '_')) {
+                j++;
+            }
+            return j;
+        }
+        if (j + 1 < end && text.charAt(j) == '.' && isDigit(text.charAt(j + 1))) {
+            j = digitsEnd(text, j + 1, end);
+            if (j < end && (text.charAt(j) == 'e' || text.charAt(j) == 'E')) {
+                int k = j + 1;
+                if (k < end && (text.charAt(k) == '+' || text.charAt(k) == '-')) {
+                    k++;
+                }
+                if (k < end && isDigit(text.charAt(k))) {
+                    j = digitsEnd(text, k, end);
+                }
+            }
+        }
+        return j;
+    }
+
+    private static boolean isFloat(final CharSequence text, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt(i);
+            if (c == '#') {
+                return false;
+            }
+            if (c == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int digitsEnd(final CharSequence text, final int from, final int end) {
+        int j = from;
+        while (j < end && (isDigit(text.charAt(j)) || text.charAt(j) == '_' && j + 1 < end
+                && isDigit(text.charAt(j + 1)))) {
+            j++;
+        }
+        return j;
+    }
+
+    private static int nameEnd(final CharSequence text, final int from, final int end) {
+        int j = from;
+        while (j < end && isNameChar(text.charAt(j))) {
+            j++;
+        }
+        return j;
+    }
+
+    /** @return the end of the macro starting at i, or -1 if it isn't one */
+    private static int macroEnd(final CharSequence text, final int i, final int end) {
+        int j = i + 1;
+        if (j < end && text.charAt(j) == '?') {
+            j++;
+        }
+        if (j >= end) {
+            return -1;
+        }
+        final char c = text.charAt(j);
+        if (isNameStart(c)) {
+            return nameEnd(text, j + 1, end);
+        }
+        if (c == '\'') {
+            final int q = quotedEnd(text, j + 1, end, '\'');
+            return q < 0 ? -1 : q;
+        }
+        return -1;
+    }
+
+    private static int operatorLength(final CharSequence text, final int i, final int end) {
+        for (final String op : OPERATORS) {
+            final int len = op.length();
+            if (i + len <= end && op.charAt(0) == text.charAt(i)) {
+                boolean match = true;
+                for (int k = 1; k < len && match; k++) {
+                    match = op.charAt(k) == text.charAt(i + k);
+                }
+                if (match) {
+                    return len;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c <= ' ' || c >= 0x80 && c <= 0xa0;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(final char c) {
+        return isDigit(c) || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static boolean isVarStart(final char c) {
+        return c >= 'A' && c <= 'Z' || c == '_' || c >= 0xc0 && c <= 0xde && c != 0xd7;
+    }
+
+    private static boolean isAtomStart(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 0xdf && c <= 0xff && c != 0xf7;
+    }
+
+    private static boolean isNameStart(final char c) {
+        return isAtomStart(c) || isVarStart(c);
+    }
+
+    private static boolean isNameChar(final char c) {
+        return isNameStart(c) || isDigit(c) || c == '@';
+    }
+
+}
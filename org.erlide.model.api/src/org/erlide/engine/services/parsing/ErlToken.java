@@ -58,6 +58,13 @@ public final class ErlToken {
                 & bytes[index + 2];
     }
 
+    public ErlToken(final int kind, final int line, final int offset, final int length) {
+        this.kind = kind;
+        this.line = line;
+        this.offset = offset;
+        this.length = length;
+    }
+
     public ErlToken(final OtpErlangTuple e) {
         // fTuple = e;
         if (TRACE) {
@@ -159,6 +166,10 @@ public final class ErlToken {
         return offset;
     }
 
+    public int getLine() {
+        return line;
+    }
+
     @Override
     public String toString() {
         return "{" + kind + ", " + line + "/" + offset + "+" + length + "}";
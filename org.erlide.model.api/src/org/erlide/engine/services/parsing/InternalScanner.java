@@ -10,4 +10,6 @@ public interface InternalScanner {
 
     OtpErlangObject checkAll(String module, String text, boolean getTokens);
 
+    String getText(String scannerName);
+
 }
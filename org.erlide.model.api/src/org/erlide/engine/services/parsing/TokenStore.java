@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.engine.services.parsing;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.erlide.util.GapBuffer;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The text of a module and its tokens, as scanned by {@link ErlLexer}, kept up
+ * to date with the edits.
+ *
+ * <p>
+ * Tokens are kept per line, with offsets relative to the line start, together
+ * with the lexer state at the end of each line. An edit rescans the lines it
+ * touches and continues only until a line ends in the same state as before, so
+ * the cost depends on the size of the edit, not of the text. Finding the token
+ * at an offset is two binary searches.
+ * </p>
+ */
+public class TokenStore {
+
+    private static final int[] NO_TOKENS = new int[0];
+
+    private final GapBuffer text = new GapBuffer();
+    private int lineCount;
+    private int[] lineStarts = new int[16];
+    // state at the end of each line
+    private int[] lineStates = new int[16];
+    // kind, offset in line, length for each token of the line
+    private int[][] lineTokens = new int[16][];
+
+    public TokenStore() {
+        setText("");
+    }
+
+    public synchronized void setText(final String newText) {
+        text.replace(0, text.length(), newText);
+        lineCount = 0;
+        rescan(0, 0, ErlLexer.STATE_NORMAL, newText.length(), 0, 0);
+    }
+
+    public synchronized String getText() {
+        return text.toString();
+    }
+
+    public synchronized int getLength() {
+        return text.length();
+    }
+
+    public synchronized int getLineCount() {
+        return lineCount;
+    }
+
+    /** Replace <code>removeLength</code> characters at <code>offset</code>. */
+    public synchronized void replaceText(final int offset, final int removeLength,
+            final String newText) {
+        // the newline ending the previous line includes this line's indentation
+        final int first = Math.max(lineOf(offset) - 1, 0);
+        final int oldLast = lineOf(offset + removeLength);
+        text.replace(offset, removeLength, newText);
+        final int delta = newText.length() - removeLength;
+        final int state = first == 0 ? ErlLexer.STATE_NORMAL : lineStates[first - 1];
+        rescan(first, lineStarts[first], state, offset + newText.length(), oldLast,
+                delta);
+    }
+
+    /**
+     * Keywords and punctuation have kinds of their own in the lexer, for
+     * highlighting, but here they are {@link ErlToken#KIND_OTHER} like in the
+     * tokens of the backend scanner.
+     * 
+     * @return the token at the offset, or null if there is only white space
+     *         there
+     */
+    public synchronized ErlToken getTokenAt(final int offset) {
+        if (offset < 0 || offset >= text.length()) {
+            return null;
+        }
+        final int line = lineOf(offset);
+        final int[] tokens = lineTokens[line];
+        final int rel = offset - lineStarts[line];
+        int lo = 0;
+        int hi = tokens.length / 3 - 1;
+        while (lo <= hi) {
+            final int mid = lo + hi >>> 1;
+            final int start = tokens[mid * 3 + 1];
+            if (rel < start) {
+                hi = mid - 1;
+            } else if (rel >= start + tokens[mid * 3 + 2]) {
+                lo = mid + 1;
+            } else {
+                if (tokens[mid * 3] == ErlToken.KIND_WHITESPACE) {
+                    return null;
+                }
+                final int kind = tokens[mid * 3] > ErlToken.KIND_COMMENT
+                        ? ErlToken.KIND_OTHER : tokens[mid * 3];
+                return new ErlToken(kind, line, lineStarts[line] + start,
+                        tokens[mid * 3 + 2]);
+            }
+        }
+        return null;
+    }
+
+    /** All the tokens, including white space and comments. */
+    public synchronized List<ErlToken> getTokens() {
+        final List<ErlToken> result = Lists.newArrayList();
+        for (int line = 0; line < lineCount; line++) {
+            final int[] tokens = lineTokens[line];
+            for (int i = 0; i < tokens.length; i += 3) {
+                result.add(new ErlToken(tokens[i], line, lineStarts[line]
+                        + tokens[i + 1], tokens[i + 2]));
+            }
+        }
+        return result;
+    }
+
+    /** The line containing the offset. */
+    private int lineOf(final int offset) {
+        int lo = 0;
+        int hi = lineCount - 1;
+        while (lo < hi) {
+            final int mid = lo + hi + 1 >>> 1;
+            if (lineStarts[mid] <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Scan lines from line <code>first</code>, starting at <code>pos</code>,
+     * at least up to <code>editEnd</code>, and then until a line ends where
+     * an old line (from <code>oldLast</code> on, in old offsets shifted by
+     * <code>delta</code>) started and in the same state. The old lines from
+     * there on are kept, the ones before are replaced by the scanned ones.
+     */
+    private void rescan(final int first, final int startPos, final int startState,
+            final int editEnd, final int oldLast, final int delta) {
+        final int n = text.length();
+        final List<ErlToken> scratch = Lists.newArrayList();
+        int[] starts = new int[8];
+        int[] states = new int[8];
+        int[][] tokens = new int[8][];
+        int count = 0;
+        int pos = startPos;
+        int state = startState;
+        int old = Math.min(oldLast + 1, lineCount);
+        while (true) {
+            final int eol = ErlLexer.lineEnd(text, pos, n);
+            scratch.clear();
+            state = ErlLexer.scanLine(text, pos, eol, state, 0, -pos, scratch);
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                states = Arrays.copyOf(states, count * 2);
+                tokens = Arrays.copyOf(tokens, count * 2);
+            }
+            starts[count] = pos;
+            states[count] = state;
+            tokens[count] = pack(scratch);
+            count++;
+            if (eol == n && (eol == pos || text.charAt(eol - 1) != '\n')) {
+                // the last line
+                old = lineCount;
+                break;
+            }
+            pos = eol;
+            if (eol >= editEnd) {
+                while (old < lineCount && lineStarts[old] + delta < eol) {
+                    old++;
+                }
+                if (old < lineCount && lineStarts[old] + delta == eol
+                        && lineStates[old - 1] == state) {
+                    break;
+                }
+            }
+        }
+
+        final int kept = lineCount - old;
+        final int newCount = first + count + kept;
+        if (newCount > lineStarts.length) {
+            final int size = Math.max(newCount, lineStarts.length * 3 / 2);
+            lineStarts = Arrays.copyOf(lineStarts, size);
+            lineStates = Arrays.copyOf(lineStates, size);
+            lineTokens = Arrays.copyOf(lineTokens, size);
+        }
+        System.arraycopy(lineStarts, old, lineStarts, first + count, kept);
+        System.arraycopy(lineStates, old, lineStates, first + count, kept);
+        System.arraycopy(lineTokens, old, lineTokens, first + count, kept);
+        for (int i = first + count; i < newCount; i++) {
+            lineStarts[i] += delta;
+        }
+        System.arraycopy(starts, 0, lineStarts, first, count);
+        System.arraycopy(states, 0, lineStates, first, count);
+        System.arraycopy(tokens, 0, lineTokens, first, count);
+        Arrays.fill(lineTokens, newCount, Math.max(newCount, lineCount), null);
+        lineCount = newCount;
+    }
+
+    private static int[] pack(final List<ErlToken> tokens) {
+        if (tokens.isEmpty()) {
+            return NO_TOKENS;
+        }
+        final int[] result = new int[tokens.size() * 3];
+        int i = 0;
+        for (final ErlToken token : tokens) {
+            result[i++] = token.getKind();
+            result[i++] = token.getOffset();
+            result[i++] = token.getLength();
+        }
+        return result;
+    }
+}
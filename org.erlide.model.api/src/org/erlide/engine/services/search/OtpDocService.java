@@ -15,6 +15,14 @@ public interface OtpDocService extends ErlangService {
     OtpErlangObject getProposalsWithDoc(IRpcSite b, String mod, String prefix,
             String stateDir);
 
+    /**
+     * Same as {@link #getProposalsWithDoc(IRpcSite, String, String, String)}
+     * for several modules at once. The result has one element per module, in
+     * order, null if that module failed.
+     */
+    List<OtpErlangObject> getProposalsWithDoc(IRpcSite b, List<String> mods,
+            String prefix, String stateDir);
+
     OtpErlangObject getModules(IRpcSite b, String prefix, List<String> projectModules,
             boolean includes);
 
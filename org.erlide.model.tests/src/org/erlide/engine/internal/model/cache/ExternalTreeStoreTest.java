@@ -0,0 +1,138 @@
+package org.erlide.engine.internal.model.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.erlide.engine.services.search.OpenService.ExternalTreeEntry;
+import org.erlide.runtime.runtimeinfo.RuntimeInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class ExternalTreeStoreTest {
+
+    private File tmp;
+    private File storeDir;
+    private File externals;
+    private OtpErlangList pathVars;
+
+    @Before
+    public void setUp() throws IOException {
+        tmp = File.createTempFile("erlide", "store");
+        tmp.delete();
+        tmp.mkdirs();
+        storeDir = new File(tmp, "store");
+        externals = new File(tmp, "ext/x.erlidex");
+        externals.getParentFile().mkdirs();
+        FileUtils.writeStringToFile(externals, "a.erl\n");
+        pathVars = new OtpErlangList(new OtpErlangObject[] { new OtpErlangTuple(
+                new OtpErlangObject[] { new OtpErlangString("EXT"),
+                        new OtpErlangString(externals.getParent()) }) });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tmp);
+    }
+
+    private static List<ExternalTreeEntry> tree(final String externalsPath) {
+        return Lists.newArrayList(new ExternalTreeEntry("root", externalsPath,
+                false), new ExternalTreeEntry(externalsPath, "/src/a.erl", true));
+    }
+
+    @Test
+    public void externalTreeIsKeptAcrossSessions() {
+        final String path = externals.getPath();
+        new ExternalTreeStore(storeDir).putExternalTree(path, pathVars,
+                tree(path));
+
+        final List<ExternalTreeEntry> stored = new ExternalTreeStore(storeDir)
+                .getExternalTree(path, pathVars);
+        assertThat(stored, is(notNullValue()));
+        assertThat(stored.size(), is(2));
+        assertThat(stored.get(1).getPath(), is("/src/a.erl"));
+        assertThat(stored.get(1).isModule(), is(true));
+        assertThat(stored.get(0).isModule(), is(false));
+    }
+
+    @Test
+    public void externalTreeIsDroppedWhenExternalsChange() {
+        final String path = "EXT/x.erlidex";
+        final ExternalTreeStore store = new ExternalTreeStore(storeDir);
+        store.putExternalTree(path, pathVars, tree(externals.getPath()));
+        assertThat(store.getExternalTree(path, pathVars), is(notNullValue()));
+
+        externals.setLastModified(externals.lastModified() - 10000);
+        assertThat(store.getExternalTree(path, pathVars), is(nullValue()));
+        assertThat(new ExternalTreeStore(storeDir).getExternalTree(path,
+                pathVars), is(nullValue()));
+    }
+
+    @Test
+    public void externalTreeDependsOnPathVars() {
+        final String path = externals.getPath();
+        final ExternalTreeStore store = new ExternalTreeStore(storeDir);
+        store.putExternalTree(path, pathVars, tree(path));
+        assertThat(store.getExternalTree(path, new OtpErlangList()),
+                is(nullValue()));
+    }
+
+    @Test
+    public void pathVarsAreResolved() {
+        assertThat(ExternalTreeStore.resolvePathVar("EXT/x.erlidex", pathVars),
+                is(externals.getPath()));
+        assertThat(ExternalTreeStore.resolvePathVar("EXT", pathVars),
+                is(externals.getParent()));
+        assertThat(ExternalTreeStore.resolvePathVar("/EXT/x.erlidex", pathVars),
+                is("/EXT/x.erlidex"));
+        assertThat(ExternalTreeStore.resolvePathVar("OTHER/x.erlidex",
+                pathVars), is("OTHER/x.erlidex"));
+    }
+
+    @Test
+    public void otpLibsAreKeptUntilTheInstallationChanges() throws IOException {
+        final File home = new File(tmp, "otp");
+        new File(home, "lib").mkdirs();
+        final RuntimeInfo runtime = new RuntimeInfo("test", home.getPath(), "",
+                new ArrayList<String>());
+        final Map<String, List<String>> libs = ImmutableMap.<String, List<String>> of(
+                "/otp/lib/stdlib/src", ImmutableList.of("/otp/lib/stdlib/include"),
+                "/otp/lib/kernel/src", ImmutableList.<String> of());
+        new ExternalTreeStore(storeDir).putOtpLibs(runtime, libs);
+
+        final ExternalTreeStore store = new ExternalTreeStore(storeDir);
+        assertThat(store.getOtpLibs(runtime), is(libs));
+
+        final File lib = new File(home, "lib");
+        lib.setLastModified(lib.lastModified() - 10000);
+        assertThat(store.getOtpLibs(runtime), is(nullValue()));
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        final String path = externals.getPath();
+        final ExternalTreeStore store = new ExternalTreeStore(storeDir);
+        store.putExternalTree(path, pathVars, tree(path));
+        store.clear();
+        assertThat(store.getExternalTree(path, pathVars), is(nullValue()));
+        assertThat(new ExternalTreeStore(storeDir).getExternalTree(path,
+                pathVars), is(nullValue()));
+    }
+}
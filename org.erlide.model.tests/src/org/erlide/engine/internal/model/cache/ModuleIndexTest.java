@@ -0,0 +1,187 @@
+package org.erlide.engine.internal.model.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.erlide.engine.model.root.IErlProject;
+import org.erlide.test.support.ErlideTestUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class ModuleIndexTest {
+
+    private static IErlProject project;
+
+    private File indexFile;
+    private ModuleIndex index;
+    private IResourceChangeListener listener;
+    private final List<IFile> files = Lists.newArrayList();
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws CoreException {
+        ErlideTestUtils.initProjects();
+        final String name = "testprojectindex";
+        project = ErlideTestUtils.createProject(ErlideTestUtils.getTmpPath(name), name);
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws CoreException {
+        ErlideTestUtils.deleteProjects();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        indexFile = File.createTempFile("erlide", ".idx");
+        indexFile.delete();
+        index = new ModuleIndex("org.erlide.model.tests", indexFile);
+        // as the model does it
+        listener = new IResourceChangeListener() {
+            @Override
+            public void resourceChanged(final IResourceChangeEvent event) {
+                index.resourceChanged(event.getDelta());
+            }
+        };
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(listener,
+                IResourceChangeEvent.POST_CHANGE);
+    }
+
+    @After
+    public void tearDown() throws CoreException {
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(listener);
+        indexFile.delete();
+        for (final IFile file : files) {
+            if (file.exists()) {
+                file.delete(true, null);
+            }
+        }
+    }
+
+    private IFile createFile(final String folder, final String name)
+            throws CoreException {
+        final IFile file = ErlideTestUtils.createFile(name, "",
+                project.getWorkspaceProject().getFolder(folder));
+        files.add(file);
+        return file;
+    }
+
+    private List<String> savedPaths() throws IOException {
+        index.save();
+        final List<String> lines = Files.readLines(indexFile, Charsets.UTF_8);
+        return lines.subList(1, lines.size());
+    }
+
+    private static String path(final IFile file) {
+        return file.getFullPath().toString();
+    }
+
+    @Test
+    public void existingFilesAreFoundByName() throws CoreException {
+        final IFile module = createFile("src", "idx_a.erl");
+        final IFile include = createFile("include", "idx_b.hrl");
+
+        assertThat(index.getFiles("idx_a"), contains(module));
+        assertThat(index.getFiles("IDX_A.erl"), contains(module));
+        assertThat(index.getFiles("idx_b.hrl"), contains(include));
+        assertThat(index.getFiles("idx_b"), contains(include));
+        assertThat(index.getFiles("idx_none"), is(empty()));
+    }
+
+    @Test
+    public void addedFileIsIndexed() throws CoreException {
+        assertThat(index.getFiles("idx_c"), is(empty()));
+
+        final IFile module = createFile("src", "idx_c.erl");
+        assertThat(index.getFiles("idx_c"), contains(module));
+    }
+
+    @Test
+    public void removedFileIsDropped() throws CoreException, IOException {
+        final IFile module = createFile("src", "idx_d.erl");
+        assertThat(index.getFiles("idx_d"), contains(module));
+
+        module.delete(true, null);
+        assertThat(savedPaths(), not(hasItem(path(module))));
+        assertThat(index.getFiles("idx_d"), is(empty()));
+    }
+
+    @Test
+    public void renamedFileIsMoved() throws CoreException, IOException {
+        final IFile module = createFile("src", "idx_e.erl");
+        assertThat(index.getFiles("idx_e"), contains(module));
+
+        final IFile renamed = project.getWorkspaceProject().getFolder("src")
+                .getFile("idx_f.erl");
+        files.add(renamed);
+        module.move(renamed.getFullPath(), true, null);
+        assertThat(savedPaths(), not(hasItem(path(module))));
+        assertThat(index.getFiles("idx_e"), is(empty()));
+        assertThat(index.getFiles("idx_f"), contains(renamed));
+    }
+
+    @Test
+    public void closedProjectIsDroppedAndRescannedWhenOpened() throws CoreException,
+            IOException {
+        final IFile module = createFile("src", "idx_g.erl");
+        assertThat(index.getFiles("idx_g"), contains(module));
+
+        final IProject wsProject = project.getWorkspaceProject();
+        wsProject.close(null);
+        try {
+            assertThat(savedPaths(), not(hasItem(path(module))));
+        } finally {
+            wsProject.open(null);
+        }
+        assertThat(index.getFiles("idx_g"), contains(module));
+    }
+
+    @Test
+    public void savedIndexIsReloaded() throws CoreException, IOException {
+        final IFile module = createFile("src", "idx_h.erl");
+        assertThat(index.getFiles("idx_h"), contains(module));
+        assertThat(savedPaths(), hasItem(path(module)));
+
+        final ModuleIndex loaded = new ModuleIndex("org.erlide.model.tests",
+                indexFile);
+        assertThat(loaded.load(), is(true));
+        final Collection<IFile> found = loaded.getFiles("idx_h");
+        assertThat(found, contains(module));
+    }
+
+    @Test
+    public void indexThatWasNotBuiltIsNotSaved() throws IOException {
+        Files.write("x", indexFile, Charsets.UTF_8);
+        index.save();
+        assertThat(indexFile.exists(), is(false));
+        assertThat(new ModuleIndex("org.erlide.model.tests", indexFile).load(),
+                is(false));
+    }
+
+    @Test
+    public void indexWithOtherHeaderIsNotLoaded() throws IOException {
+        Files.write("# something else\n/p/src/m.erl\n", indexFile, Charsets.UTF_8);
+        assertThat(new ModuleIndex("org.erlide.model.tests", indexFile).load(),
+                is(false));
+    }
+}
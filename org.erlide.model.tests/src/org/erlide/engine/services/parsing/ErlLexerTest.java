@@ -0,0 +1,128 @@
+package org.erlide.engine.services.parsing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ErlLexerTest {
+
+    private static final int OTHER = ErlToken.KIND_OTHER;
+    private static final int WS = ErlToken.KIND_WHITESPACE;
+    private static final int STR = ErlToken.KIND_STRING;
+    private static final int ATOM = ErlToken.KIND_ATOM;
+    private static final int VAR = ErlToken.KIND_VAR;
+    private static final int CHAR = ErlToken.KIND_CHAR;
+    private static final int MACRO = ErlToken.KIND_MACRO;
+    private static final int ARROW = ErlToken.KIND_ARROW;
+    private static final int INT = ErlToken.KIND_INTEGER;
+    private static final int FLOAT = ErlToken.KIND_FLOAT;
+    private static final int COMMENT = ErlToken.KIND_COMMENT;
+    private static final int KEYWORD = ErlToken.KIND_KEYWORD;
+
+    // the same cases as erlide_scanner_tests:scanner_light_scan_string_test_
+    @Test
+    public void singleTokens() {
+        check("a", ATOM, 0, 0, 1);
+        check("'a'", ATOM, 0, 0, 3);
+        check("(", '(', 0, 0, 1);
+        check("\"a\"", STR, 0, 0, 3);
+        check("A", VAR, 0, 0, 1);
+        check("$a", CHAR, 0, 0, 2);
+        check("$\\b", CHAR, 0, 0, 3);
+        check("$\\122", CHAR, 0, 0, 5);
+        check("$\\x{faca}", CHAR, 0, 0, 9);
+        check("$\\xff", CHAR, 0, 0, 5);
+        check("1", INT, 0, 0, 1);
+        check("16#ff", INT, 0, 0, 5);
+        check("1.1", FLOAT, 0, 0, 3);
+        check("1.1e3", FLOAT, 0, 0, 5);
+        check("end", KEYWORD, 0, 0, 3);
+        check("'end'", ATOM, 0, 0, 5);
+        check("->", ARROW, 0, 0, 2);
+        check("?hi", MACRO, 0, 0, 3);
+        check("?HI", MACRO, 0, 0, 3);
+        check("??hi", MACRO, 0, 0, 4);
+        check("%b", COMMENT, 0, 0, 2);
+        check("=:=", OTHER, 0, 0, 3);
+    }
+
+    @Test
+    public void whitespace() {
+        check("  \t ", WS, 0, 0, 2, WS, 0, 2, 1, WS, 0, 3, 1);
+        check("%b\n", COMMENT, 0, 0, 2, WS, 0, 2, 1);
+        check("\n", WS, 0, 0, 1);
+        check("\n ", WS, 0, 0, 2);
+        check("\n \n", WS, 0, 0, 2, WS, 1, 2, 1);
+        check("\nc", WS, 0, 0, 1, ATOM, 1, 1, 1);
+        check("\n  c", WS, 0, 0, 3, ATOM, 1, 3, 1);
+    }
+
+    @Test
+    public void forms() {
+        check("a.", ATOM, 0, 0, 1, OTHER, 0, 1, 1);
+        check("a() -> b.", ATOM, 0, 0, 1, '(', 0, 1, 1, ')', 0, 2, 1, WS, 0, 3, 1,
+                ARROW, 0, 4, 2, WS, 0, 6, 1, ATOM, 0, 7, 1, OTHER, 0, 8, 1);
+        check("X#r.f", VAR, 0, 0, 1, '#', 0, 1, 1, ATOM, 0, 2, 1, '.', 0, 3, 1, ATOM,
+                0, 4, 1);
+    }
+
+    @Test
+    public void multilineStringIsSplitPerLine() {
+        check("\"a\nb\" c", STR, 0, 0, 3, STR, 1, 3, 2, WS, 1, 5, 1, ATOM, 1, 6, 1);
+    }
+
+    @Test
+    public void offsetIsAdded() {
+        check(10, "a b", ATOM, 0, 10, 1, WS, 0, 11, 1, ATOM, 0, 12, 1);
+    }
+
+    @Test
+    public void scanLineRestartsFromState() {
+        final String text = "x = \"a\n  b\" ++ 'c\nd'.";
+        final List<ErlToken> tokens = Lists.newArrayList();
+        int state = ErlLexer.STATE_NORMAL;
+        int line = 0;
+        int pos = 0;
+        final List<Integer> states = Lists.newArrayList();
+        while (pos < text.length()) {
+            final int eol = ErlLexer.lineEnd(text, pos, text.length());
+            state = ErlLexer.scanLine(text, pos, eol, state, line++, 0, tokens);
+            states.add(state);
+            pos = eol;
+        }
+        assertThat(states, is((List<Integer>) Lists.newArrayList(ErlLexer.STATE_STRING,
+                ErlLexer.STATE_QATOM, ErlLexer.STATE_NORMAL)));
+        assertThat(tokens.toString(), is(ErlLexer.scan(text, 0).toString()));
+
+        // rescanning the last line from its checkpoint gives the same tokens
+        final List<ErlToken> last = Lists.newArrayList();
+        final int start = text.lastIndexOf('\n') + 1;
+        ErlLexer.scanLine(text, start, text.length(), ErlLexer.STATE_QATOM, 2, 0, last);
+        assertThat(last.toString(),
+                is(tokens.subList(tokens.size() - 2, tokens.size()).toString()));
+    }
+
+    private void check(final String text, final int... expected) {
+        check(0, text, expected);
+    }
+
+    private void check(final int offset, final String text, final int... expected) {
+        final List<ErlToken> result = ErlLexer.scan(text, offset);
+        final List<String> actual = Lists.newArrayList();
+        for (final ErlToken token : result) {
+            actual.add(token.getKind() + " " + token.getLine() + " " + token.getOffset()
+                    + " " + token.getLength());
+        }
+        final List<String> wanted = Lists.newArrayList();
+        for (int i = 0; i < expected.length; i += 4) {
+            wanted.add(expected[i] + " " + expected[i + 1] + " " + expected[i + 2] + " "
+                    + expected[i + 3]);
+        }
+        assertThat(text, actual, is(wanted));
+    }
+}
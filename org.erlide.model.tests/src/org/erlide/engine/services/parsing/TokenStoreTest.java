@@ -0,0 +1,87 @@
+package org.erlide.engine.services.parsing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TokenStoreTest {
+
+    private static final String TEXT = "-module(m).\n" + "%% a comment\n"
+            + "f(X) ->\n" + "    \"a string\n" + "      on two lines\" ++ 'an atom'.\n"
+            + "g() -> ?MACRO, $a, 1.5.\n";
+
+    @Test
+    public void tokensAreThoseOfAFullScan() {
+        final TokenStore store = new TokenStore();
+        store.setText(TEXT);
+        assertThat(store.getText(), is(TEXT));
+        assertThat(store.getLineCount(), is(7));
+        assertThat(store.getTokens().toString(), is(ErlLexer.scan(TEXT, 0).toString()));
+    }
+
+    @Test
+    public void getTokenAt() {
+        final TokenStore store = new TokenStore();
+        store.setText(TEXT);
+        final int offset = TEXT.indexOf("MACRO");
+        final ErlToken token = store.getTokenAt(offset);
+        assertThat(token.getKind(), is(ErlToken.KIND_MACRO));
+        assertThat(token.getOffset(), is(offset - 1));
+        assertThat(token.getLength(), is(6));
+        assertThat(token.getLine(), is(5));
+        assertThat(store.getTokenAt(TEXT.indexOf("->") + 2), is(nullValue()));
+        assertThat(store.getTokenAt(TEXT.length()), is(nullValue()));
+    }
+
+    @Test
+    public void getTokenAtHasTheKindsOfTheBackendScanner() {
+        final TokenStore store = new TokenStore();
+        store.setText(TEXT + "h() -> fun() -> ok end.\n");
+        assertThat(store.getTokenAt(0).getKind(), is(ErlToken.KIND_OTHER));
+        assertThat(store.getTokenAt(TEXT.indexOf(")")).getKind(),
+                is(ErlToken.KIND_OTHER));
+        assertThat(store.getTokenAt(TEXT.indexOf("->")).getKind(),
+                is(ErlToken.KIND_ARROW));
+        assertThat(store.getTokenAt(TEXT.length() + 7).getKind(),
+                is(ErlToken.KIND_OTHER));
+        assertThat(store.getTokenAt(TEXT.indexOf("module")).getKind(),
+                is(ErlToken.KIND_ATOM));
+    }
+
+    @Test
+    public void editsKeepTokensUpToDate() {
+        final TokenStore store = new TokenStore();
+        store.setText(TEXT);
+        final int offset = TEXT.indexOf("\"a string");
+        store.replaceText(offset, 1, "");
+        final String text = store.getText();
+        assertThat(text, is(TEXT.substring(0, offset) + TEXT.substring(offset + 1)));
+        assertThat(store.getTokens().toString(), is(ErlLexer.scan(text, 0).toString()));
+        assertThat(store.getTokenAt(text.indexOf("'an atom'")).getKind(),
+                is(ErlToken.KIND_STRING));
+    }
+
+    @Test
+    public void randomEditsMatchFullScan() {
+        final String[] pieces = { "\n", "  ", "\t", "\"", "'", "%", "a", "X", "->",
+                ".", "$", "?", "1", "(", "\n    ", "end" };
+        final Random random = new Random(17);
+        final TokenStore store = new TokenStore();
+        store.setText(TEXT);
+        final StringBuilder expected = new StringBuilder(TEXT);
+        for (int i = 0; i < 2000; i++) {
+            final int offset = random.nextInt(expected.length() + 1);
+            final int length = random.nextInt(Math.min(5, expected.length() - offset) + 1);
+            final String text = pieces[random.nextInt(pieces.length)];
+            store.replaceText(offset, length, text);
+            expected.replace(offset, offset + length, text);
+            assertThat(store.getTokens().toString(), is(ErlLexer.scan(expected, 0)
+                    .toString()));
+        }
+        assertThat(store.getText(), is(expected.toString()));
+    }
+}
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.erlide.engine.internal.model;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -39,10 +40,12 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.SafeRunner;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.internal.ModelPlugin;
 import org.erlide.engine.internal.model.cache.ErlModelCache;
+import org.erlide.engine.internal.model.cache.ModuleIndex;
 import org.erlide.engine.internal.model.erlang.ErlModule;
 import org.erlide.engine.internal.model.root.ErlElementDelta;
 import org.erlide.engine.internal.model.root.ErlFolder;
@@ -61,6 +64,7 @@ import org.erlide.engine.model.erlang.ErlangFunction;
 import org.erlide.engine.model.erlang.FunctionRef;
 import org.erlide.engine.model.erlang.IErlFunction;
 import org.erlide.engine.model.erlang.IErlModule;
+import org.erlide.engine.model.erlang.ModuleKind;
 import org.erlide.engine.model.root.ErlElementKind;
 import org.erlide.engine.model.root.IErlElement;
 import org.erlide.engine.model.root.IErlElementDelta;
@@ -70,6 +74,7 @@ import org.erlide.engine.model.root.IErlProject;
 import org.erlide.engine.util.CommonUtils;
 import org.erlide.engine.util.NatureUtil;
 import org.erlide.engine.util.ResourceUtil;
+import org.erlide.engine.util.SourcePathUtils;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.SystemConfiguration;
 
@@ -97,6 +102,7 @@ public class ErlModel extends Openable implements IErlModel {
     private final IPathVariableChangeListener fPathVariableChangeListener;
     final List<IElementChangedListener> elementChangedListeners;
     private final ErlModelDeltaManager deltaManager;
+    private final ModuleIndex moduleIndex;
     OtpErlangList fCachedPathVars;
 
     /**
@@ -106,6 +112,9 @@ public class ErlModel extends Openable implements IErlModel {
     public ErlModel() {
         super(null, ""); //$NON-NLS-1$
         fPathVariableChangeListener = new PathVariableChangeListener();
+        moduleIndex = new ModuleIndex(ModelPlugin.PLUGIN_ID, new File(ErlangEngine
+                .getInstance().getStateDir(), "index/modules.idx"));
+        moduleIndex.start();
         setupWorkspaceListeners();
         fListeners = Lists.newArrayList();
         elementChangedListeners = Lists.newArrayList();
@@ -870,6 +879,7 @@ public class ErlModel extends Openable implements IErlModel {
             final IResourceDeltaVisitor visitor;
             switch (event.getType()) {
             case IResourceChangeEvent.POST_CHANGE:
+                moduleIndex.resourceChanged(rootDelta);
                 visitor = new PostChangeVisitor(removed, added, changed,
                         changedDelta);
                 break;
@@ -933,34 +943,6 @@ public class ErlModel extends Openable implements IErlModel {
         return null;
     }
 
-    private Collection<IErlModule> getAllIncludes(final IErlProject project,
-            final boolean checkExternals, final IErlElementLocator.Scope scope)
-            throws ErlModelException {
-        final List<IErlProject> projects = Lists.newArrayList();
-        final List<IErlModule> result = Lists.newArrayList();
-        final Set<String> paths = Sets.newHashSet();
-        if (project != null) {
-            projects.add(project);
-            if (scope == IErlElementLocator.Scope.REFERENCED_PROJECTS) {
-                projects.addAll(project.getReferencedProjects());
-            }
-        }
-        if (scope == IErlElementLocator.Scope.ALL_PROJECTS) {
-            for (final IErlProject project2 : getErlangProjects()) {
-                if (!projects.contains(project2)) {
-                    projects.add(project2);
-                }
-            }
-        }
-        for (final IErlProject project2 : projects) {
-            getAllModulesAux(project2.getIncludes(), result, paths);
-        }
-        if (checkExternals && project != null) {
-            getAllModulesAux(project.getExternalIncludes(), result, paths);
-        }
-        return result;
-    }
-
     static void getAllModulesAux(final Collection<IErlModule> modules,
             final Collection<IErlModule> result, final Set<String> paths) {
         for (final IErlModule module : modules) {
@@ -986,8 +968,18 @@ public class ErlModel extends Openable implements IErlModel {
                 return module;
             }
         }
-        final Collection<IErlModule> includes = getAllIncludes(project,
-                checkExternals, scope);
+        final IErlModule found = findIndexed(project, includeName, includePath, true,
+                scope);
+        if (found != null && (includePath == null || includePath.equals(found
+                .getFilePath()))) {
+            ErlModelCache.getDefault().putModule(found);
+            return found;
+        }
+        final Collection<IErlModule> includes = Lists.newArrayList();
+        if (checkExternals && project != null) {
+            getAllModulesAux(project.getExternalIncludes(), includes,
+                    Sets.<String> newHashSet());
+        }
         ErlModelCache.getDefault().putModules(includes);
         if (includePath != null) {
             for (final IErlModule module2 : includes) {
@@ -997,6 +989,10 @@ public class ErlModel extends Openable implements IErlModel {
                 }
             }
         }
+        if (found != null) {
+            ErlModelCache.getDefault().putModule(found);
+            return found;
+        }
         if (includeName != null) {
             final boolean hasExtension = SystemConfiguration
                     .hasExtension(includeName);
@@ -1011,6 +1007,103 @@ public class ErlModel extends Openable implements IErlModel {
         return null;
     }
 
+    /**
+     * Find a workspace module or include through the module index. A match by
+     * path is preferred to one by name; for modules the closest project comes
+     * first, for includes the path match (as when all the includes were
+     * searched together).
+     */
+    private IErlModule findIndexed(final IErlProject project, final String name,
+            final String path, final boolean include,
+            final IErlElementLocator.Scope scope) throws ErlModelException {
+        final Set<IFile> files = Sets.newLinkedHashSet();
+        if (path != null) {
+            files.addAll(moduleIndex.getFiles(new Path(path).lastSegment()));
+        }
+        if (name != null) {
+            files.addAll(moduleIndex.getFiles(name));
+        }
+        IErlModule best = null;
+        int bestScore = Integer.MAX_VALUE;
+        for (final IFile file : files) {
+            final int rank = projectRank(project, file.getProject(), scope);
+            if (rank < 0) {
+                continue;
+            }
+            final IErlModule module = findModule(file);
+            if (module == null || !isModuleOrInclude(module, include)) {
+                continue;
+            }
+            final String path2 = module.getFilePath();
+            final boolean byPath = path != null
+                    && path2 != null
+                    && (include ? path.equals(path2) : ResourceUtil.samePath(path,
+                            path2));
+            if (!byPath && !nameMatches(module, name, include)) {
+                continue;
+            }
+            final int score = include ? (byPath ? 0 : 3) + rank : 2 * rank
+                    + (byPath ? 0 : 1);
+            if (score < bestScore) {
+                best = module;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 0 for the project itself, 1 for a referenced project, 2 for any other
+     * Erlang project, -1 if the scope doesn't include it.
+     */
+    private int projectRank(final IErlProject project, final IProject wsProject,
+            final IErlElementLocator.Scope scope) throws ErlModelException {
+        final IErlProject erlProject = findProject(wsProject);
+        if (erlProject == null) {
+            return -1;
+        }
+        if (project != null) {
+            if (project.equals(erlProject)) {
+                return 0;
+            }
+            if (scope != Scope.PROJECT_ONLY
+                    && project.getReferencedProjects().contains(erlProject)) {
+                return 1;
+            }
+        }
+        return scope == Scope.ALL_PROJECTS ? 2 : -1;
+    }
+
+    // as in ErlProject.getModules() and getIncludes()
+    private boolean isModuleOrInclude(final IErlModule module, final boolean include) {
+        final boolean hrl = ModuleKind.nameToModuleKind(module.getName()) == ModuleKind.HRL;
+        if (hrl != include || module.getResource() == null) {
+            return false;
+        }
+        final IErlProject project = ErlangEngine.getInstance().getModelUtilService()
+                .getProject(module);
+        if (project == null) {
+            return false;
+        }
+        final IPath dir = module.getResource().getParent().getProjectRelativePath();
+        if (include) {
+            return project.getIncludeDirs().contains(dir);
+        }
+        return project.getSourceDirs().contains(dir)
+                || SourcePathUtils.getExtraSourcePathsForModel(
+                        project.getWorkspaceProject()).contains(dir);
+    }
+
+    private static boolean nameMatches(final IErlModule module, final String name,
+            final boolean include) {
+        if (name == null) {
+            return false;
+        }
+        final String name2 = SystemConfiguration.hasExtension(name) ? module.getName()
+                : module.getModuleName();
+        return include ? ResourceUtil.samePath(name, name2) : name.equals(name2);
+    }
+
     @Override
     public IErlModule findModuleFromProject(final IErlProject project,
             final String moduleName, final String modulePath,
@@ -1039,42 +1132,41 @@ public class ErlModel extends Openable implements IErlModel {
                 return module;
             }
         }
+        final IErlModule found = findIndexed(project, moduleName, modulePath, false,
+                scope);
+        if (found != null) {
+            ErlModelCache.getDefault().putModule(found);
+            return found;
+        }
+        if (!checkExternals) {
+            return null;
+        }
         final List<IErlModule> allModules = Lists.newArrayList();
         final Set<String> paths = Sets.newHashSet();
         try {
-            for (int i = 0; i < 2; ++i) {
-                final boolean externalModules = i > 0;
-                if (externalModules && !checkExternals) {
-                    break;
-                }
-                if (project != null) {
-                    final IErlModule module = tryFindModule(
-                            Sets.newHashSet(project), moduleName, modulePath,
-                            allModules, paths, externalModules);
-                    if (module != null) {
-                        return module;
-                    }
+            if (project != null) {
+                final IErlModule module = tryFindModule(Sets.newHashSet(project),
+                        moduleName, modulePath, allModules, paths);
+                if (module != null) {
+                    return module;
                 }
-                if ((scope == Scope.REFERENCED_PROJECTS || scope == Scope.ALL_PROJECTS)
-                        && project != null) {
-                    final Collection<IErlProject> projects = project
-                            .getReferencedProjects();
-                    final IErlModule module = tryFindModule(projects,
-                            moduleName, modulePath, allModules, paths,
-                            externalModules);
-                    if (module != null) {
-                        return module;
-                    }
+            }
+            if ((scope == Scope.REFERENCED_PROJECTS || scope == Scope.ALL_PROJECTS)
+                    && project != null) {
+                final Collection<IErlProject> projects = project
+                        .getReferencedProjects();
+                final IErlModule module = tryFindModule(projects, moduleName,
+                        modulePath, allModules, paths);
+                if (module != null) {
+                    return module;
                 }
-
-                if (scope == Scope.ALL_PROJECTS) {
-                    final Collection<IErlProject> projects = getErlangProjects();
-                    final IErlModule module = tryFindModule(projects,
-                            moduleName, modulePath, allModules, paths,
-                            externalModules);
-                    if (module != null) {
-                        return module;
-                    }
+            }
+            if (scope == Scope.ALL_PROJECTS) {
+                final Collection<IErlProject> projects = getErlangProjects();
+                final IErlModule module = tryFindModule(projects, moduleName,
+                        modulePath, allModules, paths);
+                if (module != null) {
+                    return module;
                 }
             }
             return null;
@@ -1083,16 +1175,15 @@ public class ErlModel extends Openable implements IErlModel {
         }
     }
 
+    /** Look for an external module of the projects. */
     private IErlModule tryFindModule(final Collection<IErlProject> projects,
             final String moduleName, final String modulePath,
-            final List<IErlModule> allModules, final Set<String> paths,
-            final boolean externalModules) throws ErlModelException {
+            final List<IErlModule> allModules, final Set<String> paths)
+            throws ErlModelException {
         IErlModule module;
         for (final IErlProject project : projects) {
             final Collection<IErlModule> modules = Lists.newArrayList();
-            final Collection<IErlModule> modulesOrExternals = externalModules ? project
-                    .getExternalModules() : project.getModules();
-            getAllModulesAux(modulesOrExternals, modules, paths);
+            getAllModulesAux(project.getExternalModules(), modules, paths);
             allModules.addAll(modules);
             module = findModule(modules, moduleName, modulePath);
             if (module != null) {
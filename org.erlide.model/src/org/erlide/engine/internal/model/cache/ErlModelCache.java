@@ -1,5 +1,6 @@
 package org.erlide.engine.internal.model.cache;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -16,8 +17,10 @@ import org.erlide.engine.model.erlang.IErlModule;
 import org.erlide.engine.model.root.IErlElement;
 import org.erlide.engine.model.root.IErlProject;
 import org.erlide.engine.services.search.OpenService.ExternalTreeEntry;
+import org.erlide.runtime.runtimeinfo.RuntimeInfo;
 import org.erlide.util.IDisposable;
 
+import com.ericsson.otp.erlang.OtpErlangList;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
@@ -38,11 +41,14 @@ public class ErlModelCache implements IDisposable {
     private final Cache<IErlModule, List<IErlModule>> moduleIncludeCache;
     private final Cache<String, IErlModule> pathToModuleCache;
     private final Cache<String, Pair<IErlProject, List<ExternalTreeEntry>>> externalTreeCache;
+    private final ExternalTreeStore externalTreeStore;
     private final Map<String, IErlModule> editedModulesMap;
     // private final Cache<String, Set<IErlModule>> nameToModuleCache;
     private final ModelChangeListener modelChangeListener;
     private final Cache<IErlProject, List<IErlModule>> projectModuleCache;
     private final Cache<IErlProject, List<IErlModule>> projectIncludeCache;
+    private final Cache<IErlProject, List<IErlModule>> projectExternalModuleCache;
+    private final Cache<IErlProject, List<IErlModule>> projectExternalIncludeCache;
     private final Cache<IErlProject, String> projectExternalModulesStringCache;
     private final Cache<IErlProject, String> projectExternalIncludesStringCache;
     private final Cache<IErlProject, Collection<IPath>> projectSourceDirsCache;
@@ -79,8 +85,12 @@ public class ErlModelCache implements IDisposable {
         // nameToModuleCache = newCache();
         moduleIncludeCache = newCache();
         externalTreeCache = newCache();
+        externalTreeStore = new ExternalTreeStore(new File(ErlangEngine
+                .getInstance().getStateDir(), "externals"));
         projectModuleCache = newCache();
         projectIncludeCache = newCache();
+        projectExternalModuleCache = newCache();
+        projectExternalIncludeCache = newCache();
         projectExternalModulesStringCache = newCache();
         projectExternalIncludesStringCache = newCache();
         projectSourceDirsCache = newCache();
@@ -192,6 +202,51 @@ public class ErlModelCache implements IDisposable {
         return Lists.newArrayList(entries);
     }
 
+    /**
+     * The external tree saved in an earlier session, if the externals files
+     * have not changed since.
+     */
+    public List<ExternalTreeEntry> getStoredExternalTree(
+            final String externalPath, final OtpErlangList pathVars) {
+        return externalTreeStore.getExternalTree(externalPath, pathVars);
+    }
+
+    public void putStoredExternalTree(final String externalPath,
+            final OtpErlangList pathVars,
+            final List<ExternalTreeEntry> externalTree) {
+        externalTreeStore.putExternalTree(externalPath, pathVars, externalTree);
+    }
+
+    public Map<String, List<String>> getOtpLibSrcIncludes(
+            final RuntimeInfo runtime) {
+        return externalTreeStore.getOtpLibs(runtime);
+    }
+
+    public void putOtpLibSrcIncludes(final RuntimeInfo runtime,
+            final Map<String, List<String>> libs) {
+        externalTreeStore.putOtpLibs(runtime, libs);
+    }
+
+    public List<IErlModule> getExternalModulesForProject(
+            final IErlProject project) {
+        return projectExternalModuleCache.getIfPresent(project);
+    }
+
+    public void putExternalModulesForProject(final IErlProject project,
+            final List<IErlModule> modules) {
+        projectExternalModuleCache.put(project, modules);
+    }
+
+    public List<IErlModule> getExternalIncludesForProject(
+            final IErlProject project) {
+        return projectExternalIncludeCache.getIfPresent(project);
+    }
+
+    public void putExternalIncludesForProject(final IErlProject project,
+            final List<IErlModule> includes) {
+        projectExternalIncludeCache.put(project, includes);
+    }
+
     public List<IErlModule> getModulesForProject(final IErlProject project) {
         final List<IErlModule> modules = projectModuleCache
                 .getIfPresent(project);
@@ -250,6 +305,8 @@ public class ErlModelCache implements IDisposable {
         }
         projectIncludeCache.invalidate(project);
         projectModuleCache.invalidate(project);
+        projectExternalModuleCache.invalidate(project);
+        projectExternalIncludeCache.invalidate(project);
         final Set<String> keysToRemove = Sets.newHashSet();
         final Set<Entry<String, Pair<IErlProject, List<ExternalTreeEntry>>>> entrySet = externalTreeCache
                 .asMap().entrySet();
@@ -268,7 +325,10 @@ public class ErlModelCache implements IDisposable {
     }
 
     public void pathVarsChanged() {
-        // FIXME we need to clear some stuff here...
+        // the external trees depend on the path variables
+        externalTreeCache.invalidateAll();
+        projectExternalModuleCache.invalidateAll();
+        projectExternalIncludeCache.invalidateAll();
     }
 
     public String getExternalModulesString(final IErlProject project) {
@@ -344,6 +404,8 @@ public class ErlModelCache implements IDisposable {
         // nameToModuleCache.clear();
         projectModuleCache.invalidateAll();
         projectIncludeCache.invalidateAll();
+        projectExternalModuleCache.invalidateAll();
+        projectExternalIncludeCache.invalidateAll();
         projectExternalModulesStringCache.invalidateAll();
         projectExternalIncludesStringCache.invalidateAll();
         projectSourceDirsCache.invalidateAll();
@@ -376,6 +438,39 @@ public class ErlModelCache implements IDisposable {
                 final Collection<IErlModule> result) {
         }
 
+        @Override
+        public List<ExternalTreeEntry> getStoredExternalTree(
+                final String externalPath, final OtpErlangList pathVars) {
+            return null;
+        }
+
+        @Override
+        public void putStoredExternalTree(final String externalPath,
+                final OtpErlangList pathVars,
+                final List<ExternalTreeEntry> externalTree) {
+        }
+
+        @Override
+        public Map<String, List<String>> getOtpLibSrcIncludes(
+                final RuntimeInfo runtime) {
+            return null;
+        }
+
+        @Override
+        public void putOtpLibSrcIncludes(final RuntimeInfo runtime,
+                final Map<String, List<String>> libs) {
+        }
+
+        @Override
+        public void putExternalModulesForProject(final IErlProject project,
+                final List<IErlModule> modules) {
+        }
+
+        @Override
+        public void putExternalIncludesForProject(final IErlProject project,
+                final List<IErlModule> includes) {
+        }
+
         @Override
         public void putIncludeDirs(final IErlProject project,
                 final Collection<IPath> dirs) {
@@ -0,0 +1,309 @@
+package org.erlide.engine.internal.model.cache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.erlide.engine.services.search.OpenService.ExternalTreeEntry;
+import org.erlide.runtime.runtimeinfo.RuntimeInfo;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.PreferencesUtils;
+import org.erlide.util.Util;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+
+/**
+ * Snapshots of the external library trees that outlive the session: the OTP
+ * libraries of each runtime and the trees read from the externals files.
+ *
+ * <p>
+ * Each snapshot records the files it was computed from, with their
+ * modification times, and is used as long as none of them has changed. So it
+ * is computed again only after an externals file is edited or the OTP
+ * installation is changed, and then it is shared by all the projects using it.
+ * </p>
+ */
+public class ExternalTreeStore {
+
+    private static final String OTP_HEADER = "# erlide otp libraries 1";
+    private static final String TREE_HEADER = "# erlide external tree 1";
+    private static final char SEP = '\t';
+    private static final Joiner JOINER = Joiner.on(SEP);
+    private static final Splitter SPLITTER = Splitter.on(SEP);
+
+    private final File dir;
+    private final ConcurrentMap<String, Snapshot> snapshots = Maps
+            .newConcurrentMap();
+
+    public ExternalTreeStore(final File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * The source and include directories of the OTP libraries of this runtime,
+     * or null if they have not been stored or the installation changed since.
+     */
+    public Map<String, List<String>> getOtpLibs(final RuntimeInfo runtime) {
+        final List<String> lines = get(OTP_HEADER, otpKey(runtime));
+        if (lines == null) {
+            return null;
+        }
+        final ImmutableMap.Builder<String, List<String>> result = ImmutableMap
+                .builder();
+        for (final String line : lines) {
+            final List<String> dirs = SPLITTER.splitToList(line);
+            result.put(dirs.get(0), dirs.subList(1, dirs.size()));
+        }
+        return result.build();
+    }
+
+    public void putOtpLibs(final RuntimeInfo runtime,
+            final Map<String, List<String>> libs) {
+        final List<String> lines = Lists.newArrayList();
+        for (final Entry<String, List<String>> lib : libs.entrySet()) {
+            lines.add(JOINER.join(Lists.asList(lib.getKey(), lib.getValue()
+                    .toArray())));
+        }
+        // a library added or removed changes the lib directory
+        final String home = runtime.getOtpHome();
+        put(OTP_HEADER, otpKey(runtime),
+                ImmutableList.of(home + "/lib", home + "/releases/start_erl.data"),
+                lines);
+    }
+
+    /**
+     * The tree of the externals files with these path variables, or null if
+     * it has not been stored or any of the files changed since.
+     */
+    public List<ExternalTreeEntry> getExternalTree(final String externals,
+            final OtpErlangList pathVars) {
+        final List<String> lines = get(TREE_HEADER, treeKey(externals, pathVars));
+        if (lines == null) {
+            return null;
+        }
+        final List<ExternalTreeEntry> result = Lists
+                .newArrayListWithCapacity(lines.size());
+        for (final String line : lines) {
+            final List<String> fields = SPLITTER.splitToList(line);
+            result.add(new ExternalTreeEntry(fields.get(1), fields.get(2), "M"
+                    .equals(fields.get(0))));
+        }
+        return result;
+    }
+
+    public void putExternalTree(final String externals,
+            final OtpErlangList pathVars, final List<ExternalTreeEntry> tree) {
+        final Set<String> dependencies = Sets.newLinkedHashSet();
+        for (final String name : PreferencesUtils.unpackArray(externals)) {
+            dependencies.add(resolvePathVar(name, pathVars));
+        }
+        final List<String> lines = Lists.newArrayList();
+        for (final ExternalTreeEntry entry : tree) {
+            if (!entry.isModule()) {
+                // an externals file referenced from another one
+                dependencies.add(entry.getPath());
+            }
+            lines.add(JOINER.join(entry.isModule() ? "M" : "E",
+                    entry.getParentPath(), entry.getPath()));
+        }
+        put(TREE_HEADER, treeKey(externals, pathVars), dependencies, lines);
+    }
+
+    public void clear() {
+        snapshots.clear();
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (final File f : files) {
+                f.delete();
+            }
+        }
+    }
+
+    private static String otpKey(final RuntimeInfo runtime) {
+        return JOINER.join("otp", runtime.getOtpHome(), runtime.getVersion());
+    }
+
+    private static String treeKey(final String externals,
+            final OtpErlangList pathVars) {
+        return JOINER.join("tree", externals, pathVars);
+    }
+
+    /**
+     * Replace a leading path variable with its value, like the backend does
+     * when it reads the externals (erlide_open:replace_path_var/2).
+     */
+    static String resolvePathVar(final String path,
+            final OtpErlangList pathVars) {
+        final int sep = indexOfSeparator(path);
+        final String var = sep < 0 ? path : path.substring(0, sep);
+        if (var.isEmpty()) {
+            return path;
+        }
+        for (final OtpErlangObject item : pathVars) {
+            final OtpErlangTuple pathVar = (OtpErlangTuple) item;
+            if (var.equals(Util.stringValue(pathVar.elementAt(0)))) {
+                return Util.stringValue(pathVar.elementAt(1))
+                        + path.substring(var.length());
+            }
+        }
+        return path;
+    }
+
+    private static int indexOfSeparator(final String path) {
+        final int slash = path.indexOf('/');
+        final int backslash = path.indexOf('\\');
+        if (slash < 0 || backslash < 0) {
+            return Math.max(slash, backslash);
+        }
+        return Math.min(slash, backslash);
+    }
+
+    private List<String> get(final String header, final String key) {
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot == null) {
+            snapshot = read(file(key), header, key);
+            if (snapshot == null) {
+                return null;
+            }
+            snapshots.put(key, snapshot);
+        }
+        if (!snapshot.isUpToDate()) {
+            snapshots.remove(key, snapshot);
+            file(key).delete();
+            return null;
+        }
+        return snapshot.lines;
+    }
+
+    private void put(final String header, final String key,
+            final Collection<String> dependencies, final List<String> lines) {
+        final Map<String, Long> stamps = Maps.newLinkedHashMap();
+        for (final String dependency : dependencies) {
+            stamps.put(dependency, lastModified(dependency));
+        }
+        final Snapshot snapshot = new Snapshot(stamps, lines);
+        snapshots.put(key, snapshot);
+        write(file(key), header, key, snapshot);
+    }
+
+    private File file(final String key) {
+        return new File(dir, Hashing.md5().hashString(key, Charsets.UTF_8)
+                .toString());
+    }
+
+    private static Snapshot read(final File f, final String header,
+            final String key) {
+        if (!f.exists()) {
+            return null;
+        }
+        try {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(f), Charsets.UTF_8));
+            try {
+                if (!header.equals(in.readLine())
+                        || !key.equals(in.readLine())) {
+                    return null;
+                }
+                final int count = Integer.parseInt(in.readLine());
+                final Map<String, Long> stamps = Maps.newLinkedHashMap();
+                for (int i = 0; i < count; i++) {
+                    final String line = in.readLine();
+                    final int sep = line.lastIndexOf(SEP);
+                    stamps.put(line.substring(0, sep),
+                            Long.parseLong(line.substring(sep + 1)));
+                }
+                final List<String> lines = Lists.newArrayList();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                }
+                return new Snapshot(stamps, lines);
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+        } catch (final RuntimeException e) {
+            ErlLogger.warn("Could not read %s: %s", f, e);
+        }
+        return null;
+    }
+
+    private void write(final File f, final String header, final String key,
+            final Snapshot snapshot) {
+        dir.mkdirs();
+        try {
+            final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(f), Charsets.UTF_8));
+            try {
+                out.write(header);
+                out.newLine();
+                out.write(key);
+                out.newLine();
+                out.write(String.valueOf(snapshot.stamps.size()));
+                out.newLine();
+                for (final Entry<String, Long> stamp : snapshot.stamps.entrySet()) {
+                    out.write(JOINER.join(stamp.getKey(), stamp.getValue()));
+                    out.newLine();
+                }
+                for (final String line : snapshot.lines) {
+                    out.write(line);
+                    out.newLine();
+                }
+            } finally {
+                out.close();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            f.delete();
+        }
+    }
+
+    private static long lastModified(final String path) {
+        // 0 if it doesn't exist
+        return new File(path).lastModified();
+    }
+
+    private static class Snapshot {
+        // file -> modification time when the lines were computed
+        final Map<String, Long> stamps;
+        final List<String> lines;
+
+        Snapshot(final Map<String, Long> stamps, final List<String> lines) {
+            this.stamps = stamps;
+            this.lines = ImmutableList.copyOf(lines);
+        }
+
+        boolean isUpToDate() {
+            for (final Entry<String, Long> stamp : stamps.entrySet()) {
+                if (lastModified(stamp.getKey()) != stamp.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.erlide.engine.internal.model.cache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.erlide.engine.util.CommonUtils;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.SystemConfiguration;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * The Erlang files (modules and includes) of the workspace, by name. Lookups
+ * return the files with a given name in constant time, instead of walking the
+ * modules of all projects.
+ *
+ * <p>
+ * The index is kept up to date from the resource deltas and is saved in the
+ * plugin state area whenever the workspace is saved. At startup it is read back
+ * and the changes made since the last save are replayed from the workspace's
+ * saved state; if there is no saved index, it is rebuilt from the workspace
+ * tree on first use.
+ * </p>
+ */
+public class ModuleIndex implements ISaveParticipant {
+
+    private static final String HEADER = "# erlide module index 1";
+
+    private final String pluginId;
+    private final File file;
+    // lower case name without extension -> full path in workspace
+    private final SetMultimap<String, String> byName = HashMultimap.create();
+    private boolean built;
+
+    public ModuleIndex(final String pluginId, final File file) {
+        this.pluginId = pluginId;
+        this.file = file;
+    }
+
+    /**
+     * Register with the workspace and load the saved index, bringing it up to
+     * date.
+     */
+    public void start() {
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        try {
+            final ISavedState lastState = workspace.addSaveParticipant(pluginId, this);
+            if (lastState != null && load()) {
+                lastState.processResourceChangeEvents(new IResourceChangeListener() {
+                    @Override
+                    public void resourceChanged(final IResourceChangeEvent event) {
+                        ModuleIndex.this.resourceChanged(event.getDelta());
+                    }
+                });
+            }
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    /**
+     * The files with this name, with or without extension. The caller has to
+     * check the extension, if needed.
+     */
+    public synchronized Collection<IFile> getFiles(final String name) {
+        ensureBuilt();
+        final IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+        final List<IFile> result = Lists.newArrayList();
+        final Iterator<String> paths = byName.get(key(name)).iterator();
+        while (paths.hasNext()) {
+            final IFile f = root.getFile(new Path(paths.next()));
+            if (f.isAccessible()) {
+                result.add(f);
+            } else {
+                paths.remove();
+            }
+        }
+        return result;
+    }
+
+    public synchronized void resourceChanged(final IResourceDelta delta) {
+        if (!built || delta == null) {
+            // the full scan will see the changes
+            return;
+        }
+        try {
+            delta.accept(new IResourceDeltaVisitor() {
+                @Override
+                public boolean visit(final IResourceDelta d) throws CoreException {
+                    final IResource resource = d.getResource();
+                    switch (resource.getType()) {
+                    case IResource.FILE:
+                        if (CommonUtils.isErlangFileContentFileName(resource.getName())) {
+                            if (d.getKind() == IResourceDelta.ADDED) {
+                                add(resource.getFullPath().toString());
+                            } else if (d.getKind() == IResourceDelta.REMOVED) {
+                                remove(resource.getFullPath().toString());
+                            }
+                        }
+                        return false;
+                    case IResource.PROJECT:
+                        if (d.getKind() == IResourceDelta.REMOVED) {
+                            removeAll(resource.getFullPath().toString());
+                            return false;
+                        }
+                        if ((d.getFlags() & IResourceDelta.OPEN) != 0) {
+                            removeAll(resource.getFullPath().toString());
+                            if (((IProject) resource).isOpen()) {
+                                scan(resource);
+                            }
+                            return false;
+                        }
+                        return true;
+                    default:
+                        return true;
+                    }
+                }
+            });
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    @Override
+    public void prepareToSave(final ISaveContext context) throws CoreException {
+    }
+
+    @Override
+    public void saving(final ISaveContext context) throws CoreException {
+        save();
+        context.needDelta();
+    }
+
+    @Override
+    public void doneSaving(final ISaveContext context) {
+    }
+
+    @Override
+    public void rollback(final ISaveContext context) {
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        byName.clear();
+        scan(ResourcesPlugin.getWorkspace().getRoot());
+        built = true;
+    }
+
+    private void scan(final IResource start) {
+        try {
+            start.accept(new IResourceProxyVisitor() {
+                @Override
+                public boolean visit(final IResourceProxy proxy) throws CoreException {
+                    if (proxy.getType() == IResource.FILE) {
+                        if (CommonUtils.isErlangFileContentFileName(proxy.getName())) {
+                            add(proxy.requestFullPath().toString());
+                        }
+                        return false;
+                    }
+                    return true;
+                }
+            }, IResource.NONE);
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    private void add(final String path) {
+        byName.put(key(path), path);
+    }
+
+    private void remove(final String path) {
+        byName.remove(key(path), path);
+    }
+
+    private void removeAll(final String prefix) {
+        final String dir = prefix + "/";
+        final Iterator<Entry<String, String>> entries = byName.entries().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().getValue().startsWith(dir)) {
+                entries.remove();
+            }
+        }
+    }
+
+    private static String key(final String pathOrName) {
+        final String name = pathOrName.substring(pathOrName.lastIndexOf('/') + 1);
+        return SystemConfiguration.withoutExtension(name).toLowerCase();
+    }
+
+    synchronized boolean load() {
+        if (!file.exists()) {
+            return false;
+        }
+        try {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), Charsets.UTF_8));
+            try {
+                if (!HEADER.equals(in.readLine())) {
+                    return false;
+                }
+                String line;
+                while ((line = in.readLine()) != null) {
+                    add(line);
+                }
+                built = true;
+                return true;
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            byName.clear();
+            return false;
+        }
+    }
+
+    synchronized void save() {
+        if (!built) {
+            // would be out of date at next start
+            file.delete();
+            return;
+        }
+        file.getParentFile().mkdirs();
+        try {
+            final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file), Charsets.UTF_8));
+            try {
+                out.write(HEADER);
+                out.newLine();
+                for (final String path : byName.values()) {
+                    out.write(path);
+                    out.newLine();
+                }
+            } finally {
+                out.close();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            file.delete();
+        }
+    }
+
+}
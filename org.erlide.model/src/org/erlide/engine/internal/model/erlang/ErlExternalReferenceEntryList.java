@@ -73,21 +73,15 @@ public class ErlExternalReferenceEntryList extends Openable implements
                 if (pm != null) {
                     pm.worked(1);
                 }
-                externalModuleTree = ErlangEngine
-                        .getInstance()
-                        .getService(OpenService.class)
-                        .getExternalModuleTree(backend, externalModules,
-                                pathVars);
+                externalModuleTree = getExternalTree(cache, backend,
+                        externalModules, pathVars);
             }
             if (externalIncludeTree == null && externalIncludes.length() > 0) {
                 if (pm != null) {
                     pm.worked(1);
                 }
-                externalIncludeTree = ErlangEngine
-                        .getInstance()
-                        .getService(OpenService.class)
-                        .getExternalModuleTree(backend, externalIncludes,
-                                pathVars);
+                externalIncludeTree = getExternalTree(cache, backend,
+                        externalIncludes, pathVars);
             }
         }
         setChildren(null);
@@ -112,6 +106,25 @@ public class ErlExternalReferenceEntryList extends Openable implements
         return true;
     }
 
+    /**
+     * The tree stored in an earlier session if it is still valid, otherwise
+     * the one read now by the backend.
+     */
+    private List<ExternalTreeEntry> getExternalTree(final ErlModelCache cache,
+            final IRpcSite backend, final String externals,
+            final OtpErlangList pathVars) {
+        List<ExternalTreeEntry> tree = cache.getStoredExternalTree(externals,
+                pathVars);
+        if (tree == null) {
+            tree = ErlangEngine.getInstance().getService(OpenService.class)
+                    .getExternalModuleTree(backend, externals, pathVars);
+            if (tree != null) {
+                cache.putStoredExternalTree(externals, pathVars, tree);
+            }
+        }
+        return tree;
+    }
+
     private void addExternalEntries(final IProgressMonitor pm,
             final List<ExternalTreeEntry> externalTree, final IErlModel model,
             final String rootName, final List<String> otherItems,
@@ -75,7 +75,7 @@ public class ErlModule extends Openable implements IErlModule {
     private String initialText;
     private boolean parsed;
     private final String scannerName;
-    private final Collection<IErlComment> comments;
+    private volatile Collection<IErlComment> comments;
     private ScannerService scanner;
     private final String encoding;
 
@@ -102,7 +102,7 @@ public class ErlModule extends Openable implements IErlModule {
         moduleKind = ModuleKind.nameToModuleKind(name);
         parsed = false;
         scannerName = createScannerName();
-        comments = Lists.newArrayList();
+        comments = Collections.emptyList();
         if (ModelConfig.verbose) {
             final IErlElement element = (IErlElement) parent;
             final String parentName = element.getName();
@@ -255,19 +255,17 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public void setComments(final Collection<? extends IErlComment> comments) {
-        synchronized (getModelLock()) {
-            this.comments.clear();
-            if (comments != null) {
-                this.comments.addAll(comments);
-            }
+        if (comments == null) {
+            this.comments = Collections.emptyList();
+        } else {
+            this.comments = Collections.unmodifiableList(Lists
+                    .newArrayList(comments));
         }
     }
 
     @Override
     public Collection<IErlComment> getComments() {
-        synchronized (getModelLock()) {
-            return Collections.unmodifiableCollection(comments);
-        }
+        return comments;
     }
 
     @Override
@@ -308,33 +306,23 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public IErlFunction findFunction(final ErlangFunction function) {
-        try {
-            for (final IErlElement fun : getChildrenOfKind(ErlElementKind.FUNCTION)) {
-                if (fun instanceof IErlFunction) {
-                    final IErlFunction f = (IErlFunction) fun;
-                    if (f.getName().equals(function.name)
-                            && (function.arity < 0 || f.getArity() == function.arity)) {
-                        return f;
-                    }
+        for (final IErlElement fun : getChildrenNamed(function.name)) {
+            if (fun instanceof IErlFunction) {
+                final IErlFunction f = (IErlFunction) fun;
+                if (function.arity < 0 || f.getArity() == function.arity) {
+                    return f;
                 }
             }
-        } catch (final ErlModelException e) { // ignore
         }
         return null;
     }
 
     @Override
     public IErlTypespec findTypespec(final String typeName) {
-        try {
-            for (final IErlElement child : getChildrenOfKind(ErlElementKind.TYPESPEC)) {
-                if (child instanceof IErlTypespec) {
-                    final IErlTypespec typespec = (IErlTypespec) child;
-                    if (typespec.getName().equals(typeName)) {
-                        return typespec;
-                    }
-                }
+        for (final IErlElement child : getChildrenNamed(typeName)) {
+            if (child instanceof IErlTypespec) {
+                return (IErlTypespec) child;
             }
-        } catch (final ErlModelException e) { // ignore
         }
         return null;
     }
@@ -342,14 +330,12 @@ public class ErlModule extends Openable implements IErlModule {
     @Override
     public IErlPreprocessorDef findPreprocessorDef(final String definedName,
             final ErlElementKind kind) {
-        synchronized (getModelLock()) {
-            for (final IErlElement m : internalGetChildren()) {
-                if (m instanceof IErlPreprocessorDef) {
-                    final IErlPreprocessorDef pd = (IErlPreprocessorDef) m;
-                    if (pd.getKind() == kind
-                            && pd.getDefinedName().equals(definedName)) {
-                        return pd;
-                    }
+        for (final IErlElement m : internalGetChildren()) {
+            if (m instanceof IErlPreprocessorDef) {
+                final IErlPreprocessorDef pd = (IErlPreprocessorDef) m;
+                if (pd.getKind() == kind
+                        && pd.getDefinedName().equals(definedName)) {
+                    return pd;
                 }
             }
         }
@@ -363,18 +349,16 @@ public class ErlModule extends Openable implements IErlModule {
             open(null);
         }
         final List<ErlangIncludeFile> r = Lists.newArrayList();
-        synchronized (getModelLock()) {
-            for (final IErlElement m : internalGetChildren()) {
-                if (m instanceof IErlAttribute) {
-                    final IErlAttribute a = (IErlAttribute) m;
-                    final OtpErlangObject v = a.getValue();
-                    if (v instanceof OtpErlangString) {
-                        final String s = ((OtpErlangString) v).stringValue();
-                        if ("include".equals(a.getName())) {
-                            r.add(new ErlangIncludeFile(false, s));
-                        } else if ("include_lib".equals(a.getName())) {
-                            r.add(new ErlangIncludeFile(true, s));
-                        }
+        for (final IErlElement m : internalGetChildren()) {
+            if (m instanceof IErlAttribute) {
+                final IErlAttribute a = (IErlAttribute) m;
+                final OtpErlangObject v = a.getValue();
+                if (v instanceof OtpErlangString) {
+                    final String s = ((OtpErlangString) v).stringValue();
+                    if ("include".equals(a.getName())) {
+                        r.add(new ErlangIncludeFile(false, s));
+                    } else if ("include_lib".equals(a.getName())) {
+                        r.add(new ErlangIncludeFile(true, s));
                     }
                 }
             }
@@ -385,12 +369,10 @@ public class ErlModule extends Openable implements IErlModule {
     @Override
     public Collection<IErlImport> getImports() {
         final List<IErlImport> result = new ArrayList<IErlImport>();
-        synchronized (getModelLock()) {
-            for (final IErlElement e : internalGetChildren()) {
-                if (e instanceof IErlImport) {
-                    final IErlImport ei = (IErlImport) e;
-                    result.add(ei);
-                }
+        for (final IErlElement e : internalGetChildren()) {
+            if (e instanceof IErlImport) {
+                final IErlImport ei = (IErlImport) e;
+                result.add(ei);
             }
         }
         return result;
@@ -542,13 +524,11 @@ public class ErlModule extends Openable implements IErlModule {
     public Collection<IErlPreprocessorDef> getPreprocessorDefs(
             final ErlElementKind kind) {
         final List<IErlPreprocessorDef> result = Lists.newArrayList();
-        synchronized (getModelLock()) {
-            for (final IErlElement e : internalGetChildren()) {
-                if (e instanceof IErlPreprocessorDef) {
-                    final IErlPreprocessorDef pd = (IErlPreprocessorDef) e;
-                    if (pd.getKind() == kind || kind == ErlElementKind.PROBLEM) {
-                        result.add(pd);
-                    }
+        for (final IErlElement e : internalGetChildren()) {
+            if (e instanceof IErlPreprocessorDef) {
+                final IErlPreprocessorDef pd = (IErlPreprocessorDef) e;
+                if (pd.getKind() == kind || kind == ErlElementKind.PROBLEM) {
+                    result.add(pd);
                 }
             }
         }
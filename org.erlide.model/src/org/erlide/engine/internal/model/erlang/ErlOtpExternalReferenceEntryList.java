@@ -8,6 +8,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.internal.model.cache.ErlModelCache;
 import org.erlide.engine.internal.model.root.Openable;
 import org.erlide.engine.internal.util.BackendUtil;
 import org.erlide.engine.model.ErlModelException;
@@ -19,6 +20,7 @@ import org.erlide.engine.model.root.IErlExternalRoot;
 import org.erlide.engine.model.root.IErlProject;
 import org.erlide.engine.services.search.OpenService;
 import org.erlide.runtime.api.IRpcSite;
+import org.erlide.runtime.runtimeinfo.RuntimeInfo;
 
 public class ErlOtpExternalReferenceEntryList extends Openable implements
         IErlExternalRoot {
@@ -41,16 +43,18 @@ public class ErlOtpExternalReferenceEntryList extends Openable implements
         final IRpcSite backend = new BackendUtil().getBackend(erlProject
                 .getWorkspaceProject());
         if (backend != null) {
-            addExternalEntries(pm, backend);
+            addExternalEntries(pm, backend, erlProject.getRuntimeInfo());
         }
         return true;
     }
 
     private void addExternalEntries(final IProgressMonitor pm,
-            final IRpcSite backend) {
-        final Map<String, List<String>> srcIncludes = ErlangEngine
-                .getInstance().getService(OpenService.class)
-                .getOtpLibSrcIncludes(backend);
+            final IRpcSite backend, final RuntimeInfo runtime) {
+        final Map<String, List<String>> srcIncludes = getOtpLibSrcIncludes(
+                backend, runtime);
+        if (srcIncludes == null) {
+            return;
+        }
         for (final String srcInclude : srcIncludes.keySet()) {
             boolean hasHeaders = false;
             final List<String> paths = srcIncludes.get(srcInclude);
@@ -70,6 +74,28 @@ public class ErlOtpExternalReferenceEntryList extends Openable implements
         }
     }
 
+    /**
+     * The OTP libraries are the same for all projects using this runtime and
+     * change only when the installation does, so they are kept across
+     * sessions.
+     */
+    private Map<String, List<String>> getOtpLibSrcIncludes(
+            final IRpcSite backend, final RuntimeInfo runtime) {
+        final ErlModelCache cache = ErlModelCache.getDefault();
+        final boolean canStore = runtime != null && runtime.getOtpHome() != null
+                && runtime.getOtpHome().length() > 0;
+        Map<String, List<String>> result = canStore ? cache
+                .getOtpLibSrcIncludes(runtime) : null;
+        if (result == null) {
+            result = ErlangEngine.getInstance().getService(OpenService.class)
+                    .getOtpLibSrcIncludes(backend);
+            if (result != null && canStore) {
+                cache.putOtpLibSrcIncludes(runtime, result);
+            }
+        }
+        return result;
+    }
+
     private final boolean includePath(final String path) {
         final IPath p = new Path(path);
         return p.lastSegment().equals("include");
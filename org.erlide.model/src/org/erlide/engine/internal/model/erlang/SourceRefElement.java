@@ -136,9 +136,7 @@ public abstract class SourceRefElement extends ErlElement implements
      */
     @Override
     public boolean hasChildren() {
-        synchronized (getModelLock()) {
-            return internalGetChildren().size() > 0;
-        }
+        return internalGetChildren().size() > 0;
     }
 
     public void setSourceRangeOffset(final int offset) {
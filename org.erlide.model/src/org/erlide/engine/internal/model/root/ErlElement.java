@@ -26,7 +26,6 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
-import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.internal.model.cache.ErlModelCache;
 import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.IOpenable;
@@ -37,6 +36,8 @@ import org.erlide.engine.model.root.IErlElementVisitor;
 import org.erlide.util.StringUtils;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 
 /**
@@ -53,7 +54,11 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
      */
     private final IParent fParent;
 
-    private final List<IErlElement> fChildren = Lists.newArrayList();
+    /**
+     * The children are replaced, never modified, so that readers can use them
+     * without locking; writers lock this element only.
+     */
+    private volatile Children fChildren = Children.EMPTY;
 
     /**
      * This element's name, or an empty <code>String</code> if this element does
@@ -229,18 +234,14 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
      */
     @Override
     public boolean hasChildren() {
-        synchronized (getModelLock()) {
-            return !internalGetChildren().isEmpty();
-        }
+        return !internalGetChildren().isEmpty();
     }
 
     @Override
     public boolean hasChildrenOfKind(final ErlElementKind kind) {
-        synchronized (getModelLock()) {
-            for (final IErlElement child : internalGetChildren()) {
-                if (child.getKind() == kind) {
-                    return true;
-                }
+        for (final IErlElement child : internalGetChildren()) {
+            if (child.getKind() == kind) {
+                return true;
             }
         }
         return false;
@@ -401,21 +402,20 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
 
     @Override
     public List<IErlElement> getChildren() throws ErlModelException {
-        synchronized (getModelLock()) {
-            return Collections.unmodifiableList(Lists
-                    .newArrayList(internalGetChildren()));
-        }
+        return internalGetChildren();
     }
 
+    /**
+     * The current children. The list is never modified, a change of the
+     * children replaces it.
+     */
     public List<IErlElement> internalGetChildren() {
-        return fChildren;
+        return fChildren.list;
     }
 
     @Override
     public int getChildCount() {
-        synchronized (getModelLock()) {
-            return internalGetChildren().size();
-        }
+        return internalGetChildren().size();
     }
 
     /**
@@ -429,11 +429,9 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
     public List<IErlElement> getChildrenOfKind(final ErlElementKind kind)
             throws ErlModelException {
         final List<IErlElement> result = Lists.newArrayList();
-        synchronized (getModelLock()) {
-            for (final IErlElement element : internalGetChildren()) {
-                if (element.getKind() == kind) {
-                    result.add(element);
-                }
+        for (final IErlElement element : internalGetChildren()) {
+            if (element.getKind() == kind) {
+                result.add(element);
             }
         }
         return result;
@@ -441,7 +439,15 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
 
     @Override
     public IErlElement getChildNamed(final String name) {
-        return getChildNamed(this, name);
+        final List<IErlElement> named = getChildrenNamed(name);
+        return named.isEmpty() ? null : named.get(0);
+    }
+
+    /**
+     * The children with this name, in order.
+     */
+    protected List<IErlElement> getChildrenNamed(final String name) {
+        return fChildren.named(name);
     }
 
     @Override
@@ -453,9 +459,7 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
      * Returns <code>true</code> if this child is in my children collection
      */
     protected boolean includesChild(final IErlElement child) {
-        synchronized (getModelLock()) {
-            return internalGetChildren().contains(child);
-        }
+        return internalGetChildren().contains(child);
     }
 
     /**
@@ -468,28 +472,30 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
 
     @Override
     public void removeChild(final IErlElement child) {
-        synchronized (getModelLock()) {
+        synchronized (this) {
             clearCaches();
-            fChildren.remove(child);
+            final List<IErlElement> list = Lists.newArrayList(fChildren.list);
+            list.remove(child);
+            fChildren = new Children(list);
         }
     }
 
     @Override
     public void addChild(final IErlElement child) {
-        synchronized (getModelLock()) {
+        synchronized (this) {
             clearCaches();
-            fChildren.add(child);
+            final List<IErlElement> list = Lists.newArrayList(fChildren.list);
+            list.add(child);
+            fChildren = new Children(list);
         }
     }
 
     @Override
     public void setChildren(final Collection<? extends IErlElement> children) {
-        synchronized (getModelLock()) {
+        synchronized (this) {
             clearCaches();
-            fChildren.clear();
-            if (children != null) {
-                fChildren.addAll(children);
-            }
+            fChildren = children == null || children.isEmpty() ? Children.EMPTY
+                    : new Children(children);
         }
     }
 
@@ -512,29 +518,11 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
         setStructureKnown(false);
     }
 
-    private static IErlElement getChildNamed(final ErlElement parent,
-            final String name) {
-        synchronized (parent.getModelLock()) {
-            for (final IErlElement child : parent.internalGetChildren()) {
-                if (child.getName().equals(name)) {
-                    return child;
-                }
-            }
-        }
-        return null;
-    }
-
-    protected Object getModelLock() {
-        return ErlangEngine.getInstance().getModel().getModelLock();
-    }
-
     private static IErlElement getChildWithResource(final ErlElement parent,
             final IResource rsrc) {
-        synchronized (parent.getModelLock()) {
-            for (final IErlElement child : parent.internalGetChildren()) {
-                if (rsrc.equals(child.getResource())) {
-                    return child;
-                }
+        for (final IErlElement child : parent.internalGetChildren()) {
+            if (rsrc.equals(child.getResource())) {
+                return child;
             }
         }
         return null;
@@ -544,9 +532,7 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
     public final void accept(final IErlElementVisitor visitor,
             final Set<AcceptFlags> flags, final ErlElementKind leafKind)
             throws ErlModelException {
-        synchronized (getModelLock()) {
-            internalAccept(visitor, flags, leafKind);
-        }
+        internalAccept(visitor, flags, leafKind);
     }
 
     private final void internalAccept(final IErlElementVisitor visitor,
@@ -611,4 +597,33 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
         return ErlModelCache.getDefault();
     }
 
+    /**
+     * An immutable list of children, with an index by name that is built the
+     * first time it is needed.
+     */
+    private static final class Children {
+
+        static final Children EMPTY = new Children(
+                Collections.<IErlElement> emptyList());
+
+        final List<IErlElement> list;
+        private volatile ListMultimap<String, IErlElement> byName;
+
+        Children(final Collection<? extends IErlElement> children) {
+            list = Collections.unmodifiableList(Lists.newArrayList(children));
+        }
+
+        List<IErlElement> named(final String name) {
+            ListMultimap<String, IErlElement> index = byName;
+            if (index == null) {
+                index = ArrayListMultimap.create();
+                for (final IErlElement child : list) {
+                    index.put(child.getName(), child);
+                }
+                byName = index;
+            }
+            return Collections.unmodifiableList(index.get(name));
+        }
+    }
+
 }
@@ -643,6 +643,12 @@ public class ErlProject extends Openable implements IErlProject {
 
     @Override
     public Collection<IErlModule> getExternalModules() throws ErlModelException {
+        final ErlModelCache modelCache = getModelCache();
+        final List<IErlModule> cached = modelCache
+                .getExternalModulesForProject(this);
+        if (cached != null) {
+            return cached;
+        }
         final List<IErlModule> result = Lists.newArrayList();
         accept(new IErlElementVisitor() {
 
@@ -662,7 +668,9 @@ public class ErlProject extends Openable implements IErlProject {
                 return isExternalOrProject;
             }
         }, EnumSet.noneOf(AcceptFlags.class), ErlElementKind.MODULE);
-        return result;
+        final List<IErlModule> modules = Collections.unmodifiableList(result);
+        modelCache.putExternalModulesForProject(this, modules);
+        return modules;
     }
 
     @Override
@@ -879,6 +887,12 @@ public class ErlProject extends Openable implements IErlProject {
     @Override
     public Collection<IErlModule> getExternalIncludes()
             throws ErlModelException {
+        final ErlModelCache modelCache = getModelCache();
+        final List<IErlModule> cached = modelCache
+                .getExternalIncludesForProject(this);
+        if (cached != null) {
+            return cached;
+        }
         final List<IErlModule> result = Lists.newArrayList();
         accept(new IErlElementVisitor() {
 
@@ -907,7 +921,9 @@ public class ErlProject extends Openable implements IErlProject {
                 return false;
             }
         }, EnumSet.noneOf(AcceptFlags.class), ErlElementKind.MODULE);
-        return result;
+        final List<IErlModule> includes = Collections.unmodifiableList(result);
+        modelCache.putExternalIncludesForProject(this, includes);
+        return includes;
     }
 
     public void pathVarsChanged() {
@@ -62,6 +62,8 @@ public class ErlTidyCleanupProvider implements CleanupProvider {
 
         // wait as long as reasonable for erl_tidy to finish
         erlTidyFuture.get(PATIENCE_LIMIT, TimeUnit.MILLISECONDS);
+        // stop waiting for the reply if it didn't come in time
+        erlTidyFuture.cancel(false);
 
         // refresh the resource so it reflects the altered state on disk
         resource.refreshLocal(IResource.DEPTH_ZERO, null);
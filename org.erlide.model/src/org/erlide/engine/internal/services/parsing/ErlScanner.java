@@ -12,14 +12,18 @@ package org.erlide.engine.internal.services.parsing;
 
 import org.erlide.engine.services.parsing.ErlToken;
 import org.erlide.engine.services.parsing.ScannerService;
+import org.erlide.engine.services.parsing.TokenStore;
 import org.erlide.runtime.api.IRpcSite;
 
 /**
- * Erlang syntax scanner
+ * Erlang syntax scanner. The text and tokens are kept locally in a
+ * {@link TokenStore}, so queries don't need the backend. The backend scanner
+ * is still updated, because the parser works on its tokens.
  */
 public class ErlScanner implements ScannerService {
     private final String name;
     private final ErlideScanner scanner;
+    private final TokenStore store = new TokenStore();
 
     public ErlScanner(final IRpcSite backend, final String name) {
         this.name = name;
@@ -31,6 +35,7 @@ public class ErlScanner implements ScannerService {
     public void initialScan(final String initialText, final String path,
             final boolean logging) {
         final String pathNotNull = path == null ? "" : path;
+        store.setText(initialText == null ? "" : initialText);
         scanner.initialScan(name, pathNotNull, initialText, logging);
     }
 
@@ -42,17 +47,18 @@ public class ErlScanner implements ScannerService {
     @Override
     public void replaceText(final int offset, final int removeLength,
             final String newText) {
+        store.replaceText(offset, removeLength, newText);
         scanner.replaceText(name, offset, removeLength, newText);
     }
 
     @Override
     public ErlToken getTokenAt(final int offset) {
-        return scanner.getTokenAt(name, offset);
+        return store.getTokenAt(offset);
     }
 
     @Override
     public String getText() {
-        return scanner.getText(name);
+        return store.getText();
     }
 
     @Override
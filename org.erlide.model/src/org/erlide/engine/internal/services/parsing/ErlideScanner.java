@@ -5,10 +5,10 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.services.parsing.ErlLexer;
 import org.erlide.engine.services.parsing.ErlToken;
 import org.erlide.engine.services.parsing.InternalScanner;
 import org.erlide.engine.services.parsing.ScannerException;
@@ -19,14 +19,11 @@ import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.Util;
 
-import com.ericsson.otp.erlang.OtpErlangBinary;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 
 public class ErlideScanner implements SimpleScannerService, InternalScanner {
     private static final String ERLIDE_SCANNER = "erlide_scanner";
-    private static final Object ENCODING = System.getProperty(
-            "erlide.encoding.__test__", "latin1");
 
     private final IRpcSite backend;
 
@@ -122,43 +119,13 @@ public class ErlideScanner implements SimpleScannerService, InternalScanner {
         }
     }
 
+    /**
+     * Scanned locally with {@link ErlLexer}, the backend is not involved.
+     */
     @Override
     public List<ErlToken> lightScanString(final String string, final int offset)
             throws ScannerException {
-        OtpErlangObject r1 = null;
-        try {
-            r1 = backend.call("erlide_scanner", "light_scan_string", "ba",
-                    string, ENCODING);
-        } catch (final Exception e) {
-            throw new ScannerException("Could not parse string \"" + string
-                    + "\": " + e.getMessage());
-        }
-        if (r1 == null) {
-            return null;
-        }
-
-        if (!(r1 instanceof OtpErlangTuple)) {
-            throw new ScannerException("Could not parse string \"" + string
-                    + "\": weird return value " + r1);
-        }
-        final OtpErlangTuple t1 = (OtpErlangTuple) r1;
-
-        List<ErlToken> toks = null;
-        if (Util.isOk(t1)) {
-            if (t1.elementAt(1) instanceof OtpErlangBinary) {
-                final OtpErlangBinary b = (OtpErlangBinary) t1.elementAt(1);
-                final byte[] bytes = b.binaryValue();
-                toks = new ArrayList<ErlToken>(bytes.length / 10);
-                for (int i = 0; i < bytes.length; i += 10) {
-                    final ErlToken tk = new ErlToken(bytes, i, offset);
-                    toks.add(tk);
-                }
-                return toks;
-            }
-            throw new ScannerException("unexpected token format");
-        }
-        throw new ScannerException("Could not parse string \"" + string
-                + "\": " + t1.toString());
+        return ErlLexer.scan(string, offset);
     }
 
     @Override
@@ -178,6 +145,7 @@ public class ErlideScanner implements SimpleScannerService, InternalScanner {
 
     }
 
+    @Override
     public String getText(final String scannerName) {
         try {
             final OtpErlangObject o = backend.call(ERLIDE_SCANNER, "get_text",
@@ -7,7 +7,9 @@ import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.services.search.OpenService;
 import org.erlide.engine.services.search.OtpDocService;
 import org.erlide.runtime.api.IRpcSite;
+import org.erlide.runtime.rpc.RpcBatch;
 import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcResult;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.ErlangFunctionCall;
 
@@ -17,6 +19,7 @@ import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
 
 public class ErlideDoc implements OtpDocService {
 
@@ -40,6 +43,27 @@ public class ErlideDoc implements OtpDocService {
         return res;
     }
 
+    @Override
+    public List<OtpErlangObject> getProposalsWithDoc(final IRpcSite b,
+            final List<String> mods, final String prefix, final String stateDir) {
+        final List<OtpErlangObject> result = Lists.newArrayList();
+        final RpcBatch batch = new RpcBatch();
+        for (final String mod : mods) {
+            batch.add(ERLIDE_OTP_DOC, "get_proposals", "ass", mod, prefix, stateDir);
+        }
+        try {
+            for (final RpcResult res : b.call_batch(batch)) {
+                result.add(res.isOk() ? res.getValue() : null);
+            }
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+            for (int i = result.size(); i < mods.size(); i++) {
+                result.add(null);
+            }
+        }
+        return result;
+    }
+
     @Override
     public OtpErlangObject getModules(final IRpcSite b, final String prefix,
             final List<String> projectModules, final boolean includes) {
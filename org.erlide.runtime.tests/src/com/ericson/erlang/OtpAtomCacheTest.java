@@ -0,0 +1,136 @@
+package com.ericson.erlang;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpAtomCache;
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+
+public class OtpAtomCacheTest {
+
+    private OtpAtomCache sender;
+    private OtpAtomCache receiver;
+
+    @Before
+    public void setUp() {
+        sender = new OtpAtomCache(true);
+        receiver = new OtpAtomCache(true);
+    }
+
+    private OtpOutputStream header() {
+        final OtpOutputStream obuf = new OtpOutputStream();
+        sender.writeHeader(obuf);
+        return obuf;
+    }
+
+    private OtpErlangAtom[] transfer() throws OtpErlangDecodeException {
+        return receiver.readHeader(new OtpInputStream(header().toByteArray()));
+    }
+
+    // an atom that goes to the same cache slot as the given one
+    private static String sameSlot(final String atom) {
+        final int slot = (atom.hashCode() & 0x7fffffff) % 2048;
+        for (int i = 0;; i++) {
+            final String other = "atom" + i;
+            if (!other.equals(atom) && (other.hashCode() & 0x7fffffff) % 2048 == slot) {
+                return other;
+            }
+        }
+    }
+
+    @Test
+    public void emptyHeaderIsOneByte() throws OtpErlangDecodeException {
+        sender.reset();
+        assertThat(header().size(), is(1));
+        assertThat(transfer().length, is(0));
+    }
+
+    @Test
+    public void headerRoundTrip() throws OtpErlangDecodeException {
+        sender.reset();
+        assertThat(sender.ref("rex"), is(0));
+        assertThat(sender.ref("call"), is(1));
+        assertThat(sender.ref("rex"), is(0));
+        assertThat(sender.ref("åäö"), is(2));
+        assertThat(sender.ref("фу"), is(3));
+        final OtpErlangAtom[] refs = transfer();
+        assertThat(refs.length, is(4));
+        assertThat(refs[0].atomValue(), is("rex"));
+        assertThat(refs[1].atomValue(), is("call"));
+        assertThat(refs[2].atomValue(), is("åäö"));
+        assertThat(refs[3].atomValue(), is("фу"));
+    }
+
+    @Test
+    public void knownEntriesAreSentWithoutText() throws OtpErlangDecodeException {
+        sender.reset();
+        sender.ref("erlide_builder");
+        final int first = header().size();
+        transfer();
+
+        sender.reset();
+        assertThat(sender.ref("erlide_builder"), is(0));
+        assertThat(header().size() < first, is(true));
+        final OtpErlangAtom[] refs = transfer();
+        assertThat(refs[0].atomValue(), is("erlide_builder"));
+    }
+
+    @Test
+    public void evictedEntryIsSentAgain() throws OtpErlangDecodeException {
+        final String other = sameSlot("rex");
+        sender.reset();
+        sender.ref("rex");
+        transfer();
+
+        sender.reset();
+        assertThat(sender.ref(other), is(0));
+        assertThat(transfer()[0].atomValue(), is(other));
+
+        sender.reset();
+        assertThat(sender.ref("rex"), is(0));
+        assertThat(transfer()[0].atomValue(), is("rex"));
+        sender.reset();
+        assertThat(sender.ref("rex"), is(0));
+        assertThat(transfer()[0].atomValue(), is("rex"));
+    }
+
+    @Test
+    public void slotIsUsedOnceInAPacket() throws OtpErlangDecodeException {
+        final String other = sameSlot("rex");
+        sender.reset();
+        assertThat(sender.ref("rex"), is(0));
+        assertThat(sender.ref(other), is(-1));
+        assertThat(sender.ref("rex"), is(0));
+        final OtpErlangAtom[] refs = transfer();
+        assertThat(refs.length, is(1));
+        assertThat(refs[0].atomValue(), is("rex"));
+    }
+
+    @Test
+    public void latin1CacheDoesNotTakeOtherAtoms() throws OtpErlangDecodeException {
+        sender = new OtpAtomCache(false);
+        receiver = new OtpAtomCache(false);
+        sender.reset();
+        assertThat(sender.ref("фу"), is(-1));
+        assertThat(sender.ref("åäö"), is(0));
+        final OtpErlangAtom[] refs = transfer();
+        assertThat(refs.length, is(1));
+        assertThat(refs[0].atomValue(), is("åäö"));
+    }
+
+    @Test(expected = OtpErlangDecodeException.class)
+    public void unknownEntryIsAnError() throws OtpErlangDecodeException {
+        sender.reset();
+        sender.ref("rex");
+        header();
+        sender.reset();
+        sender.ref("rex");
+        transfer();
+    }
+}
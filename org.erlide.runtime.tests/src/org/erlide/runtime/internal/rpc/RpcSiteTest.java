@@ -0,0 +1,74 @@
+package org.erlide.runtime.internal.rpc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.erlide.runtime.rpc.IRpcCallback;
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpNode;
+
+public class RpcSiteTest {
+
+    private OtpNode node;
+    private RpcSite site;
+
+    @Before
+    public void setUp() throws IOException {
+        node = new OtpNode("rpcsite_test");
+        // calls go to the local node, where nobody answers them
+        site = new RpcSite(null, node, node.node());
+        site.setConnected(true);
+    }
+
+    @After
+    public void tearDown() {
+        node.close();
+    }
+
+    @Test
+    public void timedOutCallIsForgotten() throws RpcException {
+        try {
+            site.call(100, "m", "f", "");
+            throw new AssertionError("call didn't time out");
+        } catch (final RpcTimeoutException e) {
+            // expected
+        }
+        assertThat(site.pendingCount(), is(0));
+    }
+
+    @Test
+    public void timedOutAsyncCallIsForgotten() throws RpcException,
+            InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        site.async_call_cb(new IRpcCallback() {
+            @Override
+            public void onSuccess(final OtpErlangObject result) {
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                failure.set(t);
+                done.countDown();
+            }
+        }, 100, "m", "f", "");
+        assertThat(site.pendingCount(), is(1));
+
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(failure.get(), instanceOf(RpcTimeoutException.class));
+        assertThat(site.pendingCount(), is(0));
+    }
+}
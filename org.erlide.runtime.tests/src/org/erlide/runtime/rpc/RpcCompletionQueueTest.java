@@ -0,0 +1,112 @@
+package org.erlide.runtime.rpc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.google.common.util.concurrent.AbstractFuture;
+
+public class RpcCompletionQueueTest {
+
+    private static class TestFuture extends AbstractFuture<OtpErlangObject>
+            implements IRpcFuture {
+
+        void complete(final String value) {
+            set(new OtpErlangAtom(value));
+        }
+
+        void fail() {
+            setException(new RpcException("failed"));
+        }
+
+        @Override
+        public OtpErlangObject get() {
+            try {
+                return checkedGet();
+            } catch (final RpcException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public OtpErlangObject checkedGet() throws RpcException {
+            try {
+                return super.get();
+            } catch (final InterruptedException e) {
+                throw new RpcException(e);
+            } catch (final ExecutionException e) {
+                throw (RpcException) e.getCause();
+            }
+        }
+
+        @Override
+        public OtpErlangObject checkedGet(final long timeout, final TimeUnit unit)
+                throws TimeoutException, RpcException {
+            return checkedGet();
+        }
+    }
+
+    @Test
+    public void resultsComeInCompletionOrder() throws InterruptedException {
+        final RpcCompletionQueue<String> queue = new RpcCompletionQueue<String>();
+        final TestFuture a = new TestFuture();
+        final TestFuture b = new TestFuture();
+        queue.add(a, "a");
+        queue.add(b, "b");
+        assertThat(queue.size(), is(2));
+        assertThat(queue.poll(0, TimeUnit.MILLISECONDS), is(nullValue()));
+
+        b.complete("rb");
+        RpcCompletionQueue.Completed<String> done = queue.poll(0, TimeUnit.MILLISECONDS);
+        assertThat(done.getTag(), is("b"));
+        assertThat(done.getResult(), is((OtpErlangObject) new OtpErlangAtom("rb")));
+
+        a.complete("ra");
+        done = queue.poll(0, TimeUnit.MILLISECONDS);
+        assertThat(done.getTag(), is("a"));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void alreadyCompletedCallIsReturned() throws InterruptedException {
+        final RpcCompletionQueue<String> queue = new RpcCompletionQueue<String>();
+        final TestFuture a = new TestFuture();
+        a.complete("ra");
+        queue.add(a, "a");
+        assertThat(queue.poll(0, TimeUnit.MILLISECONDS).getTag(), is("a"));
+    }
+
+    @Test
+    public void pollWakesUpWhenACallCompletes() throws InterruptedException {
+        final RpcCompletionQueue<String> queue = new RpcCompletionQueue<String>();
+        final TestFuture a = new TestFuture();
+        queue.add(a, "a");
+        new Thread() {
+            @Override
+            public void run() {
+                a.complete("ra");
+            }
+        }.start();
+        assertThat(queue.poll(10, TimeUnit.SECONDS).getTag(), is("a"));
+    }
+
+    @Test(expected = RpcException.class)
+    public void failedCallHasNoResult() throws Exception {
+        final RpcCompletionQueue<String> queue = new RpcCompletionQueue<String>();
+        final TestFuture a = new TestFuture();
+        queue.add(a, "a");
+        a.fail();
+        final RpcCompletionQueue.Completed<String> done = queue.poll(0,
+                TimeUnit.MILLISECONDS);
+        assertThat(done.getResult(), is(nullValue()));
+        done.checkedGetResult();
+    }
+}
@@ -0,0 +1,56 @@
+package org.erlide.runtime.rpc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import org.junit.Test;
+
+public class RpcHistogramTest {
+
+    @Test
+    public void empty() {
+        final RpcHistogram h = new RpcHistogram();
+        assertThat(h.getCount(), is(0L));
+        assertThat(h.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        final RpcHistogram h = new RpcHistogram();
+        for (int i = 1; i <= 10; i++) {
+            h.record(i);
+        }
+        assertThat(h.getCount(), is(10L));
+        assertThat(h.getMax(), is(10L));
+        assertThat(h.getValueAtPercentile(50), is(5L));
+        assertThat(h.getValueAtPercentile(100), is(10L));
+        assertThat(h.getMean(), is(5.5));
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (long v = 0; v < 100000; v++) {
+            final int i = RpcHistogram.indexOf(v);
+            assertThat(RpcHistogram.highestValueAt(i), is(greaterThanOrEqualTo(v)));
+            if (i > 0) {
+                assertThat(RpcHistogram.highestValueAt(i - 1), is(lessThan(v)));
+            }
+        }
+        RpcHistogram.indexOf(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void percentilesAreWithinPrecision() {
+        final RpcHistogram h = new RpcHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            h.record(i);
+        }
+        final long p90 = h.getValueAtPercentile(90);
+        assertThat(p90, is(greaterThanOrEqualTo(90000L)));
+        assertThat(p90, is(lessThanOrEqualTo(90000L + 90000L / RpcHistogram.SUB_BUCKETS)));
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.erlide.runtime.shell;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.erlide.runtime.shell.IoRequest.IoRequestKind;
+import org.junit.Test;
+
+public class IoRequestBufferTest {
+
+    private static IoRequest request(final String text) {
+        return new IoRequest(text, IoRequestKind.STDOUT);
+    }
+
+    @Test
+    public void findsRequestsByPosition() {
+        final IoRequestBuffer buffer = new IoRequestBuffer(10000);
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            final String s = "line " + i + "\n";
+            assertThat(buffer.add(request(s)), is(text.length()));
+            text.append(s);
+        }
+        assertThat(buffer.getText(), is(text.toString()));
+        assertThat(buffer.getLength(), is(text.length()));
+        for (int pos = 0; pos < text.length(); pos += 7) {
+            final IoRequest found = buffer.findAtPos(pos);
+            assertThat(found.getStart() <= pos, is(true));
+            assertThat(found.getStart() + found.getLength() > pos, is(true));
+        }
+        assertThat(buffer.findAtPos(text.length()), is(nullValue()));
+        assertThat(buffer.findAtPos(-1), is(nullValue()));
+    }
+
+    @Test
+    public void skipsEmptyRequests() {
+        final IoRequestBuffer buffer = new IoRequestBuffer(10);
+        buffer.add(request("ab"));
+        buffer.add(request(""));
+        buffer.add(request("c"));
+        assertThat(buffer.findAtPos(2).getMessage(), is("c"));
+        assertThat(buffer.findAtPos(1).getMessage(), is("ab"));
+    }
+
+    @Test
+    public void dropsOldestChunks() {
+        final int max = 2 * IoRequestBuffer.CHUNK_SIZE;
+        final IoRequestBuffer buffer = new IoRequestBuffer(max);
+        for (int i = 0; i < max; i++) {
+            buffer.add(request("x"));
+        }
+        assertThat(buffer.trim(), is(0));
+        for (int i = 0; i < IoRequestBuffer.CHUNK_SIZE + 1; i++) {
+            buffer.add(request("yy"));
+        }
+        assertThat(buffer.trim(), is(IoRequestBuffer.CHUNK_SIZE));
+        assertThat(buffer.size(), is(max + 1));
+        assertThat(buffer.getLength(), is(IoRequestBuffer.CHUNK_SIZE + 2
+                * (IoRequestBuffer.CHUNK_SIZE + 1)));
+        final IoRequest first = buffer.findAtPos(0);
+        assertThat(first.getMessage(), is("x"));
+        assertThat(first.getStart(), is(0));
+        final IoRequest second = buffer.findAtPos(IoRequestBuffer.CHUNK_SIZE + 1);
+        assertThat(second.getMessage(), is("yy"));
+        assertThat(second.getStart(), is(IoRequestBuffer.CHUNK_SIZE));
+        assertThat(buffer.getLastMessages(2).size(), is(2));
+        assertThat(buffer.getLastMessages(2).get(1), is("yy"));
+    }
+}
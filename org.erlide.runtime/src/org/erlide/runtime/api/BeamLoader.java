@@ -1,18 +1,36 @@
 package org.erlide.runtime.api;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
+import org.erlide.runtime.rpc.RpcBatch;
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcResult;
 import org.erlide.util.ErlLogger;
+import org.erlide.util.Util;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangBinary;
 import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 
 public class BeamLoader {
 
+    private static final String RPC_MULTICALL = "erlide_multicall";
+    // a batch of beams can be several megabytes
+    private static final int LOAD_BATCH_SIZE = 50;
+    private static final long LOAD_TIMEOUT = 30000;
+
     public static boolean loadBeam(final IRpcSite backend, final String moduleName,
             final OtpErlangBinary bin) {
         OtpErlangObject r = null;
@@ -42,6 +60,190 @@ public class BeamLoader {
         return false;
     }
 
+    /**
+     * Load many modules with few calls. The name each module is loaded with
+     * includes the MD5 of its beam, so modules that are already loaded from the
+     * same beam are not sent again. Modules in sticky directories are not
+     * replaced. The others are loaded in batches of {@value #LOAD_BATCH_SIZE},
+     * each with a call to code:atomic_load, or if that isn't available, with a
+     * batch of code:load_binary calls.
+     * 
+     * @param beams
+     *            the contents of the beam files, by module name
+     * @return the modules that could not be loaded
+     */
+    public static List<String> loadBeams(final IRpcSite backend,
+            final Map<String, byte[]> beams) {
+        final Map<String, String> loaded = getLoadedFileNames(backend);
+        final List<OtpErlangTuple> toLoad = Lists.newArrayList();
+        final List<String> reloaded = Lists.newArrayList();
+        for (final Entry<String, byte[]> beam : beams.entrySet()) {
+            final String module = beam.getKey();
+            final String fileName = module + ".beam#"
+                    + Hashing.md5().hashBytes(beam.getValue());
+            final String loadedFileName = loaded.get(module);
+            if (!fileName.equals(loadedFileName)) {
+                toLoad.add(new OtpErlangTuple(new OtpErlangObject[] {
+                        new OtpErlangAtom(module), new OtpErlangString(fileName),
+                        new OtpErlangBinary(beam.getValue()) }));
+                if (loadedFileName != null) {
+                    reloaded.add(module);
+                }
+            }
+        }
+        final List<String> failed = Lists.newArrayList();
+        // only modules that are already loaded can be sticky
+        final Set<String> sticky = getSticky(backend, reloaded,
+                loaded.containsKey(RPC_MULTICALL));
+        final Iterator<OtpErlangTuple> it = toLoad.iterator();
+        while (it.hasNext()) {
+            final String module = ((OtpErlangAtom) it.next().elementAt(0))
+                    .atomValue();
+            if (sticky.contains(module)) {
+                ErlLogger.warn("sticky:: %s", module);
+                failed.add(module);
+                it.remove();
+            }
+        }
+        for (final List<OtpErlangTuple> part : Lists.partition(toLoad,
+                LOAD_BATCH_SIZE)) {
+            failed.addAll(loadAtomic(backend, part));
+        }
+        return failed;
+    }
+
+    private static List<String> loadAtomic(final IRpcSite backend,
+            final List<OtpErlangTuple> beams) {
+        try {
+            final OtpErlangObject r = backend.call(LOAD_TIMEOUT, "code",
+                    "atomic_load", "x",
+                    new OtpErlangList(beams.toArray(new OtpErlangObject[beams
+                            .size()])));
+            if (Util.isOk(r)) {
+                return Lists.newArrayList();
+            }
+            // older runtimes don't have it, and nothing is loaded if any
+            // module fails
+            ErlLogger.debug("atomic_load: %s", r);
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+        }
+        return loadEach(backend, beams);
+    }
+
+    private static Set<String> getSticky(final IRpcSite backend,
+            final List<String> modules, final boolean canBatch) {
+        final Set<String> result = Sets.newHashSet();
+        if (modules.isEmpty()) {
+            return result;
+        }
+        if (canBatch) {
+            final RpcBatch batch = new RpcBatch();
+            for (final String module : modules) {
+                batch.add("code", "is_sticky", "a", module);
+            }
+            try {
+                final List<RpcResult> results = backend.call_batch(batch);
+                for (int i = 0; i < results.size(); i++) {
+                    final RpcResult r = results.get(i);
+                    if (r.isOk() && isTrue(r.getValue())) {
+                        result.add(modules.get(i));
+                    }
+                }
+                return result;
+            } catch (final RpcException e) {
+                ErlLogger.debug(e);
+            }
+        }
+        for (final String module : modules) {
+            try {
+                if (isTrue(backend.call("code", "is_sticky", "a", module))) {
+                    result.add(module);
+                }
+            } catch (final RpcException e) {
+                ErlLogger.warn(e);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isTrue(final OtpErlangObject r) {
+        return r instanceof OtpErlangAtom && ((OtpErlangAtom) r).booleanValue();
+    }
+
+    private static Map<String, String> getLoadedFileNames(final IRpcSite backend) {
+        final Map<String, String> result = Maps.newHashMap();
+        try {
+            final OtpErlangObject r = backend.call("code", "all_loaded", "");
+            for (final OtpErlangObject elem : (OtpErlangList) r) {
+                final OtpErlangTuple t = (OtpErlangTuple) elem;
+                final OtpErlangObject file = t.elementAt(1);
+                if (!(file instanceof OtpErlangAtom)) {
+                    result.put(((OtpErlangAtom) t.elementAt(0)).atomValue(),
+                            Util.stringValue(file));
+                }
+            }
+        } catch (final Exception e) {
+            ErlLogger.warn(e);
+        }
+        return result;
+    }
+
+    private static List<String> loadEach(final IRpcSite backend,
+            final List<OtpErlangTuple> beams) {
+        final List<String> failed = Lists.newArrayList();
+        final RpcBatch batch = new RpcBatch();
+        final List<String> modules = Lists.newArrayList();
+        for (final OtpErlangTuple beam : beams) {
+            final String module = ((OtpErlangAtom) beam.elementAt(0)).atomValue();
+            if (RPC_MULTICALL.equals(module)) {
+                // needed for the batch
+                if (!isLoaded(load(backend, beam))) {
+                    failed.add(module);
+                }
+            } else {
+                modules.add(module);
+                batch.add("code", "load_binary", "xxx", (Object[]) beam.elements());
+            }
+        }
+        try {
+            final List<RpcResult> results = backend.call_batch(batch);
+            for (int i = 0; i < results.size(); i++) {
+                final RpcResult r = results.get(i);
+                if (!r.isOk() || !isLoaded(r.getValue())) {
+                    failed.add(modules.get(i));
+                }
+            }
+        } catch (final RpcException e) {
+            // no erlide_multicall on the node
+            ErlLogger.debug(e);
+            for (final OtpErlangTuple beam : beams) {
+                final String module = ((OtpErlangAtom) beam.elementAt(0)).atomValue();
+                if (!RPC_MULTICALL.equals(module) && !isLoaded(load(backend, beam))) {
+                    failed.add(module);
+                }
+            }
+        }
+        return failed;
+    }
+
+    private static OtpErlangObject load(final IRpcSite backend,
+            final OtpErlangTuple beam) {
+        try {
+            return backend.call("code", "load_binary", "xxx",
+                    (Object[]) beam.elements());
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+            return null;
+        }
+    }
+
+    private static boolean isLoaded(final OtpErlangObject r) {
+        return r instanceof OtpErlangTuple
+                && "module".equals(((OtpErlangAtom) ((OtpErlangTuple) r).elementAt(0))
+                        .atomValue());
+    }
+
     public static void reloadAllCode(final IRpcSite backend) {
         try {
             final OtpErlangList loaded = (OtpErlangList) backend.call("code",
@@ -1,8 +1,11 @@
 package org.erlide.runtime.api;
 
+import java.util.List;
+
 import org.erlide.runtime.rpc.IRpcCallback;
 import org.erlide.runtime.rpc.IRpcFuture;
 import org.erlide.runtime.rpc.IRpcResultCallback;
+import org.erlide.runtime.rpc.RpcBatch;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.runtime.rpc.RpcResult;
 
@@ -75,6 +78,21 @@ public interface IRpcSite {
             final String m, final String f, final String signature, final Object... a)
             throws RpcException;
 
+    /**
+     * Execute all the calls in the batch with a single round trip. The results
+     * are returned in the same order as the calls; a failing call gets an
+     * error result and doesn't affect the others. The backend makes the calls
+     * one after the other, so the timeout is the default one for each call.
+     */
+    List<RpcResult> call_batch(final RpcBatch batch) throws RpcException;
+
+    /**
+     * Execute all the calls in the batch with a single round trip, with
+     * timeout.
+     */
+    List<RpcResult> call_batch(final long timeout, final RpcBatch batch)
+            throws RpcException;
+
     /**
      * Calls a function that supports sending progress reports back. The first
      * argument is implicit and is the pid where the reports are to be sent.
@@ -96,13 +96,13 @@ public class ErlRuntime extends AbstractExecutionThreadService implements IErlRu
 
     @Override
     protected void shutDown() throws Exception {
+        rpcSite.setConnected(false);
         localNode.close();
 
         if (callback != null) {
             callback.onShutdown();
         }
         callback = null;
-        rpcSite.setConnected(false);
     }
 
     @Override
@@ -10,38 +10,61 @@
  *******************************************************************************/
 package org.erlide.runtime.internal.rpc;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-import org.erlide.runtime.api.IRpcSite;
 import org.erlide.runtime.rpc.IRpcFuture;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.runtime.rpc.RpcMonitor;
+import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangRef;
-import com.ericsson.otp.erlang.OtpMbox;
+import com.google.common.util.concurrent.AbstractFuture;
 
-public class RpcFutureImpl implements IRpcFuture {
+/**
+ * The pending result of a call multiplexed over the {@link RpcSite} reply
+ * mailbox. It is completed by the site's {@link RpcReplyDispatcher} when the
+ * reply tagged with <code>callRef</code> arrives.
+ */
+public class RpcFutureImpl extends AbstractFuture<OtpErlangObject> implements
+        IRpcFuture {
 
-    private final OtpMbox mbox;
-    private OtpErlangObject result = null;
+    private final OtpErlangRef callRef;
     private final String env;
     private final boolean logCalls;
 
-    private final IRpcSite rpcSite;
-    private final OtpErlangRef ref;
+    private final RpcSite rpcSite;
+    private final RpcMonitor.Request monitored;
 
-    public RpcFutureImpl(final OtpErlangRef ref, final OtpMbox mbox, final String env,
-            final boolean logCalls, final IRpcSite rpcSite) {
-        this.ref = ref;
-
-        this.mbox = mbox;
+    public RpcFutureImpl(final OtpErlangRef callRef, final String env,
+            final boolean logCalls, final RpcSite rpcSite,
+            final RpcMonitor.Request monitored) {
+        this.callRef = callRef;
         this.env = env;
         this.logCalls = logCalls;
         this.rpcSite = rpcSite;
+        this.monitored = monitored;
+    }
+
+    public OtpErlangRef getCallRef() {
+        return callRef;
+    }
+
+    void complete(final OtpErlangObject result, final int size) {
+        RpcMonitor.recordResponse(monitored, size);
+        if (logCalls) {
+            final Object[] args0 = { result };
+            ErlLogger.debug("call <- %s", args0);
+        }
+        set(result);
+    }
+
+    void fail(final RpcException e) {
+        RpcMonitor.recordError(monitored);
+        setException(e);
     }
 
     @Override
@@ -64,23 +87,14 @@ public class RpcFutureImpl implements IRpcFuture {
         }
     }
 
-    @Override
-    public boolean isDone() {
-        return result != null;
-    }
-
-    @Override
-    public void addListener(final Runnable listener, final Executor executor) {
-    }
-
     @Override
     public boolean cancel(final boolean mayInterruptIfRunning) {
-        return false;
-    }
-
-    @Override
-    public boolean isCancelled() {
-        return false;
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            RpcMonitor.recordCancel(monitored);
+            rpcSite.forget(callRef);
+        }
+        return cancelled;
     }
 
     @Override
@@ -95,16 +109,24 @@ public class RpcFutureImpl implements IRpcFuture {
     @Override
     public OtpErlangObject checkedGet(final long timeout, final TimeUnit unit)
             throws TimeoutException, RpcException {
-        result = rpcSite.getRpcResult(mbox, TimeUnit.MILLISECONDS.convert(timeout, unit),
-                env);
-        if (isDone()) {
-            RpcMonitor.recordResponse(ref, result);
-            if (logCalls) {
-                final Object[] args0 = { result };
-                ErlLogger.debug("call <- %s", args0);
+        try {
+            if (unit.toMillis(timeout) == RpcSite.INFINITY) {
+                return super.get();
+            }
+            return super.get(timeout, unit);
+        } catch (final TimeoutException e) {
+            RpcMonitor.recordTimeout(monitored);
+            throw new RpcTimeoutException(env);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException(e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RpcException) {
+                throw (RpcException) cause;
             }
+            throw new RpcException(e);
         }
-        return result;
     }
 
 }
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available
+ * at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.runtime.internal.rpc;
+
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangExit;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangRef;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.OtpMsg;
+
+/**
+ * This is a thread driven by the reply mailbox of a {@link RpcSite}. It waits
+ * for <code>{Ref, Reply}</code> messages (as sent by
+ * <code>gen_server:reply/2</code> from rex) and completes the pending future
+ * registered under <code>Ref</code>.
+ *
+ * The thread stops when it receives the <code>STOP</code> atom sent by the site
+ * itself, or when the mailbox gets an exit signal.
+ */
+public class RpcReplyDispatcher implements Runnable {
+
+    static final OtpErlangAtom STOP = new OtpErlangAtom("$erlide_rpc_stop");
+
+    private final RpcSite site;
+    private final OtpMbox mbox;
+
+    public RpcReplyDispatcher(final RpcSite site, final OtpMbox mbox,
+            final String nodeName) {
+        this.site = site;
+        this.mbox = mbox;
+        final Thread thread = new Thread(this, "rpc-dispatcher " + nodeName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            OtpErlangObject msg;
+            int size;
+            try {
+                final OtpMsg m = mbox.receiveMsg();
+                size = m.getMsgSize();
+                msg = m.getMsg();
+            } catch (final OtpErlangExit e) {
+                site.failPending("rpc mailbox exited: " + e.getMessage());
+                return;
+            } catch (final Exception e) {
+                ErlLogger.error(e);
+                continue;
+            }
+            if (STOP.equals(msg)) {
+                return;
+            }
+            if (RpcSite.CHECK_RPC) {
+                ErlLogger.debug("RPC <= " + msg);
+            }
+            dispatch(msg, size);
+        }
+    }
+
+    private void dispatch(final OtpErlangObject msg, final int size) {
+        if (!(msg instanceof OtpErlangTuple)) {
+            return;
+        }
+        final OtpErlangTuple t = (OtpErlangTuple) msg;
+        if (t.arity() != 2 || !(t.elementAt(0) instanceof OtpErlangRef)) {
+            return;
+        }
+        final RpcFutureImpl future = site.forget((OtpErlangRef) t.elementAt(0));
+        if (future != null) {
+            future.complete(t.elementAt(1), size);
+        }
+    }
+
+}
@@ -14,6 +14,7 @@ import org.erlide.runtime.rpc.IRpcResultCallback;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangExit;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.ericsson.otp.erlang.OtpMbox;
@@ -30,43 +31,63 @@ import com.ericsson.otp.erlang.OtpMbox;
  * <li>receiver waits for "progress" messages; calls callback for each one</li>
  * <li>receiver waits for "stop" message, calls callback and quits</li>
  * </ul>
+ * 
+ * The callback is also stopped if the process sending the results exits
+ * without "stop" (it is linked to the receiver) or the backend goes down.
  */
 public class RpcResultReceiver implements Runnable {
 
+    private static final OtpErlangAtom NOCONNECTION = new OtpErlangAtom(
+            "noconnection");
+
     private final IRpcResultCallback callback;
     private final OtpMbox mbox;
+    private final RpcSite site;
 
-    public RpcResultReceiver(final OtpMbox box, final IRpcResultCallback callback) {
+    public RpcResultReceiver(final OtpMbox box, final IRpcResultCallback callback,
+            final RpcSite site) {
         this.callback = callback;
         mbox = box;
+        this.site = site;
         new Thread(this, "rpc").start();
     }
 
     @Override
     public void run() {
         boolean done = false;
-        do {
-            OtpErlangObject msg;
-            try {
-                msg = mbox.receive(3000);
-                if (msg != null) {
-                    if (msg instanceof OtpErlangTuple) {
-                        final OtpErlangTuple tuple = (OtpErlangTuple) msg;
-                        final String tag = ((OtpErlangAtom) tuple.elementAt(0))
-                                .atomValue();
-                        if ("start".equals(tag)) {
-                            callback.start(tuple.elementAt(1));
-                        } else if ("stop".equals(tag)) {
-                            done = true;
-                            callback.stop(tuple.elementAt(1));
-                        } else if ("progress".equals(tag)) {
-                            callback.progress(tuple.elementAt(1));
+        try {
+            do {
+                OtpErlangObject msg;
+                try {
+                    msg = mbox.receive(3000);
+                    if (msg != null) {
+                        if (msg instanceof OtpErlangTuple) {
+                            final OtpErlangTuple tuple = (OtpErlangTuple) msg;
+                            final String tag = ((OtpErlangAtom) tuple.elementAt(0))
+                                    .atomValue();
+                            if ("start".equals(tag)) {
+                                callback.start(tuple.elementAt(1));
+                            } else if ("stop".equals(tag)) {
+                                done = true;
+                                callback.stop(tuple.elementAt(1));
+                            } else if ("progress".equals(tag)) {
+                                callback.progress(tuple.elementAt(1));
+                            }
                         }
+                    } else if (!site.isConnected()) {
+                        done = true;
+                        callback.stop(NOCONNECTION);
                     }
+                } catch (final OtpErlangExit e) {
+                    ErlLogger.warn("rpc result sender exited: %s", e.reason());
+                    done = true;
+                    callback.stop(e.reason());
+                } catch (final Exception e) {
+                    ErlLogger.error(e);
                 }
-            } catch (final Exception e) {
-                ErlLogger.error(e);
-            }
-        } while (!done || Thread.interrupted());
+            } while (!done || Thread.interrupted());
+        } finally {
+            mbox.close();
+        }
     }
 }
@@ -1,5 +1,8 @@
 package org.erlide.runtime.internal.rpc;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -11,6 +14,7 @@ import org.erlide.runtime.api.IRpcSite;
 import org.erlide.runtime.rpc.IRpcCallback;
 import org.erlide.runtime.rpc.IRpcFuture;
 import org.erlide.runtime.rpc.IRpcResultCallback;
+import org.erlide.runtime.rpc.RpcBatch;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.runtime.rpc.RpcMonitor;
 import org.erlide.runtime.rpc.RpcResult;
@@ -18,6 +22,7 @@ import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.erlang.OtpErlang;
 import org.erlide.util.erlang.Signature;
+import org.erlide.util.erlang.SignatureCodec;
 import org.erlide.util.erlang.SignatureException;
 import org.erlide.util.erlang.TypeConverter;
 
@@ -31,11 +36,17 @@ import com.ericsson.otp.erlang.OtpErlangRef;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.ericsson.otp.erlang.OtpNode;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class RpcSite implements IRpcSite {
 
     private static final OtpErlangAtom USER_ATOM = new OtpErlangAtom("user");
+    private static final OtpErlangAtom GEN_CALL_ATOM = new OtpErlangAtom("$gen_call");
+    private static final OtpErlangAtom CALL_ATOM = new OtpErlangAtom("call");
+    private static final OtpErlangAtom OK_ATOM = new OtpErlangAtom("ok");
+    private static final Signature ANY = new Signature('x');
+    private static final String MULTICALL_MODULE = "erlide_multicall";
 
     public static final long INFINITY = Long.MAX_VALUE;
 
@@ -57,6 +68,13 @@ public class RpcSite implements IRpcSite {
     private final OtpNode localNode;
     private volatile boolean connected;
 
+    /**
+     * All calls share this mailbox; replies are matched to their callers by the
+     * reference in <code>pending</code>.
+     */
+    private OtpMbox replyMbox;
+    private final ConcurrentMap<OtpErlangRef, RpcFutureImpl> pending = new ConcurrentHashMap<OtpErlangRef, RpcFutureImpl>();
+
     public RpcSite(final IErlRuntime runtime, final OtpNode localNode,
             final String nodeName) {
         this.runtime = runtime;
@@ -66,21 +84,48 @@ public class RpcSite implements IRpcSite {
     }
 
     @Override
-    public void setConnected(final boolean connected) {
+    public synchronized void setConnected(final boolean connected) {
+        if (connected && replyMbox == null) {
+            replyMbox = localNode.createMbox();
+            new RpcReplyDispatcher(this, replyMbox, nodeName);
+        } else if (!connected && replyMbox != null) {
+            replyMbox.send(replyMbox.self(), RpcReplyDispatcher.STOP);
+            localNode.closeMbox(replyMbox);
+            replyMbox = null;
+            failPending(String.format("backend %s down", runtime.getNodeName()));
+        }
         this.connected = connected;
     }
 
+    int pendingCount() {
+        return pending.size();
+    }
+
+    RpcFutureImpl forget(final OtpErlangRef callRef) {
+        return pending.remove(callRef);
+    }
+
+    void failPending(final String reason) {
+        for (final OtpErlangRef callRef : pending.keySet()) {
+            final RpcFutureImpl future = pending.remove(callRef);
+            if (future != null) {
+                future.fail(new RpcException(reason));
+            }
+        }
+    }
+
     @Override
     public void async_call_result(final IRpcResultCallback cb, final String m,
             final String f, final String signature, final Object... args)
             throws RpcException {
+        checkConnected();
         final OtpErlangAtom gleader = USER_ATOM;
         try {
             final Object[] args1 = new Object[args.length + 1];
             System.arraycopy(args, 0, args1, 1, args.length);
             final OtpMbox mbox = localNode.createMbox();
             args1[0] = mbox.self();
-            new RpcResultReceiver(mbox, cb);
+            new RpcResultReceiver(mbox, cb, this);
             rpcCast(localNode, nodeName, false, gleader, m, f, signature, args1);
         } catch (final SignatureException e) {
             throw new RpcException(e);
@@ -128,12 +173,23 @@ public class RpcSite implements IRpcSite {
                     try {
                         result = future.checkedGet(timeout, TimeUnit.MILLISECONDS);
                         cb.onSuccess(result);
+                    } catch (final RpcTimeoutException e) {
+                        fail(e, true);
+                    } catch (final TimeoutException e) {
+                        fail(e, true);
                     } catch (final Exception e) {
-                        // TODO do we want to treat a timeout differently?
-                        ErlLogger.error("Could not execute RPC " + module + ":" + fun
-                                + " : " + e.getMessage());
-                        cb.onFailure(e);
+                        fail(e, false);
+                    }
+                }
+
+                private void fail(final Exception e, final boolean timedOut) {
+                    if (timedOut) {
+                        // nobody waits for the reply anymore
+                        future.cancel(false);
                     }
+                    ErlLogger.error("Could not execute RPC " + module + ":" + fun
+                            + " : " + e.getMessage());
+                    cb.onFailure(e);
                 }
             };
             // We can't use jobs here, it's an Eclipse dependency
@@ -153,7 +209,13 @@ public class RpcSite implements IRpcSite {
             final IRpcFuture future = sendRpcCall(localNode, nodeName, false, gleader,
                     module, fun, signature, args0);
             OtpErlangObject result1;
-            result1 = future.checkedGet(timeout, TimeUnit.MILLISECONDS);
+            try {
+                result1 = future.checkedGet(timeout, TimeUnit.MILLISECONDS);
+            } catch (final RpcTimeoutException e) {
+                // nobody waits for the reply anymore
+                future.cancel(false);
+                throw e;
+            }
             if (CHECK_RPC) {
                 ErlLogger.debug("RPC result:: " + result1);
             }
@@ -176,6 +238,60 @@ public class RpcSite implements IRpcSite {
         return call(timeout, USER_ATOM, module, fun, signature, args0);
     }
 
+    @Override
+    public List<RpcResult> call_batch(final RpcBatch batch) throws RpcException {
+        return call_batch(batchTimeout(batch.size()), batch);
+    }
+
+    // the calls are made one after the other, each gets the default time
+    private static long batchTimeout(final int size) {
+        final int n = Math.max(size, 1);
+        if (DEFAULT_TIMEOUT > INFINITY / n) {
+            return INFINITY;
+        }
+        return DEFAULT_TIMEOUT * n;
+    }
+
+    @Override
+    public List<RpcResult> call_batch(final long timeout, final RpcBatch batch)
+            throws RpcException {
+        final List<RpcResult> results = Lists.newArrayListWithCapacity(batch.size());
+        if (batch.isEmpty()) {
+            return results;
+        }
+        final OtpErlangObject[] calls = new OtpErlangObject[batch.size()];
+        int i = 0;
+        try {
+            for (final RpcBatch.Call call : batch.getCalls()) {
+                calls[i++] = OtpErlang.mkTuple(new OtpErlangAtom(call.module),
+                        new OtpErlangAtom(call.fun), new OtpErlangList(convertArgs(
+                                call.signature, call.args)));
+            }
+        } catch (final SignatureException e) {
+            throw new RpcException(e);
+        }
+        final OtpErlangObject res = call(timeout, MULTICALL_MODULE, "call", "x",
+                new OtpErlangList(calls));
+        if (!(res instanceof OtpErlangList)
+                || ((OtpErlangList) res).arity() != calls.length) {
+            throw new RpcException("bad batch result: " + res);
+        }
+        for (final OtpErlangObject item : (OtpErlangList) res) {
+            if (!(item instanceof OtpErlangTuple)
+                    || ((OtpErlangTuple) item).arity() != 2) {
+                results.add(RpcResult.error(item));
+                continue;
+            }
+            final OtpErlangTuple t = (OtpErlangTuple) item;
+            if (OK_ATOM.equals(t.elementAt(0))) {
+                results.add(new RpcResult(t.elementAt(1)));
+            } else {
+                results.add(RpcResult.error(t.elementAt(1)));
+            }
+        }
+        return results;
+    }
+
     @Override
     public void cast(final OtpErlangObject gleader, final String module,
             final String fun, final String signature, final Object... args0)
@@ -310,29 +426,35 @@ public class RpcSite implements IRpcSite {
         return false;
     }
 
-    private synchronized IRpcFuture sendRpcCall(final OtpNode node, final String peer,
+    private IRpcFuture sendRpcCall(final OtpNode node, final String peer,
             final boolean logCalls, final OtpErlangObject gleader, final String module,
             final String fun, final String signature, final Object... args0)
-            throws SignatureException {
+            throws SignatureException, RpcException {
         final OtpErlangObject[] args = convertArgs(signature, args0);
+        final OtpMbox mbox = replyMbox;
+        if (mbox == null) {
+            throw new RpcException(String.format("backend %s down",
+                    runtime.getNodeName()));
+        }
 
-        OtpErlangObject res = null;
-        final OtpMbox mbox = node.createMbox();
-        res = buildRpcCall(mbox.self(), gleader, module, fun, args);
+        final OtpErlangRef callRef = node.createRef();
+        final OtpErlangObject res = buildRpcCall(mbox.self(), callRef, gleader, module,
+                fun, args);
         if (logCalls) {
             final Object[] args01 = { module, fun, argString(args) };
             ErlLogger.debug("call -> %s:%s(%s)", args01);
         }
-        //
-        final OtpErlangRef ref = RpcMonitor.recordRequest(node, peer, module, fun, args,
-                OtpErlang.sizeOf(res));
-        //
-        mbox.send("rex", peer, res);
+        final RpcMonitor.Request monitored = RpcMonitor.recordRequest(module, fun);
+        final RpcFutureImpl future = new RpcFutureImpl(callRef, module + ":" + fun + "/"
+                + args0.length, logCalls, this, monitored);
+        pending.put(callRef, future);
+        // the connection encodes the call once, with cached atoms, and tells us
+        // the size
+        RpcMonitor.recordRequestSize(monitored, mbox.send("rex", peer, res));
         if (CHECK_RPC) {
-            ErlLogger.debug("RPC " + mbox.hashCode() + "=> " + res);
+            ErlLogger.debug("RPC " + callRef + "=> " + res);
         }
-        return new RpcFutureImpl(ref, mbox, module + ":" + fun + "/" + args0.length,
-                logCalls, this);
+        return future;
     }
 
     private static final String SEP = ", ";
@@ -399,14 +521,18 @@ public class RpcSite implements IRpcSite {
         return res;
     }
 
+    /**
+     * Builds a <code>gen_server:call</code> request to rex, so that the reply
+     * comes back as <code>{CallRef, Result}</code>.
+     */
     private OtpErlangObject buildRpcCall(final OtpErlangPid pid,
-            final OtpErlangObject gleader, final String module, final String fun,
-            final OtpErlangObject[] args) {
+            final OtpErlangRef callRef, final OtpErlangObject gleader,
+            final String module, final String fun, final OtpErlangObject[] args) {
         final OtpErlangObject m = new OtpErlangAtom(module);
         final OtpErlangObject f = new OtpErlangAtom(fun);
         final OtpErlangObject a = new OtpErlangList(args);
-        return OtpErlang.mkTuple(pid,
-                OtpErlang.mkTuple(new OtpErlangAtom("call"), m, f, a, gleader));
+        return OtpErlang.mkTuple(GEN_CALL_ATOM, OtpErlang.mkTuple(pid, callRef),
+                OtpErlang.mkTuple(CALL_ATOM, m, f, a, gleader));
     }
 
     private void rpcCast(final OtpNode node, final String peer, final boolean logCalls,
@@ -430,23 +556,14 @@ public class RpcSite implements IRpcSite {
             throws SignatureException {
         final Object[] args0 = args == null ? new OtpErlangObject[] {} : args;
 
-        Signature[] type;
-        type = Signature.parse(signature);
-        if (type == null) {
-            type = new Signature[args0.length];
-            for (int i = 0; i < args0.length; i++) {
-                type[i] = new Signature('x');
+        if (signature == null) {
+            final OtpErlangObject[] args1 = new OtpErlangObject[args0.length];
+            for (int i = 0; i < args1.length; i++) {
+                args1[i] = TypeConverter.java2erlang(args0[i], ANY);
             }
+            return args1;
         }
-        if (type.length != args0.length) {
-            throw new SignatureException("Signature doesn't match parameter number: "
-                    + type.length + "/" + args0.length);
-        }
-        final OtpErlangObject[] args1 = new OtpErlangObject[args0.length];
-        for (int i = 0; i < args1.length; i++) {
-            args1[i] = TypeConverter.java2erlang(args0[i], type[i]);
-        }
-        return args1;
+        return SignatureCodec.forSignature(signature).encode(args0);
     }
 
     private OtpErlangObject buildRpcCastMsg(final OtpErlangObject gleader,
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.runtime.rpc;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A list of calls to be executed in a single round trip with
+ * {@link org.erlide.runtime.api.IRpcSite#call_batch(RpcBatch)}. The results
+ * come back in the order the calls were added.
+ */
+public class RpcBatch {
+
+    public static class Call {
+        public final String module;
+        public final String fun;
+        public final String signature;
+        public final Object[] args;
+
+        public Call(final String module, final String fun, final String signature,
+                final Object... args) {
+            this.module = module;
+            this.fun = fun;
+            this.signature = signature;
+            this.args = args;
+        }
+    }
+
+    private final List<Call> calls = Lists.newArrayList();
+
+    public RpcBatch add(final String module, final String fun, final String signature,
+            final Object... args) {
+        calls.add(new Call(module, fun, signature, args));
+        return this;
+    }
+
+    public List<Call> getCalls() {
+        return Collections.unmodifiableList(calls);
+    }
+
+    public int size() {
+        return calls.size();
+    }
+
+    public boolean isEmpty() {
+        return calls.isEmpty();
+    }
+
+}
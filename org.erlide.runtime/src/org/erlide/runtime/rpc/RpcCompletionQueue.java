@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.runtime.rpc;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Pending calls, handed back in the order they complete. Each call is added
+ * with a tag identifying it for the caller, and {@link #poll} returns as soon
+ * as any of them is done, so there is no need to poll the futures in turn.
+ *
+ * <p>
+ * Calls may complete on any thread, but adding and polling is meant to be done
+ * by a single thread.
+ * </p>
+ */
+public class RpcCompletionQueue<T> {
+
+    public static final class Completed<T> {
+        private final IRpcFuture future;
+        private final T tag;
+
+        Completed(final IRpcFuture future, final T tag) {
+            this.future = future;
+            this.tag = tag;
+        }
+
+        public T getTag() {
+            return tag;
+        }
+
+        /**
+         * @return the call's result, or null if it failed
+         */
+        public OtpErlangObject getResult() {
+            try {
+                return future.checkedGet();
+            } catch (final RpcException e) {
+                return null;
+            }
+        }
+
+        public OtpErlangObject checkedGetResult() throws RpcException {
+            return future.checkedGet();
+        }
+    }
+
+    private final BlockingQueue<Completed<T>> done = new LinkedBlockingQueue<Completed<T>>();
+    private int pending;
+
+    public void add(final IRpcFuture future, final T tag) {
+        pending++;
+        final Completed<T> completed = new Completed<T>(future, tag);
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                done.add(completed);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * @return true if all the calls added have been returned by {@link #poll}
+     */
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    public int size() {
+        return pending;
+    }
+
+    /**
+     * Wait for the next call to complete.
+     *
+     * @return the completed call, or null if none completed in time
+     */
+    public Completed<T> poll(final long timeout, final TimeUnit unit)
+            throws InterruptedException {
+        final Completed<T> result = done.poll(timeout, unit);
+        if (result != null) {
+            pending--;
+        }
+        return result;
+    }
+}
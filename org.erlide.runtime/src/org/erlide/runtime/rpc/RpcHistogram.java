@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.runtime.rpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values (latencies, in microseconds).
+ * Buckets are log-linear: each power of two is split in {@link #SUB_BUCKETS}
+ * equal parts, so a reported value is within 1/{@value #SUB_BUCKETS} of the
+ * recorded one, over the whole range of a <code>long</code>.
+ */
+public class RpcHistogram {
+
+    static final int SUB_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long value) {
+        final long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        long m;
+        while (v > (m = max.get())) {
+            if (max.compareAndSet(m, v)) {
+                break;
+            }
+        }
+    }
+
+    static int indexOf(final long v) {
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (v >>> shift) - SUB_BUCKETS;
+    }
+
+    /** The highest value that falls in the bucket with this index. */
+    static long highestValueAt(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long low = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return an upper bound of the values below the given percentile, or 0 if
+     *         nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final double p = Math.min(100, Math.max(0, percentile));
+        final long target = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+}
@@ -3,202 +3,181 @@ package org.erlide.runtime.rpc;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
-import java.lang.ref.SoftReference;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.erlide.util.ErlLogger;
-import org.erlide.util.erlang.OtpErlang;
 
-import com.ericsson.otp.erlang.OtpErlangAtom;
-import com.ericsson.otp.erlang.OtpErlangObject;
-import com.ericsson.otp.erlang.OtpErlangRef;
-import com.ericsson.otp.erlang.OtpNode;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+/**
+ * Collects statistics about all RPCs made to the backends, per called
+ * function: a latency histogram, request and response sizes, the number of
+ * calls in flight, of timeouts and of errors. Recording is lock-free and always
+ * on. The statistics can be queried with {@link #getStats()} or written to a
+ * file with {@link #dump(String)}.
+ */
 public class RpcMonitor {
-    private static final boolean DISABLED = System.getProperty("erlide.rpcmonitor") == null;
-    private static final int COUNT = Integer.parseInt(System.getProperty(
-            "erlide.rpcmonitor.count", "50"));
-    private static final boolean FULL = System.getProperty("erlide.rpcmonitor.full") != null;
-
-    private static class RpcData {
-        public final long startTime;
-        public final String node;
-        public final String module;
-        public final String fun;
-        public final SoftReference<Collection<OtpErlangObject>> args;
-        public final long size;
-
-        public RpcData(final long startTime, final String node, final String module,
-                final String fun, final OtpErlangObject[] args, final long size) {
-            this.startTime = startTime;
-            this.node = node;
-            this.module = module;
-            this.fun = fun;
-            this.args = new SoftReference<Collection<OtpErlangObject>>(
-                    Collections.unmodifiableCollection(Lists.newArrayList(args)));
-            this.size = size;
-        }
-    }
 
-    private static class RpcInfo {
-        public final String node;
-        public final String module;
-        public final String fun;
-        public final SoftReference<Collection<OtpErlangObject>> args;
-        public final long callSize;
-        public final SoftReference<OtpErlangObject> result;
-        public final long answerSize;
-        public final long callTime;
-        public final long answerTime;
-        private final int argsSize;
-
-        public RpcInfo(final RpcData data, final OtpErlangObject result,
-                final long answerTime) {
-            node = data.node;
-            module = data.module;
-            fun = data.fun;
-            args = data.args;
-            argsSize = args.get() == null ? 0 : args.get().size();
-            this.result = new SoftReference<OtpErlangObject>(result);
-            callTime = data.startTime;
-            this.answerTime = answerTime;
-            callSize = data.size;
-            answerSize = OtpErlang.sizeOf(result);
+    /**
+     * The record of one call, returned by
+     * {@link RpcMonitor#recordRequest(String, String)} and passed back when the
+     * call ends.
+     */
+    public static final class Request {
+        private final RpcStats stats;
+        private final long startTime = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        Request(final RpcStats stats) {
+            this.stats = stats;
         }
 
-        public void dump(final PrintStream out, final boolean full) {
-            Collection<OtpErlangObject> myArgs = args.get();
-            myArgs = myArgs == null ? new ArrayList<OtpErlangObject>() : myArgs;
-            final String argsString = full ? args.toString().replaceAll("\n|\r", " ")
-                    : "...";
-            OtpErlangObject val = result.get();
-            val = val == null ? new OtpErlangAtom("null") : val;
-            String resultString = full ? val.toString().replaceAll("\n|\r", " ") : "...";
-            if (resultString.length() > 100) {
-                resultString = new String(resultString.substring(0, 99) + "...");
-            }
-            out.format(
-                    "%30s|%25s:%-20s/%d in=%9d, out=%9d, t=%6d, args=%s -> result=%s%n",
-                    node.substring(0, Math.min(29, node.length() - 1)), module, fun,
-                    argsSize, callSize, answerSize, answerTime - callTime, argsString,
-                    resultString);
+        boolean finish() {
+            return done.compareAndSet(false, true);
         }
     }
 
-    private static int callCount = 0;
-    private static final Map<OtpErlangRef, RpcData> ongoing = Maps.newHashMap();
-    private static Comparator<RpcInfo> timeComparator = new Comparator<RpcInfo>() {
-        @Override
-        public int compare(final RpcInfo o1, final RpcInfo o2) {
-            return (int) (o2.answerTime - o2.callTime - (o1.answerTime - o1.callTime));
+    private static final ConcurrentMap<String, RpcStats> stats = Maps
+            .newConcurrentMap();
+
+    private static RpcStats statsFor(final String module, final String fun) {
+        final String key = module + ":" + fun;
+        final RpcStats s = stats.get(key);
+        if (s != null) {
+            return s;
         }
-    };
-    private static Comparator<RpcInfo> sizeComparator = new Comparator<RpcInfo>() {
-        @Override
-        public int compare(final RpcInfo o1, final RpcInfo o2) {
-            return (int) (o2.callSize + o2.answerSize - (o1.callSize + o1.answerSize));
+        final RpcStats created = new RpcStats(module, fun);
+        final RpcStats old = stats.putIfAbsent(key, created);
+        return old != null ? old : created;
+    }
+
+    /** Record the start of a call, before it is sent. */
+    public static Request recordRequest(final String module, final String fun) {
+        final RpcStats s = statsFor(module, fun);
+        s.started();
+        return new Request(s);
+    }
+
+    /** Record the encoded size of a sent request. */
+    public static void recordRequestSize(final Request request, final long size) {
+        if (request != null) {
+            request.stats.sent(size);
         }
-    };
-    private static final List<RpcInfo> slowest = Lists.newLinkedList();
-    private static final List<RpcInfo> largest = Lists.newLinkedList();
+    }
 
-    public static synchronized void recordResponse(final OtpErlangRef ref,
-            final OtpErlangObject result) {
-        if (DISABLED) {
+    /**
+     * Record the reply to a call.
+     *
+     * @param size
+     *            the encoded size of the reply, or a negative value if unknown
+     */
+    public static void recordResponse(final Request request, final long size) {
+        if (request == null || !request.finish()) {
             return;
         }
-        final RpcData data = ongoing.remove(ref);
-        final long now = System.currentTimeMillis();
-        final RpcInfo info = new RpcInfo(data, result, now);
-        add(largest, sizeComparator, info);
-        add(slowest, timeComparator, info);
+        final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime()
+                - request.startTime);
+        request.stats.answered(micros, size);
     }
 
-    private static void add(final List<RpcInfo> list,
-            final Comparator<RpcInfo> comparator, final RpcInfo info) {
-        final int index = Collections.binarySearch(list, info, comparator);
-        if (index < 0) {
-            // Add the non-existent item to the list
-            list.add(-index - 1, info);
-        } else {
-            list.add(index, info);
+    /** Record a call that will not get a reply, because of an error. */
+    public static void recordError(final Request request) {
+        if (request != null && request.finish()) {
+            request.stats.failed();
         }
-        if (list.size() > COUNT) {
-            list.remove(list.size() - 1);
+    }
+
+    /** Record a call that was abandoned by the caller. */
+    public static void recordCancel(final Request request) {
+        if (request != null && request.finish()) {
+            request.stats.cancelled();
         }
     }
 
-    public static OtpErlangRef recordRequest(final OtpNode node, final String peer,
-            final String module, final String fun, final OtpErlangObject[] args,
-            final long callSize) {
-        callCount++;
-        if (DISABLED) {
-            return null;
+    /**
+     * Record that a caller stopped waiting for a reply. The call stays in
+     * flight until it is answered or cancelled.
+     */
+    public static void recordTimeout(final Request request) {
+        if (request != null) {
+            request.stats.timedOut();
         }
-        final RpcData data = new RpcData(System.currentTimeMillis(), peer, module, fun,
-                args, callSize);
-        final OtpErlangRef ref = node.createRef();
-        ongoing.put(ref, data);
-        return ref;
     }
 
-    public static void dump() {
-        dump(System.out, COUNT, FULL);
+    /** The statistics of all functions called so far. */
+    public static Collection<RpcStats> getStats() {
+        return Collections.unmodifiableCollection(stats.values());
     }
 
-    public static void dump(final String file) {
-        dump(file, COUNT, FULL);
+    /** The statistics for one function, or null if it wasn't called. */
+    public static RpcStats getStats(final String module, final String fun) {
+        return stats.get(module + ":" + fun);
     }
 
-    public static void dump(final String file, final int n) {
-        dump(file, n, FULL);
+    public static void reset() {
+        stats.clear();
     }
 
-    public static void dump(final String file, final boolean full) {
-        dump(file, COUNT, full);
+    public static void dump() {
+        dump(System.out);
     }
 
-    public static void dump(final String fileName, final int n, final boolean full) {
+    public static void dump(final String fileName) {
         try {
-            dump(new PrintStream(fileName), n, full);
+            final PrintStream out = new PrintStream(fileName);
+            try {
+                dump(out);
+            } finally {
+                out.close();
+            }
         } catch (final FileNotFoundException e) {
             ErlLogger.error(e);
         }
     }
 
-    public static synchronized void dump(final PrintStream out, final int n,
-            final boolean full) {
-        out.format("*** RpcMonitor statistics%n - %d calls%n", callCount);
-        if (DISABLED) {
-            out.println("\nRpcMonitor was not enabled.\n\nUse -Derlide.rpcmonitor to enable it.");
-            return;
+    /**
+     * Write a snapshot of the statistics, one line per function, slowest (by
+     * 99th percentile) first. Times are in microseconds, sizes in bytes.
+     */
+    public static void dump(final PrintStream out) {
+        final List<RpcStats> all = Lists.newArrayList(stats.values());
+        Collections.sort(all, new Comparator<RpcStats>() {
+            @Override
+            public int compare(final RpcStats o1, final RpcStats o2) {
+                final long p1 = o1.getLatency().getValueAtPercentile(99);
+                final long p2 = o2.getLatency().getValueAtPercentile(99);
+                return p1 < p2 ? 1 : p1 > p2 ? -1 : 0;
+            }
+        });
+        long calls = 0;
+        for (final RpcStats s : all) {
+            calls += s.getCalls();
         }
+        out.format("*** RpcMonitor statistics%n - %d calls to %d functions%n", calls,
+                all.size());
         final String delim = "----------------------------------------------------------------------------------------";
         out.println(delim);
-        out.println();
-        out.format("Slowest %d calls%n", slowest.size());
-        out.println(delim);
-        for (final RpcInfo info : slowest) {
-            info.dump(out, full);
-        }
+        out.format("%-45s %8s %6s %6s %6s %10s %10s %10s %10s %12s %12s%n",
+                "function", "calls", "flight", "tmo", "err", "mean", "p50", "p99",
+                "max", "in", "out");
         out.println(delim);
-        out.println();
-        out.format("Largest %d calls%n", largest.size());
-        out.println(delim);
-        for (final RpcInfo info : largest) {
-            if (info != null) {
-                info.dump(out, full);
-            }
+        for (final RpcStats s : all) {
+            final RpcHistogram h = s.getLatency();
+            out.format("%-45s %8d %6d %6d %6d %10.0f %10d %10d %10d %12d %12d%n", s,
+                    s.getCalls(), s.getInFlight(), s.getTimeouts(), s.getErrors(),
+                    h.getMean(), h.getValueAtPercentile(50),
+                    h.getValueAtPercentile(99), h.getMax(), s.getRequestBytes(),
+                    s.getResponseBytes());
         }
         out.println(delim);
-        out.close();
+        out.flush();
     }
 
     public static void cleanupOldLogs(final String dirName, final String prefix) {
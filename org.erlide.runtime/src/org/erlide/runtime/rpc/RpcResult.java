@@ -62,4 +62,10 @@ public class RpcResult {
         r.fValue = OtpErlang.mkTuple(new OtpErlangAtom("error"), new OtpErlangAtom(msg));
         return r;
     }
+
+    public static RpcResult error(final OtpErlangObject reason) {
+        final RpcResult r = new RpcResult(false);
+        r.fValue = reason;
+        return r;
+    }
 }
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.runtime.rpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The live counters kept by {@link RpcMonitor} for the calls to one backend
+ * function. Latencies are in microseconds, from sending the request to
+ * receiving the reply.
+ */
+public class RpcStats {
+
+    private final String module;
+    private final String function;
+
+    private final RpcHistogram latency = new RpcHistogram();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    RpcStats(final String module, final String function) {
+        this.module = module;
+        this.function = function;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public RpcHistogram getLatency() {
+        return latency;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    void started() {
+        calls.incrementAndGet();
+        inFlight.incrementAndGet();
+    }
+
+    void sent(final long size) {
+        requestBytes.addAndGet(size);
+    }
+
+    void answered(final long micros, final long size) {
+        inFlight.decrementAndGet();
+        latency.record(micros);
+        if (size > 0) {
+            responseBytes.addAndGet(size);
+        }
+    }
+
+    void failed() {
+        inFlight.decrementAndGet();
+        errors.incrementAndGet();
+    }
+
+    void cancelled() {
+        inFlight.decrementAndGet();
+    }
+
+    void timedOut() {
+        timeouts.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return module + ":" + function;
+    }
+}
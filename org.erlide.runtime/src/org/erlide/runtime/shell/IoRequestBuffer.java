@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.runtime.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.google.common.collect.Lists;
+
+/**
+ * The text of a shell, as the requests that produced it. The requests are kept
+ * in chunks of fixed size, so that the oldest ones can be dropped a chunk at a
+ * time without touching the others, and a position is found with a binary
+ * search on the chunks and then inside the chunk.
+ *
+ * <p>
+ * Positions are kept relative to the start of the whole output, they are
+ * turned into offsets in the retained text only when requests are handed out
+ * ({@link IoRequest#getStart()} is set then).
+ * </p>
+ */
+public class IoRequestBuffer {
+
+    static final int CHUNK_SIZE = 256;
+
+    private static final class Chunk {
+        final long start;
+        long end;
+        final List<IoRequest> requests = new ArrayList<IoRequest>(CHUNK_SIZE);
+        final long[] starts = new long[CHUNK_SIZE];
+
+        Chunk(final long start) {
+            this.start = start;
+            end = start;
+        }
+
+        boolean isFull() {
+            return requests.size() == CHUNK_SIZE;
+        }
+
+        void add(final IoRequest request) {
+            starts[requests.size()] = end;
+            requests.add(request);
+            end += request.getLength();
+        }
+
+        /**
+         * @return the index of the last request starting at or before pos
+         */
+        int indexAt(final long pos) {
+            int lo = 0;
+            int hi = requests.size() - 1;
+            while (lo < hi) {
+                final int mid = (lo + hi + 1) >>> 1;
+                if (starts[mid] <= pos) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private final int maxRequests;
+    // the live chunks are those from first on; the list is compacted when
+    // the dropped ones take more room than the live ones
+    private final List<Chunk> chunks = Lists.newArrayList();
+    private int first = 0;
+    private int size = 0;
+    private long end = 0;
+
+    /**
+     * @param maxRequests
+     *            how many requests are kept at least; older ones are dropped
+     *            by {@link #trim()}
+     */
+    public IoRequestBuffer(final int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * @return the offset of the request in the text
+     */
+    public synchronized int add(final IoRequest request) {
+        Chunk last = chunks.size() > first ? chunks.get(chunks.size() - 1) : null;
+        if (last == null || last.isFull()) {
+            last = new Chunk(end);
+            chunks.add(last);
+        }
+        last.add(request);
+        end = last.end;
+        size++;
+        request.setStart(offset(end - request.getLength()));
+        return request.getStart();
+    }
+
+    /**
+     * Drop the oldest chunks, as long as there remain more requests than the
+     * maximum.
+     *
+     * @return the length of the text that was removed from the start
+     */
+    public synchronized int trim() {
+        final long base = base();
+        while (first < chunks.size()) {
+            final int n = firstChunk().requests.size();
+            if (size - n < maxRequests) {
+                break;
+            }
+            size -= n;
+            chunks.set(first, null);
+            first++;
+        }
+        if (first > chunks.size() - first) {
+            chunks.subList(0, first).clear();
+            first = 0;
+        }
+        return (int) (base() - base);
+    }
+
+    public synchronized IoRequest findAtPos(final int pos) {
+        if (pos < 0 || pos >= getLength()) {
+            return null;
+        }
+        final long abs = base() + pos;
+        int lo = first;
+        int hi = chunks.size() - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (chunks.get(mid).start <= abs) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        final Chunk chunk = chunks.get(lo);
+        final int index = chunk.indexAt(abs);
+        final IoRequest request = chunk.requests.get(index);
+        request.setStart(offset(chunk.starts[index]));
+        return request;
+    }
+
+    /**
+     * @return all the requests, oldest first
+     */
+    public synchronized List<IoRequest> getAll() {
+        final List<IoRequest> result = Lists.newArrayListWithCapacity(size);
+        for (int i = first; i < chunks.size(); i++) {
+            final Chunk chunk = chunks.get(i);
+            for (int j = 0; j < chunk.requests.size(); j++) {
+                final IoRequest request = chunk.requests.get(j);
+                request.setStart(offset(chunk.starts[j]));
+                result.add(request);
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<IoRequest> getAllFrom(final OtpErlangPid sender) {
+        final List<IoRequest> result = Lists.newArrayList();
+        for (final IoRequest request : getAll()) {
+            if (request.getSender().equals(sender)) {
+                result.add(request);
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<String> getLastMessages(final int n) {
+        final List<String> result = Lists.newArrayListWithCapacity(n);
+        int skip = Math.max(0, size - n);
+        for (int i = first; i < chunks.size(); i++) {
+            final List<IoRequest> requests = chunks.get(i).requests;
+            if (skip >= requests.size()) {
+                skip -= requests.size();
+                continue;
+            }
+            for (final IoRequest request : requests.subList(skip, requests.size())) {
+                result.add(request.getMessage());
+            }
+            skip = 0;
+        }
+        return result;
+    }
+
+    public synchronized String getText() {
+        final StringBuilder result = new StringBuilder(getLength());
+        for (int i = first; i < chunks.size(); i++) {
+            for (final IoRequest request : chunks.get(i).requests) {
+                result.append(request.getMessage());
+            }
+        }
+        return result.toString();
+    }
+
+    public synchronized int getLength() {
+        return (int) (end - base());
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private Chunk firstChunk() {
+        return chunks.get(first);
+    }
+
+    private long base() {
+        return first < chunks.size() ? firstChunk().start : end;
+    }
+
+    private int offset(final long pos) {
+        return (int) (pos - base());
+    }
+}
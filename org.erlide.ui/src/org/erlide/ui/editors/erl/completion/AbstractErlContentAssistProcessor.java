@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -585,12 +586,17 @@ public abstract class AbstractErlContentAssistProcessor implements
             final int offset, final String prefix) {
         final String stateDir = ErlangEngine.getInstance().getStateDir();
         final List<ICompletionProposal> result = new ArrayList<ICompletionProposal>();
-        for (final IErlImport imp : module.getImports()) {
-            final OtpErlangObject res = ErlangEngine
-                    .getInstance()
-                    .getService(OtpDocService.class)
-                    .getProposalsWithDoc(backend, imp.getImportModule(), prefix, stateDir);
-            addFunctionProposalsWithDoc(offset, prefix, result, res, imp, false);
+        final Collection<IErlImport> imports = module.getImports();
+        final List<String> importModules = new ArrayList<String>(imports.size());
+        for (final IErlImport imp : imports) {
+            importModules.add(imp.getImportModule());
+        }
+        final List<OtpErlangObject> docs = ErlangEngine.getInstance()
+                .getService(OtpDocService.class)
+                .getProposalsWithDoc(backend, importModules, prefix, stateDir);
+        final Iterator<OtpErlangObject> doc = docs.iterator();
+        for (final IErlImport imp : imports) {
+            addFunctionProposalsWithDoc(offset, prefix, result, doc.next(), imp, false);
         }
         return result;
     }
@@ -68,8 +68,7 @@ public class TestAction extends TextEditorAction {
                 s = Util.stringValue(checkAll);
             }
             ErlLogger.info("%s", s);
-            final String scannerText = ErlangEngine.getInstance()
-                    .getScannerProviderService().get(scannerName).getText();
+            final String scannerText = internalScanner.getText(scannerName);
             dumpText(scannerText, "/tmp/scanner.txt");
             dumpText(text, "/tmp/editor.txt");
             if (textEditor instanceof ErlangEditor) {
@@ -0,0 +1,49 @@
+package org.erlide.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GapBufferTest {
+
+    @Test
+    public void edits() {
+        final GapBuffer buf = new GapBuffer("hello world");
+        buf.replace(5, 6, "");
+        assertThat(buf.toString(), is("hello"));
+        buf.replace(0, 0, "oh, ");
+        assertThat(buf.toString(), is("oh, hello"));
+        buf.replace(4, 1, "j");
+        assertThat(buf.toString(), is("oh, jello"));
+        assertThat(buf.length(), is(9));
+        assertThat(buf.charAt(8), is('o'));
+        assertThat(buf.subSequence(2, 6).toString(), is(", je"));
+    }
+
+    @Test
+    public void randomEditsMatchStringBuilder() {
+        final Random random = new Random(42);
+        final GapBuffer buf = new GapBuffer();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            final int offset = random.nextInt(expected.length() + 1);
+            final int length = random.nextInt(Math.min(20, expected.length() - offset) + 1);
+            final StringBuilder text = new StringBuilder();
+            for (int k = random.nextInt(100); k > 0; k--) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            buf.replace(offset, length, text.toString());
+            expected.replace(offset, offset + length, text.toString());
+            assertThat(buf.length(), is(expected.length()));
+        }
+        assertThat(buf.toString(), is(expected.toString()));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void replaceOutOfBounds() {
+        new GapBuffer("abc").replace(2, 2, "");
+    }
+}
@@ -18,6 +18,7 @@ import java.util.HashMap;
 
 import org.erlide.util.erlang.IConvertible;
 import org.erlide.util.erlang.Signature;
+import org.erlide.util.erlang.SignatureCodec;
 import org.erlide.util.erlang.SignatureException;
 import org.erlide.util.erlang.TypeConverter;
 import org.junit.After;
@@ -231,6 +232,30 @@ public class TypeConverterTest {
         test(x, "j", new OtpErlangAtom("__kalle__"));
     }
 
+    @SuppressWarnings("boxing")
+    @Test
+    public void codecMatchesTypeConverter() throws SignatureException {
+        final String sig = "aslsi2aoxb";
+        final Object[] args = { "mod", "text", Arrays.asList("a", "b"), 42,
+                new Object[] { "tag", true }, 3.5, "bin" };
+        final OtpErlangObject[] result = SignatureCodec.forSignature(sig).encode(args);
+        final Signature[] types = Signature.parse(sig);
+        for (int i = 0; i < args.length; i++) {
+            Assert.assertEquals(TypeConverter.java2erlang(args[i], types[i]), result[i]);
+        }
+    }
+
+    @Test(expected = SignatureException.class)
+    public void codecChecksArity() throws SignatureException {
+        SignatureCodec.forSignature("as").encode("mod");
+    }
+
+    @SuppressWarnings("boxing")
+    @Test(expected = SignatureException.class)
+    public void codecFails() throws SignatureException {
+        SignatureCodec.forSignature("ls").encode(3);
+    }
+
     static class Cvt {
         public static String fromErlangObject(final OtpErlangObject obj) {
             return "hej";
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.util;
+
+/**
+ * Editable text stored with a gap at the last edit position, so that a
+ * sequence of edits close to each other (like typing) only moves the text
+ * between them. Not thread safe.
+ */
+public final class GapBuffer implements CharSequence {
+
+    private static final int MIN_GAP = 64;
+
+    private char[] buf;
+    private int gapStart;
+    private int gapEnd;
+
+    public GapBuffer() {
+        this("");
+    }
+
+    public GapBuffer(final String text) {
+        buf = new char[text.length() + MIN_GAP];
+        text.getChars(0, text.length(), buf, 0);
+        gapStart = text.length();
+        gapEnd = buf.length;
+    }
+
+    @Override
+    public int length() {
+        return buf.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return index < gapStart ? buf[index] : buf[index + gapEnd - gapStart];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return new String(getChars(start, end));
+    }
+
+    /** Replace <code>length</code> characters at <code>offset</code>. */
+    public void replace(final int offset, final int length, final String text) {
+        if (offset < 0 || length < 0 || offset + length > length()) {
+            throw new IndexOutOfBoundsException(offset + "+" + length);
+        }
+        moveGap(offset);
+        gapEnd += length;
+        final int n = text.length();
+        if (gapEnd - gapStart < n) {
+            grow(n);
+        }
+        text.getChars(0, n, buf, gapStart);
+        gapStart += n;
+    }
+
+    public char[] getChars(final int start, final int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException(start + ".." + end);
+        }
+        final char[] result = new char[end - start];
+        final int gap = gapEnd - gapStart;
+        if (end <= gapStart) {
+            System.arraycopy(buf, start, result, 0, end - start);
+        } else if (start >= gapStart) {
+            System.arraycopy(buf, start + gap, result, 0, end - start);
+        } else {
+            System.arraycopy(buf, start, result, 0, gapStart - start);
+            System.arraycopy(buf, gapEnd, result, gapStart - start, end - gapStart);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return new String(getChars(0, length()));
+    }
+
+    private void moveGap(final int offset) {
+        if (offset < gapStart) {
+            final int n = gapStart - offset;
+            System.arraycopy(buf, offset, buf, gapEnd - n, n);
+            gapStart -= n;
+            gapEnd -= n;
+        } else if (offset > gapStart) {
+            final int n = offset - gapStart;
+            System.arraycopy(buf, gapEnd, buf, gapStart, n);
+            gapStart += n;
+            gapEnd += n;
+        }
+    }
+
+    private void grow(final int needed) {
+        final int tail = buf.length - gapEnd;
+        final int size = Math.max(buf.length * 3 / 2, length() + needed + MIN_GAP);
+        final char[] nbuf = new char[size];
+        System.arraycopy(buf, 0, nbuf, 0, gapStart);
+        System.arraycopy(buf, gapEnd, nbuf, size - tail, tail);
+        buf = nbuf;
+        gapEnd = size - tail;
+    }
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.util.erlang;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Maps;
+
+/**
+ * A type signature (see {@link TypeConverter}) compiled into a list of
+ * converters, one per argument. Codecs are immutable and cached, so they are
+ * shared between threads and each signature string is parsed only once.
+ *
+ * <p>
+ * The converters handle the common Java types directly and defer everything
+ * else to {@link TypeConverter#java2erlang(Object, Signature)}, so the results
+ * are the same as converting each argument with it.
+ * </p>
+ */
+public final class SignatureCodec {
+
+    private static final ConcurrentMap<String, SignatureCodec> CACHE = Maps
+            .newConcurrentMap();
+
+    private static final OtpErlangAtom TRUE = new OtpErlangAtom("true");
+    private static final OtpErlangAtom FALSE = new OtpErlangAtom("false");
+
+    private final String signature;
+    private final Encoder[] encoders;
+
+    private SignatureCodec(final String signature, final Signature[] types) {
+        this.signature = signature;
+        encoders = new Encoder[types.length];
+        for (int i = 0; i < types.length; i++) {
+            encoders[i] = compile(types[i]);
+        }
+    }
+
+    public static SignatureCodec forSignature(final String signature)
+            throws SignatureException {
+        SignatureCodec codec = CACHE.get(signature);
+        if (codec == null) {
+            codec = new SignatureCodec(signature, Signature.parse(signature));
+            final SignatureCodec old = CACHE.putIfAbsent(signature, codec);
+            if (old != null) {
+                codec = old;
+            }
+        }
+        return codec;
+    }
+
+    public int arity() {
+        return encoders.length;
+    }
+
+    /**
+     * Convert the arguments of a call.
+     *
+     * @throws SignatureException
+     *             if the number of arguments doesn't match or an argument can't
+     *             be converted.
+     */
+    public OtpErlangObject[] encode(final Object... args) throws SignatureException {
+        if (args.length != encoders.length) {
+            throw new SignatureException("Signature doesn't match parameter number: "
+                    + encoders.length + "/" + args.length);
+        }
+        final OtpErlangObject[] result = new OtpErlangObject[args.length];
+        for (int i = 0; i < args.length; i++) {
+            result[i] = encoders[i].encode(args[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return signature;
+    }
+
+    private static Encoder compile(final Signature type) {
+        switch (type.kind) {
+        case 's':
+            return new Encoder(type) {
+                @Override
+                OtpErlangObject encode(final Object obj) throws SignatureException {
+                    if (obj instanceof String) {
+                        return new OtpErlangString((String) obj);
+                    }
+                    return super.encode(obj);
+                }
+            };
+        case 'a':
+            return new Encoder(type) {
+                @Override
+                OtpErlangObject encode(final Object obj) throws SignatureException {
+                    if (obj instanceof String) {
+                        return new OtpErlangAtom((String) obj);
+                    }
+                    return super.encode(obj);
+                }
+            };
+        case 'b':
+            return new Encoder(type) {
+                @Override
+                OtpErlangObject encode(final Object obj) throws SignatureException {
+                    if (obj instanceof String) {
+                        return new OtpErlangBinary(((String) obj).getBytes());
+                    }
+                    return super.encode(obj);
+                }
+            };
+        case 'i':
+            return new Encoder(type) {
+                @Override
+                OtpErlangObject encode(final Object obj) throws SignatureException {
+                    if (obj instanceof Integer || obj instanceof Long) {
+                        return new OtpErlangLong(((Number) obj).longValue());
+                    }
+                    return super.encode(obj);
+                }
+            };
+        case 'o':
+            return new Encoder(type) {
+                @Override
+                OtpErlangObject encode(final Object obj) throws SignatureException {
+                    if (obj instanceof Boolean) {
+                        return ((Boolean) obj).booleanValue() ? TRUE : FALSE;
+                    }
+                    return super.encode(obj);
+                }
+            };
+        case 'l':
+            return new ListEncoder(type, compile(type.content[0]));
+        case 't':
+            final Encoder[] elements = new Encoder[type.content.length];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = compile(type.content[i]);
+            }
+            return new TupleEncoder(type, elements);
+        default:
+            return new Encoder(type);
+        }
+    }
+
+    private static class Encoder {
+        final Signature type;
+
+        Encoder(final Signature type) {
+            this.type = type;
+        }
+
+        OtpErlangObject encode(final Object obj) throws SignatureException {
+            return TypeConverter.java2erlang(obj, type);
+        }
+    }
+
+    private static class ListEncoder extends Encoder {
+        private final Encoder element;
+
+        ListEncoder(final Signature type, final Encoder element) {
+            super(type);
+            this.element = element;
+        }
+
+        @Override
+        OtpErlangObject encode(final Object obj) throws SignatureException {
+            if (obj instanceof Collection<?>) {
+                return encodeAll(((Collection<?>) obj).toArray());
+            }
+            if (obj instanceof Object[]) {
+                return encodeAll((Object[]) obj);
+            }
+            return super.encode(obj);
+        }
+
+        private OtpErlangList encodeAll(final Object[] a) throws SignatureException {
+            final OtpErlangObject[] items = new OtpErlangObject[a.length];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = element.encode(a[i]);
+            }
+            return new OtpErlangList(items);
+        }
+    }
+
+    private static class TupleEncoder extends Encoder {
+        private final Encoder[] elements;
+
+        TupleEncoder(final Signature type, final Encoder[] elements) {
+            super(type);
+            this.elements = elements;
+        }
+
+        @Override
+        OtpErlangObject encode(final Object obj) throws SignatureException {
+            if (obj instanceof Object[] && ((Object[]) obj).length <= elements.length) {
+                final Object[] a = (Object[]) obj;
+                final OtpErlangObject[] items = new OtpErlangObject[a.length];
+                for (int i = 0; i < items.length; i++) {
+                    items[i] = elements[i].encode(a[i]);
+                }
+                return new OtpErlangTuple(items);
+            }
+            return super.encode(obj);
+        }
+    }
+}
@@ -37,6 +37,10 @@ import com.ericsson.otp.erlang.OtpErlangRef;
 import com.ericsson.otp.erlang.OtpErlangShort;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Maps;
 
 /**
@@ -80,6 +84,22 @@ public final class TypeConverter {
     private static final String CANT_CONVERT_TO = ", can't convert to ";
     private static final String WRONG_ARG_TYPE = "wrong arg type ";
 
+    // the fromErlangObject methods, looked up once per class
+    private static final LoadingCache<Class<?>, Optional<Method>> CONVERTERS = CacheBuilder
+            .newBuilder().weakKeys().build(new CacheLoader<Class<?>, Optional<Method>>() {
+                @Override
+                public Optional<Method> load(final Class<?> cls) {
+                    try {
+                        final Method method = cls.getMethod("fromErlangObject",
+                                new Class<?>[] { OtpErlangObject.class });
+                        method.setAccessible(true);
+                        return Optional.of(method);
+                    } catch (final NoSuchMethodException e) {
+                        return Optional.absent();
+                    }
+                }
+            });
+
     public static Class<?> getClassByName(final String arg) {
         if ("char".equals(arg)) {
             return char.class;
@@ -162,14 +182,9 @@ public final class TypeConverter {
                 return obj;
             }
             // if the conversion method exists, use it
-            try {
-                final Method method = cls.getMethod("fromErlangObject",
-                        new Class<?>[] { OtpErlangObject.class });
-                method.setAccessible(true);
-                final Object o = method.invoke(null, obj);
-                return o;
-            } catch (final NoSuchMethodException e) {
-                // ignore, continue
+            final Optional<Method> method = CONVERTERS.getUnchecked(cls);
+            if (method.isPresent()) {
+                return method.get().invoke(null, obj);
             }
 
             if (cls.isArray()) {